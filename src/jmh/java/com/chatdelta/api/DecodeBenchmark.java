@@ -0,0 +1,42 @@
+package com.chatdelta.api;
+
+import com.chatdelta.bench.Payloads;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Streaming decode of complete (non-streamed) responses from 1 KB to 200 KB
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+    @Param({"openai", "claude", "gemini"})
+    String provider;
+    
+    @Param({"1024", "16384", "204800"})
+    int bytes;
+    
+    private byte[] body;
+    private ResponseDecoder decoder;
+    
+    @Setup
+    public void setUp() {
+        body = Payloads.response(provider, bytes).getBytes(StandardCharsets.UTF_8);
+        decoder = switch (provider) {
+            case "openai" -> new OpenAIResponseDecoder();
+            case "claude" -> new ClaudeResponseDecoder();
+            default -> new GeminiResponseDecoder();
+        };
+    }
+    
+    @Benchmark
+    public CompletionResult decode() throws IOException {
+        return decoder.decode(ResponseBody.create(body, JsonRequestBody.JSON));
+    }
+}
\ No newline at end of file
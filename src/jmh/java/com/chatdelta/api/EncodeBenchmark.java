@@ -0,0 +1,50 @@
+package com.chatdelta.api;
+
+import com.chatdelta.bench.Payloads;
+import okhttp3.Request;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Cost of turning a prompt into the bytes each client puts on the wire
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodeBenchmark {
+    @Param({"openai", "claude", "gemini"})
+    String provider;
+    
+    @Param({"64", "4096", "65536"})
+    int promptChars;
+    
+    private String prompt;
+    private OpenAIClient openAI;
+    private ClaudeClient claude;
+    private GeminiClient gemini;
+    
+    @Setup
+    public void setUp() {
+        prompt = Payloads.text(promptChars, 1);
+        HttpTransport transport = HttpTransport.builder().build();
+        openAI = new OpenAIClient("bench-key", transport);
+        claude = new ClaudeClient("bench-key", transport);
+        gemini = new GeminiClient("bench-key", null, transport);
+    }
+    
+    @Benchmark
+    public long encode() throws IOException {
+        Request request = switch (provider) {
+            case "openai" -> openAI.buildRequest(prompt, false);
+            case "claude" -> claude.buildRequest(prompt, false);
+            default -> gemini.buildRequest(prompt, false);
+        };
+        Buffer sink = new Buffer();
+        request.body().writeTo(sink);
+        return sink.size();
+    }
+}
\ No newline at end of file
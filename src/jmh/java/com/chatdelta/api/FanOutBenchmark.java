@@ -0,0 +1,58 @@
+package com.chatdelta.api;
+
+import com.chatdelta.bench.Payloads;
+import com.chatdelta.simulator.ProviderSimulator;
+import com.chatdelta.simulator.SimulatorConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// One prompt fanned out to all three providers over the shared transport,
+// against the local provider simulator answering instantly: what is left is
+// our own encode, connection handling and decode overhead.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+    @Param({"1024", "16384"})
+    int bytes;
+    
+    private ProviderSimulator simulator;
+    private HttpTransport transport;
+    private AIClient[] clients;
+    private String prompt;
+    
+    @Setup
+    public void setUp() throws IOException {
+        simulator = ProviderSimulator.start(SimulatorConfig.INSTANT.withResponseChars(bytes, bytes));
+        transport = HttpTransport.builder().preferHttp2(false).build();
+        String base = simulator.baseUrl();
+        clients = new AIClient[] {
+            new OpenAIClient("bench-key", transport, TimeoutProfile.DEFAULT, base),
+            new ClaudeClient("bench-key", transport, TimeoutProfile.DEFAULT, base),
+            new GeminiClient("bench-key", null, transport, TimeoutProfile.DEFAULT, base),
+        };
+        prompt = Payloads.text(512, 2);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        simulator.close();
+        transport.shutdown();
+    }
+    
+    @Benchmark
+    public int fanOut() {
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[clients.length];
+        for (int i = 0; i < clients.length; i++) {
+            calls[i] = clients[i].sendPromptDetailed(prompt);
+        }
+        CompletableFuture.allOf(calls).join();
+        return calls.length;
+    }
+}
\ No newline at end of file
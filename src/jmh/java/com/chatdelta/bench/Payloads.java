@@ -0,0 +1,142 @@
+package com.chatdelta.bench;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+// Deterministic, realistic-looking provider payloads for the benchmarks:
+// markdown-ish prose with paragraph breaks, quotes and non-ASCII text, wrapped
+// in each provider's response envelope.
+public final class Payloads {
+    private static final String[] SENTENCES = {
+        "The main trade-off is between latency and throughput.",
+        "In practice, most workloads are dominated by network round trips rather than CPU time.",
+        "A connection pool avoids paying the TLS handshake on every request.",
+        "Consider the \"happy path\" first, then handle retries and timeouts.",
+        "**Key point:** measure before optimizing, and measure again afterwards.",
+        "- Use streaming when the user is waiting on the answer.",
+        "- Cache responses that are expensive to compute and cheap to store.",
+        "Ünïcödé text and emoji such as 🚀 should round-trip without corruption.",
+        "Backoff with jitter spreads retries out so that clients do not synchronize.",
+        "The answer depends on the size of the input and on the tokenizer in use.",
+        "`O(n log n)` sorting is rarely the bottleneck in an I/O-bound service.",
+        "Finally, document the behavior so that future readers understand the intent.",
+    };
+    
+    private Payloads() {
+    }
+    
+    public static String text(int chars, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(chars + 128);
+        int sentencesInParagraph = 0;
+        while (text.length() < chars) {
+            text.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            if (++sentencesInParagraph == 4) {
+                text.append("\n\n");
+                sentencesInParagraph = 0;
+            } else {
+                text.append(' ');
+            }
+        }
+        text.setLength(chars);
+        return text.toString();
+    }
+    
+    // A response body of roughly `bytes` bytes in the given provider's format
+    public static String response(String provider, int bytes) {
+        String text = text(Math.max(16, bytes - 400), bytes);
+        try {
+            return switch (provider) {
+                case "openai" -> openAI(text);
+                case "claude" -> claude(text);
+                case "gemini" -> gemini(text);
+                default -> throw new IllegalArgumentException("Unknown provider: " + provider);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static String openAI(String text) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("id").value("chatcmpl-9xYz0123456789");
+        json.name("object").value("chat.completion");
+        json.name("created").value(1718000000);
+        json.name("model").value("gpt-4o-2024-08-06");
+        json.name("choices").beginArray().beginObject();
+        json.name("index").value(0);
+        json.name("message").beginObject();
+        json.name("role").value("assistant");
+        json.name("content").value(text);
+        json.name("refusal").nullValue();
+        json.endObject();
+        json.name("logprobs").nullValue();
+        json.name("finish_reason").value("stop");
+        json.endObject().endArray();
+        json.name("usage").beginObject();
+        json.name("prompt_tokens").value(42);
+        json.name("completion_tokens").value(text.length() / 4);
+        json.name("total_tokens").value(42 + text.length() / 4);
+        json.endObject();
+        json.name("system_fingerprint").value("fp_0123456789");
+        json.endObject();
+        return out.toString();
+    }
+    
+    private static String claude(String text) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("id").value("msg_01XyZ0123456789");
+        json.name("type").value("message");
+        json.name("role").value("assistant");
+        json.name("model").value("claude-3-5-sonnet-20241022");
+        json.name("content").beginArray().beginObject();
+        json.name("type").value("text");
+        json.name("text").value(text);
+        json.endObject().endArray();
+        json.name("stop_reason").value("end_turn");
+        json.name("stop_sequence").nullValue();
+        json.name("usage").beginObject();
+        json.name("input_tokens").value(42);
+        json.name("output_tokens").value(text.length() / 4);
+        json.endObject();
+        json.endObject();
+        return out.toString();
+    }
+    
+    private static String gemini(String text) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("candidates").beginArray().beginObject();
+        json.name("content").beginObject();
+        json.name("parts").beginArray().beginObject();
+        json.name("text").value(text);
+        json.endObject().endArray();
+        json.name("role").value("model");
+        json.endObject();
+        json.name("finishReason").value("STOP");
+        json.name("index").value(0);
+        json.name("safetyRatings").beginArray();
+        for (String category : new String[] {"HARM_CATEGORY_HATE_SPEECH", "HARM_CATEGORY_HARASSMENT"}) {
+            json.beginObject().name("category").value(category).name("probability").value("NEGLIGIBLE").endObject();
+        }
+        json.endArray();
+        json.endObject().endArray();
+        json.name("usageMetadata").beginObject();
+        json.name("promptTokenCount").value(42);
+        json.name("candidatesTokenCount").value(text.length() / 4);
+        json.name("totalTokenCount").value(42 + text.length() / 4);
+        json.endObject();
+        json.name("modelVersion").value("gemini-2.5-flash");
+        json.endObject();
+        return out.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.chatdelta.delta;
+
+import com.chatdelta.bench.Payloads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// What the TUI's updateDelta does each time a response arrives
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeltaSummaryBenchmark {
+    @Param({"1024", "16384", "65536"})
+    int chars;
+    
+    private Map<String, String> responses;
+    
+    @Setup
+    public void setUp() {
+        responses = new LinkedHashMap<>();
+        responses.put("ChatGPT", Payloads.text(chars, 11));
+        responses.put("Gemini", Payloads.text(chars, 12));
+        responses.put("Claude", Payloads.text(chars, 13));
+    }
+    
+    @Benchmark
+    public String updateDelta() {
+        return DeltaSummary.of(responses).render();
+    }
+}
\ No newline at end of file
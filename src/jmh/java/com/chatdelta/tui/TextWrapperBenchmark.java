@@ -0,0 +1,33 @@
+package com.chatdelta.tui;
+
+import com.chatdelta.bench.Payloads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextWrapperBenchmark {
+    @Param({"1024", "16384", "65536"})
+    int chars;
+    
+    @Param({"30", "76"})
+    int width;
+    
+    private String text;
+    
+    @Setup
+    public void setUp() {
+        text = Payloads.text(chars, 21);
+    }
+    
+    @Benchmark
+    public List<String> wrap() {
+        return TextWrapper.wrap(text, width);
+    }
+}
\ No newline at end of file
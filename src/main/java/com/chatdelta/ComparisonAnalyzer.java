@@ -0,0 +1,418 @@
+package com.chatdelta;
+
+import com.chatdelta.delta.DeltaEngine;
+import com.chatdelta.delta.Granularity;
+import com.chatdelta.delta.IntList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Compares responses locally, in milliseconds: how much each pair agrees, the
+// sentences most of them share, the claims only one of them makes, and the
+// length and structure of each. Sentences match when their content words
+// overlap enough, so paraphrases count as agreement. Each response is
+// profiled, and then each pair compared, as its own task on a fork-join pool.
+public final class ComparisonAnalyzer {
+    // Jaccard similarity of content words at which two sentences say the same thing
+    private static final double SUPPORT_THRESHOLD = 0.5;
+    // Below this against every other response, a sentence is an outlier
+    private static final double OUTLIER_THRESHOLD = 0.2;
+    private static final int MIN_CLAIM_TERMS = 4;
+    private static final int OUTLIERS_PER_PROVIDER = 3;
+    private static final int SNIPPET_CHARS = 120;
+    // Segments a single word nominates as candidate matches
+    private static final int MAX_NOMINATED = 16;
+    
+    // score is 0 for unrelated responses and 1 for responses saying the same
+    public record Agreement(String first, String second, double score) {
+    }
+    
+    // support counts the responses with a matching sentence, the provider's own included
+    public record Claim(String provider, String text, int support) {
+    }
+    
+    public record Structure(int characters, int words, int sentences, int paragraphs,
+                            int listItems, int codeBlocks, int headings) {
+    }
+    
+    public record Report(
+        int responseCount,
+        List<Agreement> agreements,
+        Map<String, Double> providerAgreement,
+        List<Claim> consensus,
+        List<Claim> outliers,
+        Map<String, Structure> structure
+    ) {
+        // Mean agreement over every pair
+        public double overallAgreement() {
+            double total = 0;
+            for (Agreement agreement : agreements) {
+                total += agreement.score();
+            }
+            return agreements.isEmpty() ? 0 : total / agreements.size();
+        }
+        
+        public String render(int maxClaims) {
+            if (responseCount < 2) {
+                return "";
+            }
+            
+            StringBuilder text = new StringBuilder();
+            text.append("🤝 Agreement: ").append(percent(overallAgreement())).append(" overall\n");
+            for (Agreement agreement : agreements) {
+                text.append("• ").append(agreement.first()).append(" ↔ ").append(agreement.second()).append(": ")
+                    .append(percent(agreement.score())).append('\n');
+            }
+            
+            text.append("\n✅ Consensus (").append(consensus.size()).append("):\n");
+            for (Claim claim : consensus.subList(0, Math.min(maxClaims, consensus.size()))) {
+                text.append("• [").append(claim.support()).append('/').append(responseCount).append("] ")
+                    .append(snippet(claim.text())).append('\n');
+            }
+            
+            if (!outliers.isEmpty()) {
+                text.append("\n⚠️ Outliers (").append(outliers.size()).append("):\n");
+                for (Claim claim : outliers.subList(0, Math.min(maxClaims, outliers.size()))) {
+                    text.append("• ").append(claim.provider()).append(": ").append(snippet(claim.text())).append('\n');
+                }
+            }
+            
+            text.append("\n📐 Shape:\n");
+            for (Map.Entry<String, Structure> entry : structure.entrySet()) {
+                Structure shape = entry.getValue();
+                text.append("• ").append(entry.getKey()).append(": ")
+                    .append(shape.words()).append(" words, ")
+                    .append(shape.sentences()).append(" sentences, ")
+                    .append(shape.paragraphs()).append(" paragraphs");
+                if (shape.listItems() > 0) {
+                    text.append(", ").append(shape.listItems()).append(" list items");
+                }
+                if (shape.codeBlocks() > 0) {
+                    text.append(", ").append(shape.codeBlocks()).append(" code blocks");
+                }
+                if (shape.headings() > 0) {
+                    text.append(", ").append(shape.headings()).append(" headings");
+                }
+                text.append('\n');
+            }
+            return text.toString();
+        }
+    }
+    
+    // A response split into sentences (or lines, for code) and their content
+    // words, with the segments each word occurs in
+    private record Profile(List<String> segments, List<Set<String>> terms, Map<String, IntList> postings,
+                           Structure structure) {
+    }
+    
+    private final ForkJoinPool pool;
+    
+    public ComparisonAnalyzer() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    public ComparisonAnalyzer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    public CompletableFuture<Report> analyzeAsync(Map<String, String> responses) {
+        Map<String, String> snapshot = new LinkedHashMap<>(responses);
+        return CompletableFuture.supplyAsync(() -> analyze(snapshot), pool);
+    }
+    
+    public Report analyze(Map<String, String> responses) {
+        List<String> names = new ArrayList<>(responses.keySet());
+        List<String> texts = new ArrayList<>(responses.values());
+        Granularity granularity = Granularity.detect(texts);
+        return pool.invoke(ForkJoinTask.adapt(() -> compare(names, texts, granularity)));
+    }
+    
+    private static Report compare(List<String> names, List<String> texts, Granularity granularity) {
+        int count = names.size();
+        List<ForkJoinTask<Profile>> profiling = new ArrayList<>();
+        for (String text : texts) {
+            profiling.add(ForkJoinTask.adapt(() -> profile(text, granularity)));
+        }
+        ForkJoinTask.invokeAll(profiling);
+        Profile[] profiles = new Profile[count];
+        for (int p = 0; p < count; p++) {
+            profiles[p] = profiling.get(p).join();
+        }
+        
+        // best[p][q][i]: how closely response q matches sentence i of response p
+        double[][][] best = new double[count][count][];
+        List<ForkJoinTask<?>> pairs = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            for (int q = p + 1; q < count; q++) {
+                int first = p;
+                int second = q;
+                pairs.add(ForkJoinTask.adapt(() -> {
+                    best[first][second] = bestMatches(profiles[first], profiles[second]);
+                    best[second][first] = bestMatches(profiles[second], profiles[first]);
+                }));
+            }
+        }
+        ForkJoinTask.invokeAll(pairs);
+        
+        List<Agreement> agreements = new ArrayList<>();
+        double[] totals = new double[count];
+        for (int p = 0; p < count; p++) {
+            for (int q = p + 1; q < count; q++) {
+                double score = (coverage(profiles[p], best[p][q]) + coverage(profiles[q], best[q][p])) / 2;
+                agreements.add(new Agreement(names.get(p), names.get(q), score));
+                totals[p] += score;
+                totals[q] += score;
+            }
+        }
+        Map<String, Double> providerAgreement = new LinkedHashMap<>();
+        Map<String, Structure> structure = new LinkedHashMap<>();
+        int anchor = 0;
+        for (int p = 0; p < count; p++) {
+            providerAgreement.put(names.get(p), count > 1 ? totals[p] / (count - 1) : 0);
+            structure.put(names.get(p), profiles[p].structure());
+            if (totals[p] > totals[anchor]) {
+                anchor = p;
+            }
+        }
+        
+        List<Claim> consensus = new ArrayList<>();
+        List<Claim> outliers = new ArrayList<>();
+        if (count > 1) {
+            consensus = consensus(names, profiles, best, anchor);
+            for (int p = 0; p < count; p++) {
+                outliers.addAll(outliers(names, profiles, best, p));
+            }
+        }
+        return new Report(count, agreements, providerAgreement, consensus, outliers, structure);
+    }
+    
+    // Sentences of the response that agrees most with the rest which a
+    // majority of the responses share, best supported first. Like the
+    // structural alignment, this anchors on one response rather than
+    // clustering every sentence of every response.
+    private static List<Claim> consensus(List<String> names, Profile[] profiles, double[][][] best, int anchor) {
+        List<Claim> claims = new ArrayList<>();
+        Profile profile = profiles[anchor];
+        for (int i = 0; i < profile.segments().size(); i++) {
+            if (profile.terms().get(i).size() < 2) {
+                continue;
+            }
+            int support = 1;
+            for (int q = 0; q < names.size(); q++) {
+                if (q != anchor && best[anchor][q][i] >= SUPPORT_THRESHOLD) {
+                    support++;
+                }
+            }
+            if (support >= 2 && support * 2 > names.size()) {
+                claims.add(new Claim(names.get(anchor), profile.segments().get(i), support));
+            }
+        }
+        claims.sort(Comparator.comparingInt(Claim::support).reversed());
+        return claims;
+    }
+    
+    // The response's most substantial sentences that no other response comes close to
+    private static List<Claim> outliers(List<String> names, Profile[] profiles, double[][][] best, int p) {
+        Profile profile = profiles[p];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < profile.segments().size(); i++) {
+            if (profile.terms().get(i).size() < MIN_CLAIM_TERMS) {
+                continue;
+            }
+            double closest = 0;
+            for (int q = 0; q < names.size(); q++) {
+                if (q != p) {
+                    closest = Math.max(closest, best[p][q][i]);
+                }
+            }
+            if (closest < OUTLIER_THRESHOLD) {
+                candidates.add(i);
+            }
+        }
+        candidates.sort(Comparator.comparingInt((Integer i) -> profile.terms().get(i).size()).reversed());
+        List<Claim> claims = new ArrayList<>();
+        for (int i : candidates.subList(0, Math.min(OUTLIERS_PER_PROVIDER, candidates.size()))) {
+            claims.add(new Claim(names.get(p), profile.segments().get(i), 1));
+        }
+        return claims;
+    }
+    
+    // Only segments sharing a word can score above 0, so candidates come
+    // from the other response's postings instead of comparing every pair of
+    // segments. A word found in more than MAX_NOMINATED segments (a keyword
+    // repeated all through a code block, say) nominates only the first of
+    // them but still counts toward every candidate's score, so the cost
+    // stays linear in the responses' lengths. Scores are exact for the
+    // candidates looked at; a segment sharing nothing but such common words
+    // may be missed.
+    private static double[] bestMatches(Profile profile, Profile other) {
+        double[] best = new double[profile.segments().size()];
+        int[] shared = new int[other.segments().size()];
+        int[] round = new int[other.segments().size()];
+        IntList touched = new IntList();
+        List<String> common = new ArrayList<>();
+        for (int i = 0; i < best.length; i++) {
+            Set<String> terms = profile.terms().get(i);
+            for (String term : terms) {
+                IntList segments = other.postings().get(term);
+                if (segments == null) {
+                    continue;
+                }
+                boolean frequent = segments.size() > MAX_NOMINATED;
+                if (frequent) {
+                    common.add(term);
+                }
+                for (int k = 0; k < Math.min(segments.size(), MAX_NOMINATED); k++) {
+                    int j = segments.get(k);
+                    if (round[j] != i + 1) {
+                        round[j] = i + 1;
+                        shared[j] = 0;
+                        touched.add(j);
+                    }
+                    if (!frequent) {
+                        shared[j]++;
+                    }
+                }
+            }
+            for (int k = 0; k < touched.size(); k++) {
+                int j = touched.get(k);
+                Set<String> candidate = other.terms().get(j);
+                int both = shared[j];
+                for (String term : common) {
+                    if (candidate.contains(term)) {
+                        both++;
+                    }
+                }
+                best[i] = Math.max(best[i], (double) both / (terms.size() + candidate.size() - both));
+            }
+            touched.clear();
+            common.clear();
+        }
+        return best;
+    }
+    
+    // Mean best-match similarity over the response's sentences, weighted by their content words
+    private static double coverage(Profile profile, double[] best) {
+        double matched = 0;
+        int weight = 0;
+        for (int i = 0; i < best.length; i++) {
+            int terms = profile.terms().get(i).size();
+            matched += best[i] * terms;
+            weight += terms;
+        }
+        return weight == 0 ? 0 : matched / weight;
+    }
+    
+    static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int shared = 0;
+        for (String term : smaller) {
+            if (larger.contains(term)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+    
+    private static Profile profile(String text, Granularity granularity) {
+        List<String> segments = granularity.split(text);
+        List<Set<String>> terms = new ArrayList<>(segments.size());
+        Map<String, IntList> postings = new HashMap<>();
+        for (String segment : segments) {
+            Set<String> words = new HashSet<>();
+            for (String word : words(segment)) {
+                if (word.length() >= 2 && !DeltaEngine.isStopword(word) && words.add(word)) {
+                    postings.computeIfAbsent(word, key -> new IntList(4)).add(terms.size());
+                }
+            }
+            terms.add(words);
+        }
+        return new Profile(segments, terms, postings, structure(text));
+    }
+    
+    static Structure structure(String text) {
+        int paragraphs = 0;
+        int listItems = 0;
+        int fences = 0;
+        int headings = 0;
+        boolean inParagraph = false;
+        // "#include" or "- x" inside a code block is code, not a heading or list item
+        boolean inFence = false;
+        for (String line : text.split("\n", -1)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                inParagraph = false;
+                continue;
+            }
+            if (!inParagraph) {
+                paragraphs++;
+                inParagraph = true;
+            }
+            if (trimmed.startsWith("```")) {
+                fences++;
+                inFence = !inFence;
+            } else if (inFence) {
+                continue;
+            } else if (trimmed.startsWith("#")) {
+                headings++;
+            } else if (isListItem(trimmed)) {
+                listItems++;
+            }
+        }
+        return new Structure(text.length(), words(text).size(), Granularity.SENTENCE.split(text).size(),
+            paragraphs, listItems, fences / 2, headings);
+    }
+    
+    // "- item", "* item", "• item", "1. item" or "1) item"
+    private static boolean isListItem(String line) {
+        if (line.startsWith("- ") || line.startsWith("* ") || line.startsWith("• ")) {
+            return true;
+        }
+        int digits = 0;
+        while (digits < line.length() && Character.isDigit(line.charAt(digits))) {
+            digits++;
+        }
+        return digits > 0 && digits + 1 < line.length()
+            && (line.charAt(digits) == '.' || line.charAt(digits) == ')') && line.charAt(digits + 1) == ' ';
+    }
+    
+    // Lower-cased runs of letters, digits and apostrophes
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length()
+                && (Character.isLetterOrDigit(text.charAt(i)) || (start >= 0 && text.charAt(i) == '\''));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+    
+    private static String snippet(String segment) {
+        String line = segment.replaceAll("\\s+", " ");
+        return line.length() <= SNIPPET_CHARS ? line : line.substring(0, SNIPPET_CHARS - 1) + "…";
+    }
+    
+    private static String percent(double value) {
+        return Math.round(value * 100) + "%";
+    }
+}
\ No newline at end of file
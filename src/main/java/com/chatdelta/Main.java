@@ -1,12 +1,26 @@
 package com.chatdelta;
 
+import com.chatdelta.api.ClientFactory;
+import com.chatdelta.batch.BatchOptions;
+import com.chatdelta.batch.BatchRunner;
 import com.chatdelta.gui.ChatDeltaGUI;
 import com.chatdelta.models.ProviderState;
+import com.chatdelta.simulator.ProviderSimulator;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Main {
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--simulate")) {
+            startSimulator();
+        }
+        
+        if (BatchOptions.isBatch(args)) {
+            System.exit(BatchRunner.runFromArgs(args));
+        }
+        
         Map<String, ProviderState> providerStates = detectProviders();
         
         try {
@@ -23,17 +37,29 @@ public class Main {
         Map<String, ProviderState> states = new HashMap<>();
         
         states.put("ChatGPT", 
-            System.getenv("CHATGPT_API_KEY") != null ? 
+            ClientFactory.apiKey("ChatGPT") != null ? 
             ProviderState.ENABLED : ProviderState.DISABLED);
             
         states.put("Gemini", 
-            System.getenv("GEMINI_API_KEY") != null ? 
+            ClientFactory.apiKey("Gemini") != null ? 
             ProviderState.ENABLED : ProviderState.DISABLED);
             
         states.put("Claude", 
-            System.getenv("CLAUDE_API_KEY") != null ? 
+            ClientFactory.apiKey("Claude") != null ? 
             ProviderState.ENABLED : ProviderState.DISABLED);
             
         return states;
     }
+    
+    // Serves all three providers from a local simulator; no network or API keys needed
+    private static void startSimulator() {
+        try {
+            ProviderSimulator simulator = ProviderSimulator.fromSystemProperties();
+            simulator.useForClients();
+            System.err.println("Simulating providers at " + simulator.baseUrl());
+        } catch (IOException e) {
+            System.err.println("Could not start provider simulator: " + e.getMessage());
+            System.exit(1);
+        }
+    }
 }
\ No newline at end of file
@@ -1,8 +1,54 @@
 package com.chatdelta.api;
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public interface AIClient {
     CompletableFuture<String> sendPrompt(String prompt);
     String getProviderName();
+    
+    default String getModelName() {
+        return getProviderName();
+    }
+    
+    // Everything besides the prompt that changes the answer, e.g. "temperature=0.7".
+    default String getParameterSignature() {
+        return "";
+    }
+    
+    default CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        return Futures.map(sendPrompt(prompt), CompletionResult::ofText);
+    }
+    
+    // The call is cancelled, down to the HTTP request, if it hasn't finished by the deadline.
+    default CompletableFuture<String> sendPrompt(String prompt, Duration deadline) {
+        return sendPrompt(prompt).orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    // Sends prompt as the next turn of the conversation. Clients that can only
+    // send a single message get the earlier turns written into the prompt.
+    default CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        return streamPrompt(conversation.isEmpty() ? prompt : conversation.transcript(prompt), listener);
+    }
+    
+    // Called once the conversation won't be continued, so the client can
+    // release what it keeps for it, e.g. a provider-side context cache
+    default void endConversation(Conversation conversation) {
+    }
+    
+    // Clients without a streaming endpoint deliver the whole answer as one chunk.
+    default CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        long start = System.nanoTime();
+        CompletableFuture<String> call = sendPrompt(prompt);
+        return Futures.propagateCancel(call.whenComplete((text, error) -> {
+            if (error != null) {
+                listener.onError(error);
+                return;
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            listener.onChunk(text);
+            listener.onComplete(new StreamStats(elapsed, elapsed, 1, text.length()));
+        }), call);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.chatdelta.api;
+
+import java.util.function.LongSupplier;
+
+// AIMD concurrency limit: grows by roughly one slot per window of successful
+// calls and halves on throttling or server errors. A call much slower than
+// the running baseline counts as a mild congestion signal.
+public class AdaptiveConcurrencyLimit {
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    private static final double SLOW_CALL_FACTOR = 3.0;
+    private static final double BASELINE_WEIGHT = 0.05;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final long cooldownNanos;
+    private final LongSupplier ticker;
+    private double limit;
+    private double baselineNanos;
+    private long lastDecrease;
+    
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 1_000_000_000L, System::nanoTime);
+    }
+    
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long cooldownNanos, LongSupplier ticker) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.cooldownNanos = cooldownNanos;
+        this.ticker = ticker;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecrease = ticker.getAsLong() - cooldownNanos;
+    }
+    
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    public synchronized void onSuccess(long latencyNanos) {
+        if (baselineNanos > 0 && latencyNanos > baselineNanos * SLOW_CALL_FACTOR) {
+            decrease(LATENCY_BACKOFF_RATIO);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        baselineNanos = baselineNanos == 0
+            ? latencyNanos
+            : baselineNanos + BASELINE_WEIGHT * (latencyNanos - baselineNanos);
+    }
+    
+    public synchronized void onOverload() {
+        decrease(BACKOFF_RATIO);
+    }
+    
+    // A burst of 429s from one overload event should only back off once
+    private void decrease(double ratio) {
+        long now = ticker.getAsLong();
+        if (now - lastDecrease < cooldownNanos) {
+            return;
+        }
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * ratio);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.chatdelta.api;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Per-provider admission: a call starts only when the request and token
+// buckets allow it and the adaptive concurrency limit has a free slot.
+// Everything else waits in a FIFO queue. Throttled (429) calls go back to
+// the head of the queue and the whole provider pauses for Retry-After.
+public class AdmissionController {
+    private static final Duration DEFAULT_PAUSE = Duration.ofSeconds(1);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chatdelta-admission");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final RateLimits limits;
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+    private final AdaptiveConcurrencyLimit concurrency;
+    private final LongSupplier ticker;
+    private final Deque<Pending<?>> queue = new ArrayDeque<>();
+    private final LongAdder throttled = new LongAdder();
+    private int inFlight;
+    private long pausedUntil;
+    private boolean wakeupScheduled;
+    
+    private static final class Pending<T> {
+        final long estimatedTokens;
+        final Supplier<CompletableFuture<T>> call;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        int requeues;
+        
+        Pending(long estimatedTokens, Supplier<CompletableFuture<T>> call) {
+            this.estimatedTokens = estimatedTokens;
+            this.call = call;
+        }
+    }
+    
+    public AdmissionController(RateLimits limits) {
+        this(limits, System::nanoTime);
+    }
+    
+    AdmissionController(RateLimits limits, LongSupplier ticker) {
+        this.limits = limits;
+        this.ticker = ticker;
+        this.requestBucket = new TokenBucket(limits.requestsPerMinute(), ticker);
+        this.tokenBucket = new TokenBucket(limits.tokensPerMinute(), ticker);
+        this.concurrency = new AdaptiveConcurrencyLimit(
+            limits.initialConcurrency(), 1, limits.maxConcurrency(), 1_000_000_000L, ticker);
+        this.pausedUntil = ticker.getAsLong();
+    }
+    
+    public <T> CompletableFuture<T> submit(long estimatedTokens, Supplier<CompletableFuture<T>> call) {
+        Pending<T> pending = new Pending<>(estimatedTokens, call);
+        synchronized (this) {
+            queue.addLast(pending);
+        }
+        drain();
+        return pending.result;
+    }
+    
+    // Replaces the up-front token estimate with the usage the provider reported.
+    public void recordUsage(long estimatedTokens, long actualTokens) {
+        if (actualTokens > 0) {
+            tokenBucket.adjust(actualTokens - estimatedTokens);
+        }
+    }
+    
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+    
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+    
+    public int getConcurrencyLimit() {
+        return concurrency.getLimit();
+    }
+    
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+    
+    private void drain() {
+        List<Pending<?>> ready = new ArrayList<>();
+        synchronized (this) {
+            long wait = 0;
+            while (!queue.isEmpty() && inFlight < concurrency.getLimit()) {
+                Pending<?> head = queue.peekFirst();
+                if (head.result.isDone()) {
+                    queue.pollFirst(); // cancelled while queued
+                    continue;
+                }
+                long now = ticker.getAsLong();
+                wait = Math.max(pausedUntil - now, Math.max(
+                    requestBucket.nanosUntilAvailable(1),
+                    tokenBucket.nanosUntilAvailable(head.estimatedTokens)));
+                if (wait > 0) {
+                    break;
+                }
+                requestBucket.tryAcquire(1);
+                tokenBucket.tryAcquire(head.estimatedTokens);
+                queue.pollFirst();
+                inFlight++;
+                ready.add(head);
+            }
+            
+            if (wait > 0 && !wakeupScheduled) {
+                wakeupScheduled = true;
+                SCHEDULER.schedule(() -> {
+                    synchronized (this) {
+                        wakeupScheduled = false;
+                    }
+                    drain();
+                }, wait, TimeUnit.NANOSECONDS);
+            }
+        }
+        
+        for (Pending<?> pending : ready) {
+            start(pending);
+        }
+    }
+    
+    private <T> void start(Pending<T> pending) {
+        long started = ticker.getAsLong();
+        CompletableFuture<T> call;
+        try {
+            call = pending.call.get();
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        Futures.propagateCancel(pending.result, call);
+        call.whenComplete((value, error) -> onComplete(pending, started, value, error));
+    }
+    
+    private <T> void onComplete(Pending<T> pending, long started, T value, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        boolean requeued = false;
+        
+        synchronized (this) {
+            inFlight--;
+            if (cause instanceof ApiException api && (api.isRateLimited() || api.isServerError())) {
+                concurrency.onOverload();
+                if (api.isRateLimited()) {
+                    throttled.increment();
+                    Duration pause = api.getRetryAfter() != null ? api.getRetryAfter() : DEFAULT_PAUSE;
+                    pausedUntil = Math.max(pausedUntil, ticker.getAsLong() + pause.toNanos());
+                    if (pending.requeues < limits.maxRequeues() && !pending.result.isDone()) {
+                        pending.requeues++;
+                        queue.addFirst(pending);
+                        requeued = true;
+                    }
+                }
+            } else if (error == null) {
+                concurrency.onSuccess(ticker.getAsLong() - started);
+            }
+        }
+        
+        if (!requeued) {
+            if (error != null) {
+                pending.result.completeExceptionally(cause);
+            } else {
+                pending.result.complete(value);
+            }
+        }
+        drain();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.chatdelta.api;
+
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// A non-2xx answer from a provider. Keeps the status code and Retry-After hint
+// so the admission and retry layers can tell throttling from real failures.
+public class ApiException extends IOException {
+    private static final long serialVersionUID = 1L;
+    
+    private final int statusCode;
+    private final Duration retryAfter;
+    
+    public ApiException(String message, int statusCode, Duration retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+    
+    public static ApiException from(Response response, String message) {
+        return new ApiException(message, response.code(), parseRetryAfter(response.header("Retry-After")));
+    }
+    
+    public int getStatusCode() {
+        return statusCode;
+    }
+    
+    // null when the server sent no usable Retry-After header
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+    
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+    
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+    
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            // Not delay-seconds; try the HTTP-date form
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration delay = Duration.between(ZonedDateTime.now(at.getZone()), at);
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.chatdelta.api;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+public class CachingAIClient implements AIClient {
+    private final AIClient delegate;
+    private final ResponseCache cache;
+    
+    public CachingAIClient(AIClient delegate, ResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+    
+    @Override
+    public CompletableFuture<String> sendPrompt(String prompt) {
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        String key = keyFor(prompt);
+        CompletionResult cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return Futures.map(delegate.sendPromptDetailed(prompt), result -> {
+            cache.put(key, result);
+            return result;
+        });
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    // The earlier turns are part of the key; a bare prompt keys as before
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        String key = keyFor(conversation.key(prompt));
+        CompletionResult cached = cache.get(key);
+        if (cached != null) {
+            listener.onChunk(cached.text());
+            listener.onComplete(new StreamStats(Duration.ZERO, Duration.ZERO, 1, cached.text().length()));
+            return CompletableFuture.completedFuture(cached.text());
+        }
+        return Futures.map(delegate.streamPrompt(conversation, prompt, listener), text -> {
+            cache.put(key, CompletionResult.ofText(text));
+            return text;
+        });
+    }
+    
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+    
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+    
+    @Override
+    public String getParameterSignature() {
+        return delegate.getParameterSignature();
+    }
+    
+    @Override
+    public void endConversation(Conversation conversation) {
+        delegate.endConversation(conversation);
+    }
+    
+    public ResponseCache getCache() {
+        return cache;
+    }
+    
+    private String keyFor(String prompt) {
+        return ResponseCache.key(getProviderName(), getModelName(), getParameterSignature(), prompt);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.chatdelta.api;
+
+import com.chatdelta.metrics.ProviderMetrics;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Counts a provider call and its outcome. Byte counts and latencies come from
+// HttpMetricsListener; this covers what only the client knows: HTTP status
+// failures, decode errors and the token usage in the decoded body.
+final class CallMetrics {
+    private CallMetrics() {
+    }
+    
+    static <T> CompletableFuture<T> track(ProviderMetrics metrics, CompletableFuture<T> future) {
+        metrics.recordRequest();
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                metrics.recordError(errorClass(error));
+            } else if (value instanceof CompletionResult result) {
+                TokenUsage usage = result.usage();
+                metrics.recordTokens(usage.inputTokens(), usage.outputTokens(), usage.cachedInputTokens());
+            }
+        });
+        return future;
+    }
+    
+    static String errorClass(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (Futures.isAbandoned(cause)) {
+            return "cancelled";
+        }
+        if (cause instanceof ApiException api) {
+            if (api.isRateLimited()) {
+                return "http_429";
+            }
+            return api.getStatusCode() >= 500 ? "http_5xx" : "http_4xx";
+        }
+        if (cause instanceof CircuitOpenException) {
+            return "circuit_open";
+        }
+        if (cause instanceof ResponseFormatException) {
+            return "bad_response";
+        }
+        if (cause instanceof InterruptedIOException) {
+            return "timeout";
+        }
+        if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+            return "connect";
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
\ No newline at end of file
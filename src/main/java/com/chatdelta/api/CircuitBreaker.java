@@ -0,0 +1,167 @@
+package com.chatdelta.api;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Count-based sliding window over the last `windowSize` calls. Opens when
+// too many of them failed or were slow, fails fast while open, and after
+// `openDuration` lets a few probe calls through to decide whether to close.
+public class CircuitBreaker {
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+    
+    private final String provider;
+    private final CircuitBreakerConfig config;
+    private final LongSupplier ticker;
+    private final List<Consumer<CircuitState>> listeners = new CopyOnWriteArrayList<>();
+    private final byte[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private CircuitState state = CircuitState.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+    
+    public CircuitBreaker(String provider, CircuitBreakerConfig config) {
+        this(provider, config, System::nanoTime);
+    }
+    
+    CircuitBreaker(String provider, CircuitBreakerConfig config, LongSupplier ticker) {
+        this.provider = provider;
+        this.config = config;
+        this.ticker = ticker;
+        this.window = new byte[config.windowSize()];
+    }
+    
+    public String getProvider() {
+        return provider;
+    }
+    
+    public synchronized CircuitState getState() {
+        if (state == CircuitState.OPEN && openElapsed()) {
+            // Report the pending transition without consuming a probe slot
+            return CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+    
+    public void addListener(Consumer<CircuitState> listener) {
+        listeners.add(listener);
+    }
+    
+    public boolean tryAcquire() {
+        CircuitState changed = null;
+        boolean permitted;
+        synchronized (this) {
+            if (state == CircuitState.OPEN && openElapsed()) {
+                changed = transition(CircuitState.HALF_OPEN);
+            }
+            permitted = switch (state) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> {
+                    if (probesInFlight + probeSuccesses < config.halfOpenProbes()) {
+                        probesInFlight++;
+                        yield true;
+                    }
+                    yield false;
+                }
+            };
+        }
+        notifyListeners(changed);
+        return permitted;
+    }
+    
+    public void onSuccess(long latencyNanos) {
+        record(latencyNanos > config.slowCallThreshold().toNanos() ? SLOW : SUCCESS);
+    }
+    
+    public void onFailure() {
+        record(FAILURE);
+    }
+    
+    // The call never reached a verdict (e.g. it was cancelled)
+    public synchronized void onIgnored() {
+        if (state == CircuitState.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+    
+    private void record(byte outcome) {
+        CircuitState changed = null;
+        synchronized (this) {
+            if (state == CircuitState.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (outcome == SUCCESS) {
+                    probeSuccesses++;
+                    if (probeSuccesses >= config.halfOpenProbes()) {
+                        changed = transition(CircuitState.CLOSED);
+                    }
+                } else {
+                    changed = transition(CircuitState.OPEN);
+                }
+            } else if (state == CircuitState.CLOSED) {
+                add(outcome);
+                if (recorded >= config.minimumCalls()
+                        && (failures >= config.failureRateThreshold() * recorded
+                            || slowCalls >= config.slowCallRateThreshold() * recorded)) {
+                    changed = transition(CircuitState.OPEN);
+                }
+            }
+        }
+        notifyListeners(changed);
+    }
+    
+    private void add(byte outcome) {
+        if (recorded == window.length) {
+            byte evicted = window[next];
+            if (evicted == FAILURE) {
+                failures--;
+            } else if (evicted == SLOW) {
+                slowCalls--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+    }
+    
+    private CircuitState transition(CircuitState target) {
+        state = target;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (target == CircuitState.OPEN) {
+            openedAt = ticker.getAsLong();
+        } else if (target == CircuitState.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+        return target;
+    }
+    
+    private boolean openElapsed() {
+        return ticker.getAsLong() - openedAt >= config.openDuration().toNanos();
+    }
+    
+    private void notifyListeners(CircuitState changed) {
+        if (changed == null) {
+            return;
+        }
+        for (Consumer<CircuitState> listener : listeners) {
+            listener.accept(changed);
+        }
+    }
+}
\ No newline at end of file
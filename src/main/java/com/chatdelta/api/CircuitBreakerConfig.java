@@ -0,0 +1,28 @@
+package com.chatdelta.api;
+
+import java.time.Duration;
+
+public record CircuitBreakerConfig(
+    int windowSize,
+    int minimumCalls,
+    double failureRateThreshold,
+    Duration slowCallThreshold,
+    double slowCallRateThreshold,
+    Duration openDuration,
+    int halfOpenProbes
+) {
+    public static final CircuitBreakerConfig DEFAULT = new CircuitBreakerConfig(
+        20, 10, 0.5, Duration.ofSeconds(20), 0.8, Duration.ofSeconds(30), 3);
+    
+    public static CircuitBreakerConfig fromSystemProperties() {
+        return new CircuitBreakerConfig(
+            Integer.getInteger("chatdelta.breaker.windowSize", DEFAULT.windowSize()),
+            Integer.getInteger("chatdelta.breaker.minimumCalls", DEFAULT.minimumCalls()),
+            DEFAULT.failureRateThreshold(),
+            Duration.ofSeconds(Long.getLong("chatdelta.breaker.slowCallSeconds", DEFAULT.slowCallThreshold().getSeconds())),
+            DEFAULT.slowCallRateThreshold(),
+            Duration.ofSeconds(Long.getLong("chatdelta.breaker.openSeconds", DEFAULT.openDuration().getSeconds())),
+            Integer.getInteger("chatdelta.breaker.halfOpenProbes", DEFAULT.halfOpenProbes())
+        );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.chatdelta.api;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class CircuitBreakingAIClient implements AIClient {
+    private final AIClient delegate;
+    private final CircuitBreaker breaker;
+    
+    public CircuitBreakingAIClient(AIClient delegate, CircuitBreaker breaker) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+    }
+    
+    @Override
+    public CompletableFuture<String> sendPrompt(String prompt) {
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CircuitOpenException(breaker.getProvider()));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<CompletionResult> call = delegate.sendPromptDetailed(prompt);
+        call.whenComplete((result, error) -> record(System.nanoTime() - start, error));
+        return call;
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        if (!breaker.tryAcquire()) {
+            CircuitOpenException error = new CircuitOpenException(breaker.getProvider());
+            listener.onError(error);
+            return CompletableFuture.failedFuture(error);
+        }
+        long start = System.nanoTime();
+        StreamStats[] stats = {null};
+        CompletableFuture<String> call = delegate.streamPrompt(conversation, prompt, new StreamListener() {
+            @Override
+            public void onChunk(String text) {
+                listener.onChunk(text);
+            }
+            
+            @Override
+            public void onComplete(StreamStats result) {
+                stats[0] = result;
+                listener.onComplete(result);
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                listener.onError(error);
+            }
+        });
+        // A long answer takes long to stream from a healthy provider too, so a
+        // stream is judged slow by its time to first token
+        call.whenComplete((text, error) -> record(stats[0] != null && stats[0].hasFirstToken()
+            ? stats[0].timeToFirstToken().toNanos() : System.nanoTime() - start, error));
+        return call;
+    }
+    
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+    
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+    
+    @Override
+    public String getParameterSignature() {
+        return delegate.getParameterSignature();
+    }
+    
+    @Override
+    public void endConversation(Conversation conversation) {
+        delegate.endConversation(conversation);
+    }
+    
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+    
+    // Only failures that say something about the provider's health count:
+    // connection problems, timeouts and 5xx. Throttling and bad requests don't.
+    private void record(long latencyNanos, Throwable error) {
+        if (error == null) {
+            breaker.onSuccess(latencyNanos);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CancellationException
+                || (cause instanceof ApiException api && !api.isServerError())
+                || !RetryingAIClient.isRetryable(cause)) {
+            breaker.onIgnored();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.chatdelta.api;
+
+import java.io.IOException;
+
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+    
+    public CircuitOpenException(String provider) {
+        super(provider + " is unavailable (circuit open); failing fast");
+    }
+}
\ No newline at end of file
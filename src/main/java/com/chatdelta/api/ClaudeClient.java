@@ -1,59 +1,64 @@
 package com.chatdelta.api;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
+import com.chatdelta.metrics.MetricsRegistry;
+import com.chatdelta.metrics.ProviderMetrics;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import okhttp3.*;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 public class ClaudeClient implements AIClient {
-    private static final String API_URL = "https://api.anthropic.com/v1/messages";
+    private static final String DEFAULT_BASE_URL = "https://api.anthropic.com/";
     private static final String MODEL = "claude-3-5-sonnet-20241022";
     private static final String ANTHROPIC_VERSION = "2023-06-01";
+    private static final ResponseDecoder DECODER = new ClaudeResponseDecoder();
+    private static final RequestTemplate TEMPLATE = requestTemplate(false);
+    private static final RequestTemplate STREAM_TEMPLATE = requestTemplate(true);
+    private static final RequestTemplate CONVERSATION_TEMPLATE = conversationTemplate(false);
+    private static final RequestTemplate STREAM_CONVERSATION_TEMPLATE = conversationTemplate(true);
     private final OkHttpClient client;
-    private final String apiKey;
-    private final Gson gson;
+    private final HttpUrl url;
+    private final ProviderMetrics metrics;
+    private final Headers headers;
+    private final Headers streamHeaders;
     
     public ClaudeClient(String apiKey) {
-        this.apiKey = apiKey;
-        this.gson = new Gson();
-        this.client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+        this(apiKey, HttpTransport.shared());
+    }
+    
+    public ClaudeClient(String apiKey, HttpTransport transport) {
+        this(apiKey, transport, TimeoutProfile.ANTHROPIC);
+    }
+    
+    public ClaudeClient(String apiKey, HttpTransport transport, TimeoutProfile timeouts) {
+        this(apiKey, transport, timeouts, System.getProperty("chatdelta.anthropic.baseUrl", DEFAULT_BASE_URL));
+    }
+    
+    // baseUrl replaces https://api.anthropic.com/, e.g. to point at a local simulator
+    public ClaudeClient(String apiKey, HttpTransport transport, TimeoutProfile timeouts, String baseUrl) {
+        this.url = HttpUrl.get(baseUrl).newBuilder().addPathSegments("v1/messages").build();
+        this.headers = requestHeaders(apiKey, false);
+        this.streamHeaders = requestHeaders(apiKey, true);
+        this.client = transport.clientFor(timeouts);
+        this.metrics = MetricsRegistry.shared().forProvider(getProviderName(), MODEL);
     }
     
     @Override
     public CompletableFuture<String> sendPrompt(String prompt) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        
-        JsonObject message = new JsonObject();
-        message.addProperty("role", "user");
-        message.addProperty("content", prompt);
-        
-        JsonArray messages = new JsonArray();
-        messages.add(message);
-        
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("model", MODEL);
-        requestBody.add("messages", messages);
-        requestBody.addProperty("max_tokens", 1000);
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        CompletableFuture<CompletionResult> future = new CompletableFuture<>();
+        Request request = buildRequest(prompt, false);
         
-        Request request = new Request.Builder()
-            .url(API_URL)
-            .header("x-api-key", apiKey)
-            .header("anthropic-version", ANTHROPIC_VERSION)
-            .header("Content-Type", "application/json")
-            .post(RequestBody.create(
-                gson.toJson(requestBody),
-                MediaType.parse("application/json")
-            ))
-            .build();
-            
-        client.newCall(request).enqueue(new Callback() {
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 future.completeExceptionally(e);
@@ -61,34 +66,164 @@ public class ClaudeClient implements AIClient {
             
             @Override
             public void onResponse(Call call, Response response) throws IOException {
-                try {
+                try (ResponseBody body = response.body()) {
                     if (!response.isSuccessful()) {
                         future.completeExceptionally(
-                            new IOException("API request failed: " + response.code())
+                            ApiException.from(response, "API request failed: " + response.code())
                         );
                         return;
                     }
                     
-                    String responseBody = response.body().string();
-                    JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-                    
-                    JsonArray content = jsonResponse.getAsJsonArray("content");
-                    if (content != null && content.size() > 0) {
-                        String text = content.get(0).getAsJsonObject()
-                            .get("text").getAsString();
-                        future.complete(text);
-                    } else {
-                        future.completeExceptionally(
-                            new IOException("No content in response")
-                        );
-                    }
+                    future.complete(DECODER.decode(body));
                 } catch (Exception e) {
                     future.completeExceptionally(e);
                 }
             }
         });
         
-        return future;
+        return CallMetrics.track(metrics, Futures.bind(call, future));
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        return CallMetrics.track(metrics, StreamingCall.enqueue(client, buildRequest(conversation, prompt, true),
+            ClaudeClient::extractStreamChunk, ClaudeClient::extractStreamUsage, listener));
+    }
+    
+    private static RequestTemplate requestTemplate(boolean stream) {
+        return RequestTemplate.of(
+            settings(stream) + ",\"messages\":[{\"role\":\"user\",\"content\":",
+            "}]}"
+        );
+    }
+    
+    private static RequestTemplate conversationTemplate(boolean stream) {
+        return RequestTemplate.of(settings(stream) + ",\"messages\":", "}");
+    }
+    
+    private static String settings(boolean stream) {
+        return "{\"model\":" + RequestTemplate.quote(MODEL)
+            + ",\"max_tokens\":1000"
+            + (stream ? ",\"stream\":true" : "");
+    }
+    
+    private static Headers requestHeaders(String apiKey, boolean stream) {
+        return new Headers.Builder()
+            .add("x-api-key", apiKey)
+            .add("anthropic-version", ANTHROPIC_VERSION)
+            .add("Accept", stream ? "text/event-stream" : "application/json")
+            .build();
+    }
+    
+    // Package-private for the encoding benchmarks
+    Request buildRequest(String prompt, boolean stream) {
+        return new Request.Builder()
+            .url(url)
+            .headers(stream ? streamHeaders : headers)
+            .post((stream ? STREAM_TEMPLATE : TEMPLATE).encode(prompt))
+            .tag(ProviderMetrics.class, metrics)
+            .build();
+    }
+    
+    // The last reply carries a cache breakpoint, so everything up to it is
+    // written to the prompt cache. On the next turn that same prefix comes
+    // before the new breakpoint, and the provider serves it from the cache.
+    Request buildRequest(Conversation conversation, String prompt, boolean stream) {
+        if (conversation.isEmpty()) {
+            return buildRequest(prompt, stream);
+        }
+        RequestTemplate template = stream ? STREAM_CONVERSATION_TEMPLATE : CONVERSATION_TEMPLATE;
+        List<Conversation.Turn> turns = conversation.turns();
+        return new Request.Builder()
+            .url(url)
+            .headers(stream ? streamHeaders : headers)
+            .post(template.encode(json -> {
+                json.beginArray();
+                for (int i = 0; i < turns.size(); i++) {
+                    Conversation.Turn turn = turns.get(i);
+                    json.beginObject().name("role").value("user").name("content").value(turn.prompt()).endObject();
+                    json.beginObject().name("role").value("assistant").name("content");
+                    if (i == turns.size() - 1) {
+                        json.beginArray().beginObject()
+                            .name("type").value("text")
+                            .name("text").value(turn.reply())
+                            .name("cache_control").beginObject().name("type").value("ephemeral").endObject()
+                            .endObject().endArray();
+                    } else {
+                        json.value(turn.reply());
+                    }
+                    json.endObject();
+                }
+                json.beginObject().name("role").value("user").name("content").value(prompt).endObject();
+                json.endArray();
+            }))
+            .tag(ProviderMetrics.class, metrics)
+            .build();
+    }
+    
+    // event: content_block_delta
+    // data: {"type":"content_block_delta","index":0,"delta":{"type":"text_delta","text":"..."}}
+    static String extractStreamChunk(String event, String data) throws IOException {
+        if (event.equals("error")) {
+            JsonObject error = JsonParser.parseString(data).getAsJsonObject().getAsJsonObject("error");
+            throw new IOException("API stream error: " + (error != null ? error.get("message").getAsString() : data));
+        }
+        if (!event.equals("content_block_delta")) {
+            return null;
+        }
+        JsonObject delta = JsonParser.parseString(data).getAsJsonObject().getAsJsonObject("delta");
+        if (delta == null || !delta.has("text")) {
+            return null;
+        }
+        return delta.get("text").getAsString();
+    }
+    
+    // message_start carries the input counts, message_delta the output count
+    static TokenUsage extractStreamUsage(String event, String data, TokenUsage usage) throws IOException {
+        if (!event.equals("message_start") && !event.equals("message_delta")) {
+            return usage;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(data))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "message" -> {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if (reader.nextName().equals("usage")) {
+                                usage = ClaudeResponseDecoder.readUsage(reader);
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    case "usage" -> {
+                        TokenUsage delta = ClaudeResponseDecoder.readUsage(reader);
+                        TokenUsage input = delta.inputTokens() > 0 ? delta : usage;
+                        usage = new TokenUsage(input.inputTokens(), delta.outputTokens(),
+                            input.inputTokens() + delta.outputTokens(), input.cachedInputTokens());
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+        }
+        return usage;
+    }
+    
+    @Override
+    public String getModelName() {
+        return MODEL;
+    }
+    
+    @Override
+    public String getParameterSignature() {
+        return "max_tokens=1000";
     }
     
     @Override
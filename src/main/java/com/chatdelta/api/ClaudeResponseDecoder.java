@@ -0,0 +1,87 @@
+package com.chatdelta.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+// {"content":[{"type":"text","text":"..."}],"stop_reason":"end_turn",
+//  "usage":{"input_tokens":1,"output_tokens":2,"cache_read_input_tokens":0}}
+public class ClaudeResponseDecoder implements ResponseDecoder {
+    @Override
+    public CompletionResult decode(JsonReader reader) throws IOException {
+        String text = null;
+        String stopReason = null;
+        TokenUsage usage = TokenUsage.UNKNOWN;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "error" -> throw new ResponseFormatException("API error: " + ResponseDecoder.readErrorMessage(reader));
+                case "content" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String blockText = readTextBlock(reader);
+                        if (blockText != null) {
+                            text = text == null ? blockText : text.concat(blockText);
+                        }
+                    }
+                    reader.endArray();
+                }
+                case "stop_reason" -> stopReason = ResponseDecoder.readNullableString(reader);
+                case "usage" -> usage = readUsage(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        if (text == null) {
+            throw new ResponseFormatException("No content in response");
+        }
+        return new CompletionResult(text, stopReason, usage);
+    }
+    
+    private static String readTextBlock(JsonReader reader) throws IOException {
+        String text = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("text")) {
+                text = ResponseDecoder.readNullableString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return text;
+    }
+    
+    // input_tokens counts only what came after the last cache breakpoint;
+    // what was read from or written to the cache is reported separately
+    static TokenUsage readUsage(JsonReader reader) throws IOException {
+        int input = 0;
+        int output = 0;
+        int cacheRead = 0;
+        int cacheWrite = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "input_tokens" -> input = reader.nextInt();
+                case "output_tokens" -> output = reader.nextInt();
+                case "cache_read_input_tokens" -> cacheRead = readCount(reader);
+                case "cache_creation_input_tokens" -> cacheWrite = readCount(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        int totalInput = input + cacheRead + cacheWrite;
+        return new TokenUsage(totalInput, output, totalInput + output, cacheRead);
+    }
+    
+    private static int readCount(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.chatdelta.api;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Builds the client for a provider name and wraps it in the decorators
+// enabled through system properties, e.g. -Dchatdelta.cache=true.
+// Order, outermost first: cache -> single-flight -> retry/hedge -> circuit breaker
+// -> admission control -> provider client.
+public final class ClientFactory {
+    private static final Map<String, AdmissionController> ADMISSION = new ConcurrentHashMap<>();
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+    private static volatile ResponseCache sharedCache;
+    private static volatile boolean cacheInitialized;
+    
+    private ClientFactory() {
+    }
+    
+    public static AIClient create(String name) {
+        return create(name, HttpTransport.shared());
+    }
+    
+    public static AIClient create(String name, HttpTransport transport) {
+        AIClient client = switch (name) {
+            case "ChatGPT" -> new OpenAIClient(apiKey(name), transport);
+            case "Gemini" -> new GeminiClient(apiKey(name), null, transport);
+            case "Claude" -> new ClaudeClient(apiKey(name), transport);
+            default -> null;
+        };
+        return client != null ? decorate(name, client) : null;
+    }
+    
+    // The provider's key from the environment, or a placeholder when running
+    // against the local simulator (-Dchatdelta.simulate=true); null if neither.
+    public static String apiKey(String name) {
+        String key = System.getenv(apiKeyVariable(name));
+        if (key == null && Boolean.getBoolean("chatdelta.simulate")) {
+            return "simulated";
+        }
+        return key;
+    }
+    
+    public static String apiKeyVariable(String name) {
+        return switch (name) {
+            case "ChatGPT" -> "CHATGPT_API_KEY";
+            case "Gemini" -> "GEMINI_API_KEY";
+            case "Claude" -> "CLAUDE_API_KEY";
+            default -> throw new IllegalArgumentException("Unknown provider: " + name);
+        };
+    }
+    
+    public static AIClient decorate(String name, AIClient client) {
+        if (!"false".equals(System.getProperty("chatdelta.ratelimit"))) {
+            client = new RateLimitedAIClient(client, admissionController(name));
+        }
+        if (!"false".equals(System.getProperty("chatdelta.breaker"))) {
+            client = new CircuitBreakingAIClient(client, circuitBreaker(name));
+        }
+        if (!"false".equals(System.getProperty("chatdelta.retry"))) {
+            client = new RetryingAIClient(client, RetryPolicy.fromSystemProperties());
+        }
+        if (!"false".equals(System.getProperty("chatdelta.coalesce"))) {
+            client = new CoalescingAIClient(client);
+        }
+        ResponseCache cache = sharedCache();
+        if (cache != null) {
+            client = new CachingAIClient(client, cache);
+        }
+        return client;
+    }
+    
+    // One controller per provider, shared by every client talking to it
+    public static AdmissionController admissionController(String provider) {
+        return ADMISSION.computeIfAbsent(provider,
+            name -> new AdmissionController(RateLimits.fromSystemProperties(name)));
+    }
+    
+    public static CircuitBreaker circuitBreaker(String provider) {
+        return BREAKERS.computeIfAbsent(provider,
+            name -> new CircuitBreaker(name, CircuitBreakerConfig.fromSystemProperties()));
+    }
+    
+    // null if no client for the provider has been created yet
+    public static CircuitBreaker findCircuitBreaker(String provider) {
+        return BREAKERS.get(provider);
+    }
+    
+    public static ResponseCache sharedCache() {
+        if (!cacheInitialized) {
+            synchronized (ClientFactory.class) {
+                if (!cacheInitialized) {
+                    sharedCache = cacheFromSystemProperties();
+                    cacheInitialized = true;
+                }
+            }
+        }
+        return sharedCache;
+    }
+    
+    private static ResponseCache cacheFromSystemProperties() {
+        String dir = System.getProperty("chatdelta.cache.dir");
+        if (!Boolean.getBoolean("chatdelta.cache") && dir == null) {
+            return null;
+        }
+        int maxEntries = Integer.getInteger("chatdelta.cache.maxEntries", 1000);
+        Duration ttl = Duration.ofMinutes(Long.getLong("chatdelta.cache.ttlMinutes", 24 * 60));
+        return new ResponseCache(maxEntries, ttl, dir != null ? Path.of(dir) : null);
+    }
+}
\ No newline at end of file
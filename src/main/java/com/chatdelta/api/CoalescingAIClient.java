@@ -0,0 +1,196 @@
+package com.chatdelta.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Single-flight: identical prompts sent while an earlier call is still running
+// share that call. Each caller gets its own copy of the shared future, so one
+// caller cancelling does not cancel the request for the others; the request
+// itself is cancelled once every caller has given up on it.
+public class CoalescingAIClient implements AIClient {
+    private final AIClient delegate;
+    private final Map<String, Flight<CompletionResult>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, SharedStream> inFlightStreams = new ConcurrentHashMap<>();
+    
+    public CoalescingAIClient(AIClient delegate) {
+        this.delegate = delegate;
+    }
+    
+    @Override
+    public CompletableFuture<String> sendPrompt(String prompt) {
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        boolean[] leader = {false};
+        Flight<CompletionResult> flight = enter(inFlight, prompt, Flight::new, leader);
+        
+        if (leader[0]) {
+            flight.upstream = delegate.sendPromptDetailed(prompt);
+            flight.upstream.whenComplete((result, error) -> {
+                inFlight.remove(prompt, flight);
+                if (error != null) {
+                    flight.shared.completeExceptionally(error);
+                } else {
+                    flight.shared.complete(result);
+                }
+            });
+        }
+        return waiter(inFlight, prompt, flight, null);
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    // Only the same prompt after the same earlier turns shares a stream
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        String key = conversation.key(prompt);
+        boolean[] leader = {false};
+        SharedStream stream = enter(inFlightStreams, key, SharedStream::new, leader);
+        stream.join(listener);
+        
+        if (leader[0]) {
+            stream.upstream = delegate.streamPrompt(conversation, prompt, stream);
+            stream.upstream.whenComplete((text, error) -> {
+                inFlightStreams.remove(key, stream);
+                if (error != null) {
+                    stream.shared.completeExceptionally(error);
+                } else {
+                    stream.shared.complete(text);
+                }
+            });
+        }
+        return waiter(inFlightStreams, key, stream, listener);
+    }
+    
+    private static <F extends Flight<?>> F enter(Map<String, F> flights, String prompt,
+                                                 Supplier<F> factory, boolean[] leader) {
+        return flights.compute(prompt, (p, existing) -> {
+            F flight = existing;
+            if (flight == null) {
+                flight = factory.get();
+                leader[0] = true;
+            }
+            flight.waiters++;
+            return flight;
+        });
+    }
+    
+    // Hands the caller its own copy; when the last caller abandons a flight that
+    // is still running, the flight leaves the map and its upstream call is cancelled.
+    private static <T, F extends Flight<T>> CompletableFuture<T> waiter(Map<String, F> flights, String prompt,
+                                                                        F flight, StreamListener listener) {
+        CompletableFuture<T> copy = flight.shared.copy();
+        copy.whenComplete((value, error) -> {
+            if (!Futures.isAbandoned(error) || flight.shared.isDone()) {
+                return;
+            }
+            if (listener != null) {
+                ((SharedStream) flight).leave(listener);
+            }
+            boolean[] last = {false};
+            flights.computeIfPresent(prompt, (p, current) -> {
+                if (current != flight || --current.waiters > 0) {
+                    return current;
+                }
+                last[0] = true;
+                return null;
+            });
+            if (last[0]) {
+                flight.upstream.cancel(true);
+            }
+        });
+        return copy;
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size() + inFlightStreams.size();
+    }
+    
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+    
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+    
+    @Override
+    public String getParameterSignature() {
+        return delegate.getParameterSignature();
+    }
+    
+    @Override
+    public void endConversation(Conversation conversation) {
+        delegate.endConversation(conversation);
+    }
+    
+    // waiters is only touched inside the owning map's compute functions
+    private static class Flight<T> {
+        final CompletableFuture<T> shared = new CompletableFuture<>();
+        volatile CompletableFuture<T> upstream;
+        int waiters;
+    }
+    
+    // Fans one stream out to every caller; late joiners first receive the text
+    // streamed so far as a single catch-up chunk.
+    private static final class SharedStream extends Flight<String> implements StreamListener {
+        private final StringBuilder text = new StringBuilder();
+        private final List<StreamListener> listeners = new ArrayList<>();
+        private StreamStats stats;
+        private Throwable error;
+        
+        synchronized void join(StreamListener listener) {
+            if (text.length() > 0) {
+                listener.onChunk(text.toString());
+            }
+            if (stats != null) {
+                listener.onComplete(stats);
+            } else if (error != null) {
+                listener.onError(error);
+            } else {
+                listeners.add(listener);
+            }
+        }
+        
+        synchronized void leave(StreamListener listener) {
+            listeners.remove(listener);
+        }
+        
+        @Override
+        public synchronized void onChunk(String chunk) {
+            text.append(chunk);
+            for (StreamListener listener : listeners) {
+                listener.onChunk(chunk);
+            }
+        }
+        
+        @Override
+        public synchronized void onComplete(StreamStats result) {
+            stats = result;
+            for (StreamListener listener : listeners) {
+                listener.onComplete(result);
+            }
+            listeners.clear();
+        }
+        
+        @Override
+        public synchronized void onError(Throwable failure) {
+            error = failure;
+            for (StreamListener listener : listeners) {
+                listener.onError(failure);
+            }
+            listeners.clear();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.chatdelta.api;
+
+public record CompletionResult(String text, String finishReason, TokenUsage usage) {
+    public static CompletionResult ofText(String text) {
+        return new CompletionResult(text, null, TokenUsage.UNKNOWN);
+    }
+}
\ No newline at end of file
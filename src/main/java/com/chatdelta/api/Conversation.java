@@ -0,0 +1,94 @@
+package com.chatdelta.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The finished turns of one chat session, oldest first. Immutable: each turn
+// makes a new Conversation with the same id, so a request being built never
+// sees the list change under it. Clients send the turns in this order ahead
+// of the new prompt, which keeps every request's prefix identical to the
+// whole of the previous request and lets providers serve it from their
+// prompt caches.
+public final class Conversation {
+    private static final AtomicLong IDS = new AtomicLong();
+    public static final Conversation EMPTY = new Conversation(0, List.of(), 0);
+    
+    public record Turn(String prompt, String reply) {
+    }
+    
+    private final long id;
+    private final List<Turn> turns;
+    private final long characterCount;
+    
+    private Conversation(long id, List<Turn> turns, long characterCount) {
+        this.id = id;
+        this.turns = turns;
+        this.characterCount = characterCount;
+    }
+    
+    public static Conversation start() {
+        return new Conversation(IDS.incrementAndGet(), List.of(), 0);
+    }
+    
+    public Conversation then(String prompt, String reply) {
+        List<Turn> next = new ArrayList<>(turns.size() + 1);
+        next.addAll(turns);
+        next.add(new Turn(prompt, reply));
+        return new Conversation(id, Collections.unmodifiableList(next),
+            characterCount + prompt.length() + reply.length());
+    }
+    
+    // Drops the oldest turns. Cutting many at once means the prefix, and with
+    // it the provider's cache, changes rarely rather than on every turn.
+    public Conversation withoutOldest(int count) {
+        List<Turn> kept = turns.subList(Math.min(count, turns.size()), turns.size());
+        long characters = 0;
+        for (Turn turn : kept) {
+            characters += turn.prompt().length() + turn.reply().length();
+        }
+        return new Conversation(id, List.copyOf(kept), characters);
+    }
+    
+    // Same for every Conversation descended from one start()
+    public long id() {
+        return id;
+    }
+    
+    public List<Turn> turns() {
+        return turns;
+    }
+    
+    public boolean isEmpty() {
+        return turns.isEmpty();
+    }
+    
+    public long characterCount() {
+        return characterCount;
+    }
+    
+    // Identifies the prompt in this context, for caching and coalescing;
+    // with no earlier turns it is the prompt itself
+    public String key(String prompt) {
+        if (turns.isEmpty()) {
+            return prompt;
+        }
+        StringBuilder key = new StringBuilder();
+        for (Turn turn : turns) {
+            key.append(turn.prompt()).append('\0').append(turn.reply()).append('\0');
+        }
+        return key.append(prompt).toString();
+    }
+    
+    // The earlier turns written out ahead of the prompt, for clients that can
+    // only send a single message
+    public String transcript(String prompt) {
+        StringBuilder text = new StringBuilder();
+        for (Turn turn : turns) {
+            text.append("User: ").append(turn.prompt()).append("\n\n")
+                .append("Assistant: ").append(turn.reply()).append("\n\n");
+        }
+        return text.append("User: ").append(prompt).toString();
+    }
+}
\ No newline at end of file
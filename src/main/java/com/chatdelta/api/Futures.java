@@ -0,0 +1,49 @@
+package com.chatdelta.api;
+
+import okhttp3.Call;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// Cancelling a dependent CompletableFuture does not reach the stage it was
+// derived from. These helpers carry cancellation (and deadline expiry, which
+// orTimeout reports as a TimeoutException) back down to the OkHttp Call.
+public final class Futures {
+    private Futures() {
+    }
+    
+    // thenApply that passes cancellation of the result back to the source
+    public static <T, U> CompletableFuture<U> map(CompletableFuture<T> source, Function<? super T, ? extends U> fn) {
+        return propagateCancel(source.thenApply(fn), source);
+    }
+    
+    public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> derived, Future<?> source) {
+        derived.whenComplete((value, error) -> {
+            if (isAbandoned(error)) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+    
+    // Cancels the HTTP call when the caller gives up on its future
+    static <T> CompletableFuture<T> bind(Call call, CompletableFuture<T> future) {
+        future.whenComplete((value, error) -> {
+            if (isAbandoned(error)) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+    
+    // True when the caller cancelled the future or its deadline passed, as
+    // opposed to the work itself failing.
+    public static boolean isAbandoned(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof CancellationException || cause instanceof TimeoutException;
+    }
+}
\ No newline at end of file
@@ -1,67 +1,94 @@
 package com.chatdelta.api;
 
-import com.google.gson.Gson;
+import com.chatdelta.metrics.MetricsRegistry;
+import com.chatdelta.metrics.ProviderMetrics;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import okhttp3.*;
 import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GeminiClient implements AIClient {
     private static final String DEFAULT_MODEL = "gemini-2.5-flash";
-    private static final String API_BASE_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
+    private static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com/";
+    private static final ResponseDecoder DECODER = new GeminiResponseDecoder();
+    private static final RequestTemplate TEMPLATE = RequestTemplate.of("{\"contents\":[{\"parts\":[{\"text\":", "}]}]}");
+    private static final RequestTemplate OBJECT = RequestTemplate.of("", "");
+    // Gemini won't cache less than its minimum (1,024 tokens for 2.5 Flash);
+    // at ~4 characters a token this stays clear of it
+    private static final long MIN_CACHED_CHARACTERS = 8_000;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+    // A cache this close to expiring isn't named in a request any more
+    private static final Duration CACHE_EXPIRY_MARGIN = Duration.ofSeconds(30);
+    // Conversations that never reach /new would otherwise keep entries forever
+    private static final int MAX_CACHED_CONVERSATIONS = 32;
+    private static final Headers HEADERS = Headers.of("Accept", "application/json");
+    private static final Headers STREAM_HEADERS = Headers.of("Accept", "text/event-stream");
     private final String modelName;
     private final OkHttpClient client;
+    private final ProviderMetrics metrics;
+    private final HttpUrl generateUrl;
+    private final HttpUrl streamUrl;
+    private final HttpUrl apiRoot;
     private final String apiKey;
-    private final Gson gson;
+    private final Map<Long, ContextCache> contextCaches = new ConcurrentHashMap<>();
     
     public GeminiClient(String apiKey) {
         this(apiKey, DEFAULT_MODEL);
     }
     
     public GeminiClient(String apiKey, String modelName) {
-        this.apiKey = apiKey;
+        this(apiKey, modelName, HttpTransport.shared());
+    }
+    
+    public GeminiClient(String apiKey, String modelName, HttpTransport transport) {
+        this(apiKey, modelName, transport, TimeoutProfile.GEMINI);
+    }
+    
+    public GeminiClient(String apiKey, String modelName, HttpTransport transport, TimeoutProfile timeouts) {
+        this(apiKey, modelName, transport, timeouts, System.getProperty("chatdelta.gemini.baseUrl", DEFAULT_BASE_URL));
+    }
+    
+    // baseUrl replaces https://generativelanguage.googleapis.com/, e.g. to point at a local simulator
+    public GeminiClient(String apiKey, String modelName, HttpTransport transport, TimeoutProfile timeouts, String baseUrl) {
         this.modelName = modelName != null ? modelName : DEFAULT_MODEL;
-        this.gson = new Gson();
-        this.client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
+        this.apiKey = apiKey;
+        this.apiRoot = HttpUrl.get(baseUrl).newBuilder().addPathSegments("v1beta").build();
+        HttpUrl models = apiRoot.newBuilder().addPathSegment("models").build();
+        this.generateUrl = models.newBuilder()
+            .addPathSegment(this.modelName + ":generateContent")
+            .addQueryParameter("key", apiKey)
+            .build();
+        this.streamUrl = models.newBuilder()
+            .addPathSegment(this.modelName + ":streamGenerateContent")
+            .addQueryParameter("alt", "sse")
+            .addQueryParameter("key", apiKey)
             .build();
+        this.client = transport.clientFor(timeouts);
+        this.metrics = MetricsRegistry.shared().forProvider(getProviderName(), this.modelName);
     }
     
     @Override
     public CompletableFuture<String> sendPrompt(String prompt) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        
-        JsonObject part = new JsonObject();
-        part.addProperty("text", prompt);
-        
-        JsonArray parts = new JsonArray();
-        parts.add(part);
-        
-        JsonObject content = new JsonObject();
-        content.add("parts", parts);
-        
-        JsonArray contents = new JsonArray();
-        contents.add(content);
-        
-        JsonObject requestBody = new JsonObject();
-        requestBody.add("contents", contents);
-        
-        String urlWithKey = API_BASE_URL + modelName + ":generateContent?key=" + apiKey;
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        CompletableFuture<CompletionResult> future = new CompletableFuture<>();
+        Request request = buildRequest(prompt, false);
         
-        Request request = new Request.Builder()
-            .url(urlWithKey)
-            .header("Content-Type", "application/json")
-            .post(RequestBody.create(
-                gson.toJson(requestBody),
-                MediaType.parse("application/json")
-            ))
-            .build();
-            
-        client.newCall(request).enqueue(new Callback() {
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 future.completeExceptionally(e);
@@ -69,53 +96,267 @@ public class GeminiClient implements AIClient {
             
             @Override
             public void onResponse(Call call, Response response) throws IOException {
-                try {
-                    String responseBody = response.body().string();
-                    
+                try (ResponseBody body = response.body()) {
                     if (!response.isSuccessful()) {
-                        System.err.println("Gemini API error response: " + responseBody);
+                        // Error bodies are small; keep the full text for diagnosis
+                        String responseBody = body.string();
                         future.completeExceptionally(
-                            new IOException("Gemini API request failed: " + response.code() + " - " + responseBody)
+                            ApiException.from(response, "Gemini API request failed: " + response.code() + " - " + responseBody)
                         );
                         return;
                     }
                     
-                    JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-                    
-                    // Check if there's an error in the response
-                    if (jsonResponse.has("error")) {
-                        JsonObject error = jsonResponse.getAsJsonObject("error");
-                        String errorMessage = error.has("message") ? error.get("message").getAsString() : "Unknown error";
-                        future.completeExceptionally(new IOException("Gemini API error: " + errorMessage));
+                    future.complete(DECODER.decode(body));
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                } catch (Exception e) {
+                    future.completeExceptionally(new ResponseFormatException("Error parsing Gemini response: " + e.getMessage(), e));
+                }
+            }
+        });
+        
+        return CallMetrics.track(metrics, Futures.bind(call, future));
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        Request request = buildRequest(conversation, prompt, true);
+        cacheContext(conversation);
+        return CallMetrics.track(metrics, StreamingCall.enqueue(client, request,
+            GeminiClient::extractStreamChunk, GeminiClient::extractStreamUsage, listener));
+    }
+    
+    // Package-private for the encoding benchmarks
+    Request buildRequest(String prompt, boolean stream) {
+        return new Request.Builder()
+            .url(stream ? streamUrl : generateUrl)
+            .headers(stream ? STREAM_HEADERS : HEADERS)
+            .post(TEMPLATE.encode(prompt))
+            .tag(ProviderMetrics.class, metrics)
+            .build();
+    }
+    
+    // Earlier turns already stored in a cachedContents resource are sent by
+    // name; the rest follow as contents, oldest first, so the request also
+    // keeps the stable prefix Gemini's implicit caching looks for.
+    Request buildRequest(Conversation conversation, String prompt, boolean stream) {
+        if (conversation.isEmpty()) {
+            return buildRequest(prompt, stream);
+        }
+        ContextCache cache = usableCache(conversation);
+        List<Conversation.Turn> turns = conversation.turns();
+        int first = cache != null ? cache.turns() : 0;
+        return new Request.Builder()
+            .url(stream ? streamUrl : generateUrl)
+            .headers(stream ? STREAM_HEADERS : HEADERS)
+            .post(OBJECT.encode(json -> {
+                json.beginObject();
+                if (cache != null) {
+                    json.name("cachedContent").value(cache.name());
+                }
+                json.name("contents").beginArray();
+                writeTurns(json, turns.subList(first, turns.size()));
+                content(json, "user", prompt);
+                json.endArray();
+                json.endObject();
+            }))
+            .tag(ProviderMetrics.class, metrics)
+            .build();
+    }
+    
+    private static void writeTurns(JsonWriter json, List<Conversation.Turn> turns) throws IOException {
+        for (Conversation.Turn turn : turns) {
+            content(json, "user", turn.prompt());
+            content(json, "model", turn.reply());
+        }
+    }
+    
+    private static void content(JsonWriter json, String role, String text) throws IOException {
+        json.beginObject()
+            .name("role").value(role)
+            .name("parts").beginArray().beginObject().name("text").value(text).endObject().endArray()
+            .endObject();
+    }
+    
+    // The conversation's cache if it holds a prefix of these turns and has time left
+    private ContextCache usableCache(Conversation conversation) {
+        ContextCache cache = contextCaches.get(conversation.id());
+        if (cache == null || cache.name() == null || cache.turns() > conversation.turns().size()
+                || conversation.turns().get(cache.turns() - 1) != cache.lastTurn()
+                || System.nanoTime() > cache.expiresAtNanos()) {
+            return null;
+        }
+        return cache;
+    }
+    
+    // Stores the conversation so far as cached contents for the next turns to
+    // name. A new cache is made each time the context doubles, so a long
+    // session creates only a logarithmic number of them; failures (e.g. too
+    // few tokens) also wait for the context to double before trying again.
+    private void cacheContext(Conversation conversation) {
+        long characters = conversation.characterCount();
+        if (conversation.isEmpty() || characters < MIN_CACHED_CHARACTERS) {
+            return;
+        }
+        List<Conversation.Turn> turns = conversation.turns();
+        Conversation.Turn lastTurn = turns.get(turns.size() - 1);
+        ContextCache previous = contextCaches.get(conversation.id());
+        boolean current = previous != null && usableCache(conversation) == previous;
+        if (previous != null && (previous.name() == null || current) && characters < 2 * previous.characters()) {
+            return;
+        }
+        if (previous == null && !roomForConversation()) {
+            return;
+        }
+        // Claims this size before the call, so concurrent turns don't start
+        // another; it expires with the cache it stands for, failed or not
+        ContextCache pending = new ContextCache(null, turns.size(), characters, lastTurn,
+            System.nanoTime() + CACHE_TTL.toNanos());
+        if (previous == null ? contextCaches.putIfAbsent(conversation.id(), pending) != null
+                : !contextCaches.replace(conversation.id(), previous, pending)) {
+            return;
+        }
+        
+        Request request = new Request.Builder()
+            .url(apiRoot.newBuilder().addPathSegment("cachedContents").addQueryParameter("key", apiKey).build())
+            .headers(HEADERS)
+            .post(OBJECT.encode(json -> {
+                json.beginObject();
+                json.name("model").value("models/" + modelName);
+                json.name("contents").beginArray();
+                writeTurns(json, turns);
+                json.endArray();
+                json.name("ttl").value(CACHE_TTL.toSeconds() + "s");
+                json.endObject();
+            }))
+            .build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                // The pending entry stays as a marker of the failed size
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
                         return;
                     }
-                    
-                    // Check if candidates array exists and is not empty
-                    if (!jsonResponse.has("candidates") || jsonResponse.getAsJsonArray("candidates").size() == 0) {
-                        future.completeExceptionally(new IOException("No response candidates from Gemini API"));
-                        return;
+                    JsonObject created = JsonParser.parseString(body.string()).getAsJsonObject();
+                    long expires = System.nanoTime() + CACHE_TTL.minus(CACHE_EXPIRY_MARGIN).toNanos();
+                    ContextCache cache = new ContextCache(created.get("name").getAsString(),
+                        turns.size(), characters, lastTurn, expires);
+                    if (!contextCaches.replace(conversation.id(), pending, cache)) {
+                        // The conversation ended while the cache was being made
+                        deleteCache(cache.name());
+                    } else if (previous != null && previous.name() != null) {
+                        deleteCache(previous.name());
                     }
-                    
-                    String content = jsonResponse
-                        .getAsJsonArray("candidates")
-                        .get(0).getAsJsonObject()
-                        .getAsJsonObject("content")
-                        .getAsJsonArray("parts")
-                        .get(0).getAsJsonObject()
-                        .get("text").getAsString();
-                    
-                    future.complete(content);
                 } catch (Exception e) {
-                    future.completeExceptionally(new IOException("Error parsing Gemini response: " + e.getMessage(), e));
+                    // Left as a failed size, like a transport failure
                 }
             }
         });
-        
-        return future;
+    }
+    
+    // Drops expired entries; the server has already discarded their caches
+    private boolean roomForConversation() {
+        if (contextCaches.size() < MAX_CACHED_CONVERSATIONS) {
+            return true;
+        }
+        long now = System.nanoTime();
+        contextCaches.values().removeIf(cache -> now > cache.expiresAtNanos());
+        return contextCaches.size() < MAX_CACHED_CONVERSATIONS;
+    }
+    
+    @Override
+    public void endConversation(Conversation conversation) {
+        ContextCache cache = contextCaches.remove(conversation.id());
+        if (cache != null && cache.name() != null) {
+            deleteCache(cache.name());
+        }
+    }
+    
+    // Superseded caches would otherwise be billed for storage until their TTL runs out
+    private void deleteCache(String name) {
+        Request request = new Request.Builder()
+            .url(apiRoot.newBuilder().addPathSegments(name).addQueryParameter("key", apiKey).build())
+            .headers(HEADERS)
+            .delete()
+            .build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+            }
+        });
+    }
+    
+    // data: {"candidates":[{"content":{"parts":[{"text":"..."}]}}]}
+    static String extractStreamChunk(String event, String data) throws IOException {
+        JsonObject json = JsonParser.parseString(data).getAsJsonObject();
+        if (json.has("error")) {
+            JsonObject error = json.getAsJsonObject("error");
+            String errorMessage = error.has("message") ? error.get("message").getAsString() : "Unknown error";
+            throw new IOException("Gemini API error: " + errorMessage);
+        }
+        JsonArray candidates = json.getAsJsonArray("candidates");
+        if (candidates == null || candidates.size() == 0) {
+            return null;
+        }
+        JsonObject content = candidates.get(0).getAsJsonObject().getAsJsonObject("content");
+        if (content == null || !content.has("parts")) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        for (JsonElement part : content.getAsJsonArray("parts")) {
+            JsonObject partObject = part.getAsJsonObject();
+            if (partObject.has("text")) {
+                text.append(partObject.get("text").getAsString());
+            }
+        }
+        return text.toString();
+    }
+    
+    // Every chunk may carry usageMetadata; the last one has the final counts
+    static TokenUsage extractStreamUsage(String event, String data, TokenUsage usage) throws IOException {
+        if (!data.contains("\"usageMetadata\"")) {
+            return usage;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(data))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("usageMetadata")) {
+                    usage = GeminiResponseDecoder.readUsage(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+        return usage;
+    }
+    
+    @Override
+    public String getModelName() {
+        return modelName;
     }
     
     @Override
     public String getProviderName() {
         return "Gemini (2.5 Flash)";
     }
-}
\ No newline at end of file
+    
+    // name is null while the cache is being created, or after creating it failed
+    private record ContextCache(String name, int turns, long characters, Conversation.Turn lastTurn,
+                                long expiresAtNanos) {
+    }
+}
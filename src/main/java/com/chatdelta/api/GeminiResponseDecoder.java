@@ -0,0 +1,106 @@
+package com.chatdelta.api;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+// {"candidates":[{"content":{"parts":[{"text":"..."}]},"finishReason":"STOP"}],
+//  "usageMetadata":{"promptTokenCount":1,"candidatesTokenCount":2,"totalTokenCount":3,
+//                   "cachedContentTokenCount":0}}
+public class GeminiResponseDecoder implements ResponseDecoder {
+    @Override
+    public CompletionResult decode(JsonReader reader) throws IOException {
+        String text = null;
+        String finishReason = null;
+        boolean sawCandidate = false;
+        TokenUsage usage = TokenUsage.UNKNOWN;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "error" -> throw new ResponseFormatException("Gemini API error: " + ResponseDecoder.readErrorMessage(reader));
+                case "candidates" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (sawCandidate) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        sawCandidate = true;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "content" -> text = readParts(reader);
+                                case "finishReason" -> finishReason = ResponseDecoder.readNullableString(reader);
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                }
+                case "usageMetadata" -> usage = readUsage(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        if (!sawCandidate) {
+            throw new ResponseFormatException("No response candidates from Gemini API");
+        }
+        if (text == null) {
+            throw new ResponseFormatException("No content in Gemini response (finish reason: " + finishReason + ")");
+        }
+        return new CompletionResult(text, finishReason, usage);
+    }
+    
+    // Single-part answers are the common case, so the part string is kept as-is
+    // and only copied when a second part has to be appended to it.
+    private static String readParts(JsonReader reader) throws IOException {
+        String text = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("parts")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("text")) {
+                        String part = ResponseDecoder.readNullableString(reader);
+                        if (part != null) {
+                            text = text == null ? part : text.concat(part);
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return text;
+    }
+    
+    static TokenUsage readUsage(JsonReader reader) throws IOException {
+        int input = 0;
+        int output = 0;
+        int total = 0;
+        int cached = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "promptTokenCount" -> input = reader.nextInt();
+                case "candidatesTokenCount" -> output = reader.nextInt();
+                case "totalTokenCount" -> total = reader.nextInt();
+                case "cachedContentTokenCount" -> cached = reader.nextInt();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TokenUsage(input, output, total, cached);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.chatdelta.api;
+
+import com.chatdelta.metrics.ProviderMetrics;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
+// Connection-level timings for calls tagged with their ProviderMetrics.
+// Connect time is only recorded when a new connection is opened; pooled
+// connections skip straight to the request.
+final class HttpMetricsListener extends EventListener {
+    static final EventListener.Factory FACTORY = call -> {
+        ProviderMetrics metrics = call.request().tag(ProviderMetrics.class);
+        return metrics == null ? EventListener.NONE : new HttpMetricsListener(metrics);
+    };
+    
+    private final ProviderMetrics metrics;
+    private long callStart;
+    private long connectStart;
+    private boolean firstByteSeen;
+    
+    private HttpMetricsListener(ProviderMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+    
+    @Override
+    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+    
+    @Override
+    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+        metrics.connect().recordNanos(System.nanoTime() - connectStart);
+    }
+    
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        metrics.recordRequestBytes(byteCount);
+    }
+    
+    @Override
+    public void responseHeadersStart(Call call) {
+        if (!firstByteSeen) {
+            firstByteSeen = true;
+            metrics.timeToFirstByte().recordNanos(System.nanoTime() - callStart);
+        }
+    }
+    
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        metrics.recordResponseBytes(byteCount);
+    }
+    
+    @Override
+    public void callEnd(Call call) {
+        metrics.total().recordNanos(System.nanoTime() - callStart);
+    }
+    
+    // Timeouts, resets and cancellations are the tail; leaving them out would flatter it
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        metrics.total().recordNanos(System.nanoTime() - callStart);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.chatdelta.api;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// One connection pool and one dispatcher shared by every AIClient, so fan-out
+// across providers reuses TLS connections instead of opening a pool per client.
+public final class HttpTransport {
+    private static volatile HttpTransport shared;
+    
+    private final OkHttpClient baseClient;
+    private final Map<TimeoutProfile, OkHttpClient> profileClients = new ConcurrentHashMap<>();
+    
+    private HttpTransport(Builder builder) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(builder.maxRequests);
+        dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+        
+        OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(
+                builder.maxIdleConnections,
+                builder.keepAlive.toMillis(),
+                TimeUnit.MILLISECONDS
+            ))
+            .dispatcher(dispatcher)
+            .eventListenerFactory(HttpMetricsListener.FACTORY)
+            .retryOnConnectionFailure(true);
+        
+        if (builder.preferHttp2) {
+            clientBuilder.protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            clientBuilder.protocols(List.of(Protocol.HTTP_1_1));
+        }
+        
+        this.baseClient = clientBuilder.build();
+    }
+    
+    public static HttpTransport shared() {
+        HttpTransport transport = shared;
+        if (transport == null) {
+            synchronized (HttpTransport.class) {
+                transport = shared;
+                if (transport == null) {
+                    transport = builder().fromSystemProperties().build();
+                    shared = transport;
+                }
+            }
+        }
+        return transport;
+    }
+    
+    public static synchronized void setShared(HttpTransport transport) {
+        shared = transport;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    // Clients derived with newBuilder() share the pool and dispatcher of the base client.
+    public OkHttpClient clientFor(TimeoutProfile profile) {
+        return profileClients.computeIfAbsent(profile, p -> baseClient.newBuilder()
+            .connectTimeout(p.connect())
+            .readTimeout(p.read())
+            .writeTimeout(p.write())
+            .callTimeout(p.call())
+            .build());
+    }
+    
+    public int connectionCount() {
+        return baseClient.connectionPool().connectionCount();
+    }
+    
+    public int idleConnectionCount() {
+        return baseClient.connectionPool().idleConnectionCount();
+    }
+    
+    public void shutdown() {
+        baseClient.dispatcher().cancelAll();
+        baseClient.dispatcher().executorService().shutdown();
+        baseClient.connectionPool().evictAll();
+    }
+    
+    public static final class Builder {
+        private int maxIdleConnections = 16;
+        private Duration keepAlive = Duration.ofMinutes(5);
+        private int maxRequests = 256;
+        private int maxRequestsPerHost = 32;
+        private boolean preferHttp2 = true;
+        
+        private Builder() {
+        }
+        
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+        
+        public Builder keepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+        
+        public Builder maxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+        
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+        
+        public Builder preferHttp2(boolean preferHttp2) {
+            this.preferHttp2 = preferHttp2;
+            return this;
+        }
+        
+        // e.g. -Dchatdelta.http.maxRequestsPerHost=64 -Dchatdelta.http.keepAliveSeconds=120
+        public Builder fromSystemProperties() {
+            maxIdleConnections = Integer.getInteger("chatdelta.http.maxIdleConnections", maxIdleConnections);
+            keepAlive = Duration.ofSeconds(Long.getLong("chatdelta.http.keepAliveSeconds", keepAlive.getSeconds()));
+            maxRequests = Integer.getInteger("chatdelta.http.maxRequests", maxRequests);
+            maxRequestsPerHost = Integer.getInteger("chatdelta.http.maxRequestsPerHost", maxRequestsPerHost);
+            preferHttp2 = Boolean.parseBoolean(
+                System.getProperty("chatdelta.http.preferHttp2", String.valueOf(preferHttp2)));
+            return this;
+        }
+        
+        public HttpTransport build() {
+            if (maxIdleConnections < 0 || maxRequests < 1 || maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("Invalid transport limits");
+            }
+            return new HttpTransport(this);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.chatdelta.api;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+// A request body that was encoded once into an okio Buffer. Writing it hands
+// over shared segments instead of copying bytes, so retries stay cheap.
+public final class JsonRequestBody extends RequestBody {
+    public static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    
+    private final Buffer buffer;
+    
+    JsonRequestBody(Buffer buffer) {
+        this.buffer = buffer;
+    }
+    
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+    
+    @Override
+    public long contentLength() {
+        return buffer.size();
+    }
+    
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.write(buffer.copy(), buffer.size());
+    }
+    
+    public String utf8() {
+        return buffer.snapshot().utf8();
+    }
+}
\ No newline at end of file
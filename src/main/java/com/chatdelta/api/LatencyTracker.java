@@ -0,0 +1,38 @@
+package com.chatdelta.api;
+
+import java.util.Arrays;
+
+// Sliding window of the most recent successful call latencies.
+public class LatencyTracker {
+    private final long[] samples;
+    private int next;
+    private int count;
+    
+    public LatencyTracker(int window) {
+        this.samples = new long[window];
+    }
+    
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+    
+    public synchronized int getCount() {
+        return count;
+    }
+    
+    // Returns -1 until there are enough samples for the estimate to mean anything
+    public long percentileNanos(double percentile, int minSamples) {
+        long[] copy;
+        synchronized (this) {
+            if (count < minSamples) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, index))];
+    }
+}
\ No newline at end of file
@@ -1,58 +1,66 @@
 package com.chatdelta.api;
 
-import com.google.gson.Gson;
+import com.chatdelta.metrics.MetricsRegistry;
+import com.chatdelta.metrics.ProviderMetrics;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import okhttp3.*;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 public class OpenAIClient implements AIClient {
-    private static final String API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String DEFAULT_BASE_URL = "https://api.openai.com/";
     private static final String MODEL = "gpt-4o";
+    private static final ResponseDecoder DECODER = new OpenAIResponseDecoder();
+    private static final RequestTemplate TEMPLATE = requestTemplate(false);
+    private static final RequestTemplate STREAM_TEMPLATE = requestTemplate(true);
+    private static final RequestTemplate CONVERSATION_TEMPLATE = conversationTemplate(false);
+    private static final RequestTemplate STREAM_CONVERSATION_TEMPLATE = conversationTemplate(true);
     private final OkHttpClient client;
-    private final String apiKey;
-    private final Gson gson;
+    private final HttpUrl url;
+    private final ProviderMetrics metrics;
+    private final Headers headers;
+    private final Headers streamHeaders;
     
     public OpenAIClient(String apiKey) {
-        this.apiKey = apiKey;
-        this.gson = new Gson();
-        this.client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+        this(apiKey, HttpTransport.shared());
+    }
+    
+    public OpenAIClient(String apiKey, HttpTransport transport) {
+        this(apiKey, transport, TimeoutProfile.OPENAI);
+    }
+    
+    public OpenAIClient(String apiKey, HttpTransport transport, TimeoutProfile timeouts) {
+        this(apiKey, transport, timeouts, System.getProperty("chatdelta.openai.baseUrl", DEFAULT_BASE_URL));
+    }
+    
+    // baseUrl replaces https://api.openai.com/, e.g. to point at a local simulator
+    public OpenAIClient(String apiKey, HttpTransport transport, TimeoutProfile timeouts, String baseUrl) {
+        this.url = HttpUrl.get(baseUrl).newBuilder().addPathSegments("v1/chat/completions").build();
+        this.headers = requestHeaders(apiKey, false);
+        this.streamHeaders = requestHeaders(apiKey, true);
+        this.client = transport.clientFor(timeouts);
+        this.metrics = MetricsRegistry.shared().forProvider(getProviderName(), MODEL);
     }
     
     @Override
     public CompletableFuture<String> sendPrompt(String prompt) {
-        CompletableFuture<String> future = new CompletableFuture<>();
-        
-        JsonObject message = new JsonObject();
-        message.addProperty("role", "user");
-        message.addProperty("content", prompt);
-        
-        JsonArray messages = new JsonArray();
-        messages.add(message);
-        
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("model", MODEL);
-        requestBody.add("messages", messages);
-        requestBody.addProperty("temperature", 0.7);
-        requestBody.addProperty("max_tokens", 1000);
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        CompletableFuture<CompletionResult> future = new CompletableFuture<>();
+        Request request = buildRequest(prompt, false);
         
-        Request request = new Request.Builder()
-            .url(API_URL)
-            .header("Authorization", "Bearer " + apiKey)
-            .header("Content-Type", "application/json")
-            .post(RequestBody.create(
-                gson.toJson(requestBody),
-                MediaType.parse("application/json")
-            ))
-            .build();
-            
-        client.newCall(request).enqueue(new Callback() {
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 future.completeExceptionally(e);
@@ -60,31 +68,144 @@ public class OpenAIClient implements AIClient {
             
             @Override
             public void onResponse(Call call, Response response) throws IOException {
-                try {
+                try (ResponseBody body = response.body()) {
                     if (!response.isSuccessful()) {
                         future.completeExceptionally(
-                            new IOException("API request failed: " + response.code())
+                            ApiException.from(response, "API request failed: " + response.code())
                         );
                         return;
                     }
                     
-                    String responseBody = response.body().string();
-                    JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-                    
-                    String content = jsonResponse
-                        .getAsJsonArray("choices")
-                        .get(0).getAsJsonObject()
-                        .getAsJsonObject("message")
-                        .get("content").getAsString();
-                    
-                    future.complete(content);
+                    future.complete(DECODER.decode(body));
                 } catch (Exception e) {
                     future.completeExceptionally(e);
                 }
             }
         });
         
-        return future;
+        return CallMetrics.track(metrics, Futures.bind(call, future));
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        return CallMetrics.track(metrics, StreamingCall.enqueue(client, buildRequest(conversation, prompt, true),
+            OpenAIClient::extractStreamChunk, OpenAIClient::extractStreamUsage, listener));
+    }
+    
+    // Streams end with a usage chunk only when asked for one
+    private static RequestTemplate requestTemplate(boolean stream) {
+        return RequestTemplate.of(
+            settings(stream) + ",\"messages\":[{\"role\":\"user\",\"content\":",
+            "}]}"
+        );
+    }
+    
+    private static RequestTemplate conversationTemplate(boolean stream) {
+        return RequestTemplate.of(settings(stream) + ",\"messages\":", "}");
+    }
+    
+    private static String settings(boolean stream) {
+        return "{\"model\":" + RequestTemplate.quote(MODEL)
+            + ",\"temperature\":0.7,\"max_tokens\":1000"
+            + (stream ? ",\"stream\":true,\"stream_options\":{\"include_usage\":true}" : "");
+    }
+    
+    private static Headers requestHeaders(String apiKey, boolean stream) {
+        return new Headers.Builder()
+            .add("Authorization", "Bearer " + apiKey)
+            .add("Accept", stream ? "text/event-stream" : "application/json")
+            .build();
+    }
+    
+    // Package-private for the encoding benchmarks
+    Request buildRequest(String prompt, boolean stream) {
+        return new Request.Builder()
+            .url(url)
+            .headers(stream ? streamHeaders : headers)
+            .post((stream ? STREAM_TEMPLATE : TEMPLATE).encode(prompt))
+            .tag(ProviderMetrics.class, metrics)
+            .build();
+    }
+    
+    // Prompt caching is automatic for a prefix the previous request also
+    // began with: the settings, then the turns oldest first, then the prompt
+    Request buildRequest(Conversation conversation, String prompt, boolean stream) {
+        if (conversation.isEmpty()) {
+            return buildRequest(prompt, stream);
+        }
+        RequestTemplate template = stream ? STREAM_CONVERSATION_TEMPLATE : CONVERSATION_TEMPLATE;
+        return new Request.Builder()
+            .url(url)
+            .headers(stream ? streamHeaders : headers)
+            .post(template.encode(json -> {
+                json.beginArray();
+                for (Conversation.Turn turn : conversation.turns()) {
+                    message(json, "user", turn.prompt());
+                    message(json, "assistant", turn.reply());
+                }
+                message(json, "user", prompt);
+                json.endArray();
+            }))
+            .tag(ProviderMetrics.class, metrics)
+            .build();
+    }
+    
+    private static void message(JsonWriter json, String role, String content) throws IOException {
+        json.beginObject().name("role").value(role).name("content").value(content).endObject();
+    }
+    
+    // data: {"choices":[{"delta":{"content":"..."}}]} ... data: [DONE]
+    static String extractStreamChunk(String event, String data) throws IOException {
+        if (data.equals("[DONE]")) {
+            return null;
+        }
+        JsonObject json = JsonParser.parseString(data).getAsJsonObject();
+        if (json.has("error")) {
+            throw new IOException("API stream error: " + json.getAsJsonObject("error").get("message").getAsString());
+        }
+        JsonArray choices = json.getAsJsonArray("choices");
+        if (choices == null || choices.size() == 0) {
+            return null;
+        }
+        JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+        if (delta == null) {
+            return null;
+        }
+        JsonElement content = delta.get("content");
+        return content == null || content.isJsonNull() ? null : content.getAsString();
+    }
+    
+    // The final chunk: {"choices":[],"usage":{"prompt_tokens":1,...,"prompt_tokens_details":{"cached_tokens":0}}}
+    static TokenUsage extractStreamUsage(String event, String data, TokenUsage usage) throws IOException {
+        if (!data.contains("\"prompt_tokens\"")) {
+            return usage;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(data))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("usage") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    usage = OpenAIResponseDecoder.readUsage(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+        return usage;
+    }
+    
+    @Override
+    public String getModelName() {
+        return MODEL;
+    }
+    
+    @Override
+    public String getParameterSignature() {
+        return "temperature=0.7;max_tokens=1000";
     }
     
     @Override
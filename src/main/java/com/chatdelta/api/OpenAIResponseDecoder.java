@@ -0,0 +1,105 @@
+package com.chatdelta.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+// {"choices":[{"message":{"content":"..."},"finish_reason":"stop"}],
+//  "usage":{"prompt_tokens":1,"completion_tokens":2,"total_tokens":3,
+//           "prompt_tokens_details":{"cached_tokens":0}}}
+public class OpenAIResponseDecoder implements ResponseDecoder {
+    @Override
+    public CompletionResult decode(JsonReader reader) throws IOException {
+        String text = null;
+        String finishReason = null;
+        boolean sawChoice = false;
+        TokenUsage usage = TokenUsage.UNKNOWN;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "error" -> throw new ResponseFormatException("API error: " + ResponseDecoder.readErrorMessage(reader));
+                case "choices" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (sawChoice) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        sawChoice = true;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "message" -> text = readContent(reader);
+                                case "finish_reason" -> finishReason = ResponseDecoder.readNullableString(reader);
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                }
+                case "usage" -> usage = readUsage(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        if (text == null) {
+            throw new ResponseFormatException("No content in response");
+        }
+        return new CompletionResult(text, finishReason, usage);
+    }
+    
+    private static String readContent(JsonReader reader) throws IOException {
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("content")) {
+                content = ResponseDecoder.readNullableString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return content;
+    }
+    
+    static TokenUsage readUsage(JsonReader reader) throws IOException {
+        int input = 0;
+        int output = 0;
+        int total = 0;
+        int cached = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "prompt_tokens" -> input = reader.nextInt();
+                case "completion_tokens" -> output = reader.nextInt();
+                case "total_tokens" -> total = reader.nextInt();
+                case "prompt_tokens_details" -> cached = readCachedTokens(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TokenUsage(input, output, total, cached);
+    }
+    
+    private static int readCachedTokens(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        int cached = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("cached_tokens")) {
+                cached = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return cached;
+    }
+}
\ No newline at end of file
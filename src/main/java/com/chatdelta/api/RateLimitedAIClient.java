@@ -0,0 +1,92 @@
+package com.chatdelta.api;
+
+import java.util.concurrent.CompletableFuture;
+
+public class RateLimitedAIClient implements AIClient {
+    // Completions are capped at max_tokens=1000, so budget for the worst case
+    // and hand back the difference once the real usage is known.
+    private static final int EXPECTED_OUTPUT_TOKENS = 1000;
+    
+    private final AIClient delegate;
+    private final AdmissionController controller;
+    
+    public RateLimitedAIClient(AIClient delegate, AdmissionController controller) {
+        this.delegate = delegate;
+        this.controller = controller;
+    }
+    
+    @Override
+    public CompletableFuture<String> sendPrompt(String prompt) {
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        long estimate = estimateTokens(prompt);
+        return Futures.map(controller.submit(estimate, () -> delegate.sendPromptDetailed(prompt)), result -> {
+            controller.recordUsage(estimate, result.usage().totalTokens());
+            return result;
+        });
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        // Earlier turns count as input too, cached or not
+        long estimate = estimateTokens(prompt) + conversation.characterCount() / 4;
+        // A throttled stream is requeued, so only report the error once it is final
+        StreamListener guarded = new StreamListener() {
+            @Override
+            public void onChunk(String text) {
+                listener.onChunk(text);
+            }
+            
+            @Override
+            public void onComplete(StreamStats stats) {
+                // Streams that don't report usage keep the estimate
+                controller.recordUsage(estimate, stats.usage().totalTokens());
+                listener.onComplete(stats);
+            }
+        };
+        CompletableFuture<String> admitted = controller.submit(estimate,
+            () -> delegate.streamPrompt(conversation, prompt, guarded));
+        return Futures.propagateCancel(admitted.whenComplete((text, error) -> {
+            if (error != null && !Futures.isAbandoned(error)) {
+                listener.onError(error);
+            }
+        }), admitted);
+    }
+    
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+    
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+    
+    @Override
+    public String getParameterSignature() {
+        return delegate.getParameterSignature();
+    }
+    
+    @Override
+    public void endConversation(Conversation conversation) {
+        delegate.endConversation(conversation);
+    }
+    
+    public AdmissionController getController() {
+        return controller;
+    }
+    
+    // Roughly four characters per token for English text
+    static long estimateTokens(String prompt) {
+        return prompt.length() / 4 + 1 + EXPECTED_OUTPUT_TOKENS;
+    }
+}
\ No newline at end of file
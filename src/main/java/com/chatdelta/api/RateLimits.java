@@ -0,0 +1,25 @@
+package com.chatdelta.api;
+
+import java.util.Locale;
+
+public record RateLimits(
+    long requestsPerMinute,
+    long tokensPerMinute,
+    int initialConcurrency,
+    int maxConcurrency,
+    int maxRequeues
+) {
+    public static final RateLimits DEFAULT = new RateLimits(500, 200_000, 8, 64, 5);
+    
+    // e.g. -Dchatdelta.ratelimit.claude.rpm=50 -Dchatdelta.ratelimit.claude.tpm=40000
+    public static RateLimits fromSystemProperties(String provider) {
+        String prefix = "chatdelta.ratelimit." + provider.toLowerCase(Locale.ROOT) + ".";
+        return new RateLimits(
+            Long.getLong(prefix + "rpm", DEFAULT.requestsPerMinute()),
+            Long.getLong(prefix + "tpm", DEFAULT.tokensPerMinute()),
+            Integer.getInteger(prefix + "concurrency", DEFAULT.initialConcurrency()),
+            Integer.getInteger(prefix + "maxConcurrency", DEFAULT.maxConcurrency()),
+            Integer.getInteger(prefix + "maxRequeues", DEFAULT.maxRequeues())
+        );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.chatdelta.api;
+
+import com.google.gson.stream.JsonWriter;
+import okio.Buffer;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Pre-encoded JSON around a single slot. Only the prompt is escaped per
+// call; the model, max_tokens and other constants are written as raw bytes.
+public final class RequestTemplate {
+    // Writes the one JSON value that goes in the slot, e.g. a messages array
+    public interface Slot {
+        void write(JsonWriter json) throws IOException;
+    }
+    
+    private final ByteString prefix;
+    private final ByteString suffix;
+    
+    private RequestTemplate(String prefix, String suffix) {
+        this.prefix = ByteString.encodeUtf8(prefix);
+        this.suffix = ByteString.encodeUtf8(suffix);
+    }
+    
+    public static RequestTemplate of(String prefix, String suffix) {
+        return new RequestTemplate(prefix, suffix);
+    }
+    
+    public JsonRequestBody encode(String value) {
+        return encode(json -> json.value(value));
+    }
+    
+    public JsonRequestBody encode(Slot slot) {
+        Buffer buffer = new Buffer();
+        buffer.write(prefix);
+        try {
+            Writer writer = new OutputStreamWriter(buffer.outputStream(), StandardCharsets.UTF_8);
+            JsonWriter json = new JsonWriter(writer);
+            slot.write(json);
+            json.flush();
+        } catch (IOException e) {
+            // Buffer never throws; keep the signature honest anyway
+            throw new UncheckedIOException(e);
+        }
+        buffer.write(suffix);
+        return new JsonRequestBody(buffer);
+    }
+    
+    // Used while building templates, so constants are escaped exactly once.
+    public static String quote(String value) {
+        try {
+            StringWriter out = new StringWriter();
+            new JsonWriter(out).value(value).close();
+            return out.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.chatdelta.api;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Two-tier cache of completed answers: a bounded in-memory LRU in front of an
+// optional directory of one JSON file per key that survives restarts.
+public class ResponseCache {
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Path directory;
+    private final Clock clock;
+    private final Gson gson = new Gson();
+    private final Map<String, Entry> memory;
+    
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    record Entry(String text, String finishReason, int inputTokens, int outputTokens, int totalTokens, long storedAtMillis) {
+        CompletionResult toResult() {
+            return new CompletionResult(text, finishReason, new TokenUsage(inputTokens, outputTokens, totalTokens));
+        }
+    }
+    
+    public ResponseCache(int maxEntries, Duration ttl, Path directory) {
+        this(maxEntries, ttl, directory, Clock.systemUTC());
+    }
+    
+    ResponseCache(int maxEntries, Duration ttl, Path directory, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.directory = directory;
+        this.clock = clock;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    // Provider, model and sampling parameters are part of the key, so switching
+    // any of them never serves a stale answer.
+    public static String key(String provider, String model, String parameters, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] {provider, model, parameters, prompt}) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+    
+    public CompletionResult get(String key) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        if (entry != null) {
+            if (!isExpired(entry)) {
+                memoryHits.increment();
+                return entry.toResult();
+            }
+            invalidate(key);
+            expirations.increment();
+        }
+        
+        entry = readFromDisk(key);
+        if (entry != null) {
+            if (!isExpired(entry)) {
+                synchronized (memory) {
+                    memory.put(key, entry);
+                }
+                diskHits.increment();
+                return entry.toResult();
+            }
+            invalidate(key);
+            expirations.increment();
+        }
+        
+        misses.increment();
+        return null;
+    }
+    
+    public void put(String key, CompletionResult result) {
+        TokenUsage usage = result.usage() != null ? result.usage() : TokenUsage.UNKNOWN;
+        Entry entry = new Entry(result.text(), result.finishReason(),
+            usage.inputTokens(), usage.outputTokens(), usage.totalTokens(), clock.millis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writeToDisk(key, entry);
+    }
+    
+    public void invalidate(String key) {
+        synchronized (memory) {
+            memory.remove(key);
+        }
+        if (directory != null) {
+            try {
+                Files.deleteIfExists(fileFor(key));
+            } catch (IOException e) {
+                // A stale file is re-checked against its TTL on the next read
+            }
+        }
+    }
+    
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+    
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+    
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public long getExpirations() {
+        return expirations.sum();
+    }
+    
+    public double getHitRate() {
+        long hits = getMemoryHits() + getDiskHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+    
+    private boolean isExpired(Entry entry) {
+        return ttl != null && !ttl.isZero() && clock.millis() - entry.storedAtMillis() > ttl.toMillis();
+    }
+    
+    private Path fileFor(String key) {
+        return directory.resolve(key + ".json");
+    }
+    
+    private Entry readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, Entry.class);
+        } catch (Exception e) {
+            // Corrupt or half-written entry: treat as a miss
+            return null;
+        }
+    }
+    
+    private void writeToDisk(String key, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(entry, writer);
+            }
+            Files.move(temp, fileFor(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Response cache write failed: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.chatdelta.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Pulls the answer text, finish reason and token usage straight off the
+// response stream. Fields we do not need are skipped, never materialized.
+public interface ResponseDecoder {
+    CompletionResult decode(JsonReader reader) throws IOException;
+    
+    default CompletionResult decode(ResponseBody body) throws IOException {
+        try (JsonReader reader = new JsonReader(
+                new InputStreamReader(body.source().inputStream(), StandardCharsets.UTF_8))) {
+            return decode(reader);
+        }
+    }
+    
+    static String readErrorMessage(JsonReader reader) throws IOException {
+        String message = "Unknown error";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("message")) {
+                message = readNullableString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return message;
+    }
+    
+    static String readNullableString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
\ No newline at end of file
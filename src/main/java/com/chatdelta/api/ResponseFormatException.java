@@ -0,0 +1,17 @@
+package com.chatdelta.api;
+
+import java.io.IOException;
+
+// The provider answered, but the body did not contain a usable completion.
+// Unlike connection failures this is not worth retrying.
+public class ResponseFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+    
+    public ResponseFormatException(String message) {
+        super(message);
+    }
+    
+    public ResponseFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.chatdelta.api;
+
+// Caps retries (and hedges) at a fraction of the original traffic, so an
+// outage does not turn into a retry storm. Every request deposits `ratio`
+// tokens and every retry spends one; `minReserve` covers low-traffic periods.
+public class RetryBudget {
+    private final double ratio;
+    private final double maxBalance;
+    private double balance;
+    
+    public RetryBudget(double ratio, int minReserve) {
+        this.ratio = ratio;
+        this.maxBalance = Math.max(minReserve, 1) * 10.0;
+        this.balance = minReserve;
+    }
+    
+    public synchronized void onRequest() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+    
+    public synchronized boolean tryAcquireRetry() {
+        if (balance >= 1.0) {
+            balance -= 1.0;
+            return true;
+        }
+        return false;
+    }
+    
+    public synchronized double getBalance() {
+        return balance;
+    }
+}
\ No newline at end of file
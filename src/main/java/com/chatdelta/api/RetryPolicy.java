@@ -0,0 +1,34 @@
+package com.chatdelta.api;
+
+import java.time.Duration;
+
+public record RetryPolicy(
+    int maxAttempts,
+    Duration baseDelay,
+    Duration maxDelay,
+    boolean hedging,
+    double hedgePercentile,
+    double budgetRatio,
+    int budgetMinReserve
+) {
+    public static final RetryPolicy DEFAULT = new RetryPolicy(
+        3, Duration.ofMillis(250), Duration.ofSeconds(8), false, 0.95, 0.1, 10);
+    
+    public static RetryPolicy fromSystemProperties() {
+        return new RetryPolicy(
+            Integer.getInteger("chatdelta.retry.maxAttempts", DEFAULT.maxAttempts()),
+            Duration.ofMillis(Long.getLong("chatdelta.retry.baseDelayMillis", DEFAULT.baseDelay().toMillis())),
+            Duration.ofMillis(Long.getLong("chatdelta.retry.maxDelayMillis", DEFAULT.maxDelay().toMillis())),
+            Boolean.getBoolean("chatdelta.hedge"),
+            DEFAULT.hedgePercentile(),
+            DEFAULT.budgetRatio(),
+            DEFAULT.budgetMinReserve()
+        );
+    }
+    
+    // "Full jitter": uniform in [0, min(maxDelay, base * 2^retry)]
+    public long delayMillis(int retry, double random) {
+        long ceiling = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(retry, 20));
+        return (long) (ceiling * random);
+    }
+}
\ No newline at end of file
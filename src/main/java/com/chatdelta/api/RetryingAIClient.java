@@ -0,0 +1,228 @@
+package com.chatdelta.api;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Retries connection failures and 5xx answers with jittered exponential
+// backoff, and can hedge a call that runs past the provider's observed p95.
+// Both retries and hedges draw from one RetryBudget.
+public class RetryingAIClient implements AIClient {
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    
+    private final AIClient delegate;
+    private final RetryPolicy policy;
+    private final RetryBudget budget;
+    private final LatencyTracker latencies = new LatencyTracker(256);
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    
+    public RetryingAIClient(AIClient delegate, RetryPolicy policy) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.budget = new RetryBudget(policy.budgetRatio(), policy.budgetMinReserve());
+    }
+    
+    @Override
+    public CompletableFuture<String> sendPrompt(String prompt) {
+        return Futures.map(sendPromptDetailed(prompt), CompletionResult::text);
+    }
+    
+    @Override
+    public CompletableFuture<CompletionResult> sendPromptDetailed(String prompt) {
+        budget.onRequest();
+        CompletableFuture<CompletionResult> result = new CompletableFuture<>();
+        attempt(prompt, 0, result);
+        return result;
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+        return streamPrompt(Conversation.EMPTY, prompt, listener);
+    }
+    
+    @Override
+    public CompletableFuture<String> streamPrompt(Conversation conversation, String prompt, StreamListener listener) {
+        budget.onRequest();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        streamAttempt(conversation, prompt, listener, 0, result);
+        return result;
+    }
+    
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+    
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+    
+    @Override
+    public String getParameterSignature() {
+        return delegate.getParameterSignature();
+    }
+    
+    @Override
+    public void endConversation(Conversation conversation) {
+        delegate.endConversation(conversation);
+    }
+    
+    public long getRetryCount() {
+        return retries.sum();
+    }
+    
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+    
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+    
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof ApiException api) {
+            return api.isServerError();
+        }
+        return error instanceof IOException
+            && !(error instanceof ResponseFormatException)
+            && !(error instanceof CircuitOpenException);
+    }
+    
+    private void attempt(String prompt, int retry, CompletableFuture<CompletionResult> result) {
+        if (result.isDone()) {
+            return; // cancelled or past its deadline while waiting to retry
+        }
+        CompletableFuture<CompletionResult> call = hedged(prompt);
+        Futures.propagateCancel(result, call);
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (!result.isDone() && retry + 1 < policy.maxAttempts() && isRetryable(cause) && budget.tryAcquireRetry()) {
+                retries.increment();
+                long delay = policy.delayMillis(retry, ThreadLocalRandom.current().nextDouble());
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                    .execute(() -> attempt(prompt, retry + 1, result));
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+    
+    // Runs the call, and if hedging is on and it outlives the observed p95,
+    // fires a duplicate and keeps whichever succeeds first.
+    private CompletableFuture<CompletionResult> hedged(String prompt) {
+        CompletableFuture<CompletionResult> primary = timed(prompt);
+        long hedgeAfter = policy.hedging()
+            ? latencies.percentileNanos(policy.hedgePercentile(), MIN_HEDGE_SAMPLES)
+            : -1;
+        if (hedgeAfter < 0) {
+            return primary;
+        }
+        
+        CompletableFuture<CompletionResult> winner = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<CompletionResult>> secondary = new AtomicReference<>();
+        
+        Futures.propagateCancel(winner, primary);
+        primary.whenComplete((value, error) -> settle(winner, outstanding, value, error, secondary.get(), false));
+        CompletableFuture.delayedExecutor(hedgeAfter, TimeUnit.NANOSECONDS).execute(() -> {
+            if (primary.isDone() || winner.isDone() || !budget.tryAcquireRetry()) {
+                return;
+            }
+            hedges.increment();
+            outstanding.incrementAndGet();
+            CompletableFuture<CompletionResult> hedge = timed(prompt);
+            secondary.set(hedge);
+            Futures.propagateCancel(winner, hedge);
+            hedge.whenComplete((value, error) -> settle(winner, outstanding, value, error, primary, true));
+        });
+        return winner;
+    }
+    
+    private void settle(CompletableFuture<CompletionResult> winner, AtomicInteger outstanding,
+                        CompletionResult value, Throwable error, CompletableFuture<CompletionResult> other,
+                        boolean isHedge) {
+        if (error == null) {
+            if (winner.complete(value)) {
+                if (isHedge) {
+                    hedgeWins.increment();
+                }
+                if (other != null) {
+                    other.cancel(true);
+                }
+            }
+        } else if (outstanding.decrementAndGet() == 0) {
+            winner.completeExceptionally(error);
+        }
+    }
+    
+    // Returns the delegate's own future so that cancelling a losing hedge reaches it
+    private CompletableFuture<CompletionResult> timed(String prompt) {
+        long start = System.nanoTime();
+        CompletableFuture<CompletionResult> call = delegate.sendPromptDetailed(prompt);
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                latencies.record(System.nanoTime() - start);
+            }
+        });
+        return call;
+    }
+    
+    // A stream is only retried while nothing has reached the listener yet;
+    // replaying after partial output would duplicate text on screen.
+    private void streamAttempt(Conversation conversation, String prompt, StreamListener listener, int retry,
+                               CompletableFuture<String> result) {
+        if (result.isDone()) {
+            return;
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        StreamListener guarded = new StreamListener() {
+            @Override
+            public void onChunk(String text) {
+                started.set(true);
+                listener.onChunk(text);
+            }
+            
+            @Override
+            public void onComplete(StreamStats stats) {
+                listener.onComplete(stats);
+            }
+        };
+        
+        CompletableFuture<String> call = delegate.streamPrompt(conversation, prompt, guarded);
+        Futures.propagateCancel(result, call);
+        call.whenComplete((text, error) -> {
+            if (error == null) {
+                result.complete(text);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (!started.get() && !result.isDone() && retry + 1 < policy.maxAttempts()
+                    && isRetryable(cause) && budget.tryAcquireRetry()) {
+                retries.increment();
+                long delay = policy.delayMillis(retry, ThreadLocalRandom.current().nextDouble());
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                    .execute(() -> streamAttempt(conversation, prompt, listener, retry + 1, result));
+            } else if (!result.isDone()) {
+                listener.onError(cause);
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.chatdelta.api;
+
+import okio.BufferedSource;
+
+import java.io.IOException;
+
+// Minimal text/event-stream parser: collects "event:" and "data:" fields and
+// dispatches on each blank line, as described by the WHATWG SSE spec.
+final class ServerSentEventReader {
+    interface Handler {
+        void onEvent(String event, String data) throws IOException;
+    }
+    
+    private final BufferedSource source;
+    
+    ServerSentEventReader(BufferedSource source) {
+        this.source = source;
+    }
+    
+    void readAll(Handler handler) throws IOException {
+        String event = null;
+        StringBuilder data = null;
+        
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (data != null) {
+                    handler.onEvent(event != null ? event : "message", data.toString());
+                }
+                event = null;
+                data = null;
+                continue;
+            }
+            if (line.charAt(0) == ':') {
+                continue; // comment / keep-alive
+            }
+            
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            
+            if (field.equals("event")) {
+                event = value;
+            } else if (field.equals("data")) {
+                if (data == null) {
+                    data = new StringBuilder(value);
+                } else {
+                    data.append('\n').append(value);
+                }
+            }
+        }
+        
+        // A stream that ends without a trailing blank line still delivers its last event
+        if (data != null) {
+            handler.onEvent(event != null ? event : "message", data.toString());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.chatdelta.api;
+
+// Chunks are delivered on the thread reading the response, so a slow listener
+// slows down the socket read instead of buffering the whole stream in memory.
+public interface StreamListener {
+    void onChunk(String text);
+    
+    default void onComplete(StreamStats stats) {
+    }
+    
+    default void onError(Throwable error) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.chatdelta.api;
+
+import java.time.Duration;
+
+// usage is TokenUsage.UNKNOWN when the stream didn't report it
+public record StreamStats(Duration timeToFirstToken, Duration totalTime, int chunkCount, int characterCount,
+                          TokenUsage usage) {
+    public StreamStats(Duration timeToFirstToken, Duration totalTime, int chunkCount, int characterCount) {
+        this(timeToFirstToken, totalTime, chunkCount, characterCount, TokenUsage.UNKNOWN);
+    }
+    
+    public boolean hasFirstToken() {
+        return chunkCount > 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.chatdelta.api;
+
+import com.chatdelta.metrics.ProviderMetrics;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// Runs a streaming request and feeds each server-sent event through a
+// provider-specific extractor, recording time-to-first-token along the way.
+final class StreamingCall {
+    interface ChunkExtractor {
+        // Returns the text carried by the event, or null if it carries none.
+        String extract(String event, String data) throws IOException;
+    }
+    
+    interface UsageExtractor {
+        // Returns usage updated with whatever counts the event reports
+        TokenUsage extract(String event, String data, TokenUsage usage) throws IOException;
+    }
+    
+    private static final UsageExtractor NO_USAGE = (event, data, usage) -> usage;
+    
+    private StreamingCall() {
+    }
+    
+    static CompletableFuture<String> enqueue(OkHttpClient client, Request request,
+                                             ChunkExtractor extractor, StreamListener listener) {
+        return enqueue(client, request, extractor, NO_USAGE, listener);
+    }
+    
+    static CompletableFuture<String> enqueue(OkHttpClient client, Request request, ChunkExtractor extractor,
+                                             UsageExtractor usageExtractor, StreamListener listener) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long start = System.nanoTime();
+        
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                fail(future, listener, e);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
+                        throw ApiException.from(response, "API request failed: " + response.code());
+                    }
+                    
+                    StringBuilder text = new StringBuilder();
+                    long[] firstToken = {-1};
+                    int[] chunks = {0};
+                    TokenUsage[] usage = {TokenUsage.UNKNOWN};
+                    
+                    new ServerSentEventReader(body.source()).readAll((event, data) -> {
+                        usage[0] = usageExtractor.extract(event, data, usage[0]);
+                        String chunk = extractor.extract(event, data);
+                        if (chunk == null || chunk.isEmpty()) {
+                            return;
+                        }
+                        if (firstToken[0] < 0) {
+                            firstToken[0] = System.nanoTime();
+                        }
+                        chunks[0]++;
+                        text.append(chunk);
+                        listener.onChunk(chunk);
+                    });
+                    
+                    long end = System.nanoTime();
+                    Duration ttft = Duration.ofNanos((firstToken[0] < 0 ? end : firstToken[0]) - start);
+                    ProviderMetrics metrics = request.tag(ProviderMetrics.class);
+                    if (metrics != null && firstToken[0] >= 0) {
+                        metrics.timeToFirstToken().recordNanos(ttft.toNanos());
+                    }
+                    if (metrics != null) {
+                        metrics.recordTokens(usage[0].inputTokens(), usage[0].outputTokens(),
+                            usage[0].cachedInputTokens());
+                    }
+                    listener.onComplete(new StreamStats(ttft, Duration.ofNanos(end - start), chunks[0], text.length(),
+                        usage[0]));
+                    future.complete(text.toString());
+                } catch (Exception e) {
+                    fail(future, listener, e);
+                }
+            }
+        });
+        
+        return Futures.bind(call, future);
+    }
+    
+    // A call the caller already gave up on fails with "Canceled"; don't report that back
+    private static void fail(CompletableFuture<String> future, StreamListener listener, Exception e) {
+        if (future.isDone()) {
+            return;
+        }
+        listener.onError(e);
+        future.completeExceptionally(e);
+    }
+}
\ No newline at end of file
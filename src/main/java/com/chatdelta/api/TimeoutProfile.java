@@ -0,0 +1,28 @@
+package com.chatdelta.api;
+
+import java.time.Duration;
+
+public record TimeoutProfile(Duration connect, Duration read, Duration write, Duration call) {
+    public static final TimeoutProfile DEFAULT = of(30, 30, 30, 0);
+    
+    // Chat completions can sit idle on the socket while the model generates,
+    // so the read timeouts are longer than the connect timeouts.
+    public static final TimeoutProfile OPENAI = of(10, 60, 30, 120);
+    public static final TimeoutProfile ANTHROPIC = of(10, 90, 30, 180);
+    public static final TimeoutProfile GEMINI = of(10, 60, 30, 120);
+    
+    public TimeoutProfile {
+        if (connect == null || read == null || write == null || call == null) {
+            throw new IllegalArgumentException("Timeouts must not be null");
+        }
+    }
+    
+    public static TimeoutProfile of(long connectSeconds, long readSeconds, long writeSeconds, long callSeconds) {
+        return new TimeoutProfile(
+            Duration.ofSeconds(connectSeconds),
+            Duration.ofSeconds(readSeconds),
+            Duration.ofSeconds(writeSeconds),
+            Duration.ofSeconds(callSeconds)
+        );
+    }
+}
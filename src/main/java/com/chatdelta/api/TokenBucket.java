@@ -0,0 +1,63 @@
+package com.chatdelta.api;
+
+import java.util.function.LongSupplier;
+
+// Classic token bucket refilled continuously at `perMinute` permits per minute.
+public class TokenBucket {
+    private static final double NANOS_PER_MINUTE = 60_000_000_000.0;
+    
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier ticker;
+    private double available;
+    private long lastRefill;
+    
+    public TokenBucket(long perMinute) {
+        this(perMinute, System::nanoTime);
+    }
+    
+    TokenBucket(long perMinute, LongSupplier ticker) {
+        if (perMinute < 1) {
+            throw new IllegalArgumentException("perMinute must be at least 1");
+        }
+        this.capacity = perMinute;
+        this.refillPerNano = perMinute / NANOS_PER_MINUTE;
+        this.ticker = ticker;
+        this.available = perMinute;
+        this.lastRefill = ticker.getAsLong();
+    }
+    
+    public synchronized boolean tryAcquire(double permits) {
+        refill();
+        double needed = Math.min(permits, capacity);
+        if (available >= needed) {
+            available -= needed;
+            return true;
+        }
+        return false;
+    }
+    
+    // How long until tryAcquire(permits) could succeed; 0 if it would now.
+    public synchronized long nanosUntilAvailable(double permits) {
+        refill();
+        double missing = Math.min(permits, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+    
+    // Corrects an earlier estimate once the real cost is known; may go negative.
+    public synchronized void adjust(double permits) {
+        refill();
+        available = Math.min(capacity, available - permits);
+    }
+    
+    public synchronized double getAvailable() {
+        refill();
+        return available;
+    }
+    
+    private void refill() {
+        long now = ticker.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
\ No newline at end of file
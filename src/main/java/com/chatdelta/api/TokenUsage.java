@@ -0,0 +1,11 @@
+package com.chatdelta.api;
+
+// cachedInputTokens is the part of inputTokens the provider served from its
+// prompt cache instead of processing again
+public record TokenUsage(int inputTokens, int outputTokens, int totalTokens, int cachedInputTokens) {
+    public static final TokenUsage UNKNOWN = new TokenUsage(0, 0, 0);
+    
+    public TokenUsage(int inputTokens, int outputTokens, int totalTokens) {
+        this(inputTokens, outputTokens, totalTokens, 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.chatdelta.batch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public record BatchOptions(
+    String input,
+    String output,
+    int concurrency,
+    int providerConcurrency,
+    List<String> providers,
+    boolean includeText,
+    Duration deadline,
+    String metricsOutput
+) {
+    public static final List<String> ALL_PROVIDERS = List.of("ChatGPT", "Gemini", "Claude");
+    public static final String USAGE = """
+        Usage: --batch <file|-> [--out <file|->] [--concurrency N] [--provider-concurrency N]
+               [--providers ChatGPT,Claude] [--no-text] [--deadline seconds] [--metrics <file|->]""";
+    
+    public static boolean isBatch(String[] args) {
+        return Arrays.asList(args).contains("--batch");
+    }
+    
+    // See USAGE; a bad option throws IllegalArgumentException with a message for the user
+    public static BatchOptions parse(String[] args) {
+        String input = "-";
+        String output = "-";
+        int concurrency = 8;
+        int providerConcurrency = 4;
+        List<String> providers = new ArrayList<>(ALL_PROVIDERS);
+        boolean includeText = true;
+        Duration deadline = null;
+        String metricsOutput = null;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch" -> input = value(args, ++i);
+                case "--out" -> output = value(args, ++i);
+                case "--concurrency" -> concurrency = count(args, ++i);
+                case "--provider-concurrency" -> providerConcurrency = count(args, ++i);
+                case "--providers" -> providers = Arrays.asList(value(args, ++i).split(","));
+                case "--no-text" -> includeText = false;
+                case "--metrics" -> metricsOutput = value(args, ++i);
+                case "--deadline" -> deadline = Duration.ofMillis((long) (seconds(args, ++i) * 1000));
+                case "--simulate" -> {
+                    // Handled by Main before the batch starts
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        if (concurrency < 1 || providerConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency limits must be at least 1");
+        }
+        if (deadline != null && (deadline.isZero() || deadline.isNegative())) {
+            throw new IllegalArgumentException("Deadline must be positive");
+        }
+        return new BatchOptions(input, output, concurrency, providerConcurrency, providers, includeText, deadline, metricsOutput);
+    }
+    
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+    
+    private static int count(String[] args, int index) {
+        String value = value(args, index);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw notANumber(args[index - 1], value);
+        }
+    }
+    
+    private static double seconds(String[] args, int index) {
+        String value = value(args, index);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw notANumber(args[index - 1], value);
+        }
+    }
+    
+    private static IllegalArgumentException notANumber(String option, String value) {
+        return new IllegalArgumentException(option + " expects a number, got '" + value + "'");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,312 @@
+package com.chatdelta.batch;
+
+import com.chatdelta.api.AIClient;
+import com.chatdelta.api.ClientFactory;
+import com.chatdelta.api.CompletionResult;
+import com.chatdelta.delta.DeltaEngine;
+import com.chatdelta.delta.DeltaSummary;
+import com.chatdelta.delta.PairSimilarity;
+import com.chatdelta.metrics.MetricsRegistry;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless mode: reads prompts as JSONL, fans each one out to every enabled
+// provider and writes one JSONL result line per prompt as soon as it is done.
+// At most `concurrency` prompts are in flight, so memory stays flat no matter
+// how long the input is.
+public class BatchRunner {
+    private final Map<String, AIClient> clients;
+    private final Map<String, ConcurrencyLimiter> limiters = new LinkedHashMap<>();
+    private final BatchOptions options;
+    private final Semaphore inFlight;
+    private final AtomicLong prompts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    
+    record Outcome(String provider, String model, CompletionResult result, Throwable error,
+                   long queueMillis, long latencyMillis) {
+    }
+    
+    public BatchRunner(Map<String, AIClient> clients, BatchOptions options) {
+        this.clients = clients;
+        this.options = options;
+        this.inFlight = new Semaphore(options.concurrency());
+        for (String name : clients.keySet()) {
+            limiters.put(name, new ConcurrencyLimiter(options.providerConcurrency()));
+        }
+    }
+    
+    public static int runFromArgs(String[] args) {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(BatchOptions.USAGE);
+            return 2;
+        }
+        Map<String, AIClient> clients = new LinkedHashMap<>();
+        for (String name : options.providers()) {
+            if (ClientFactory.apiKey(name) != null) {
+                clients.put(name, ClientFactory.create(name));
+            }
+        }
+        if (clients.isEmpty()) {
+            System.err.println("No providers enabled; set CHATGPT_API_KEY, GEMINI_API_KEY or CLAUDE_API_KEY");
+            return 2;
+        }
+        
+        try (Reader input = options.input().equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(options.input()), StandardCharsets.UTF_8);
+             Writer output = options.output().equals("-")
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Path.of(options.output()), StandardCharsets.UTF_8)) {
+            BatchRunner runner = new BatchRunner(clients, options);
+            runner.run(input, output);
+            System.err.println("Batch complete: " + runner.getPromptCount() + " prompts, "
+                + runner.getFailureCount() + " failed provider calls");
+            if (options.metricsOutput() != null) {
+                writeMetrics(options.metricsOutput());
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+    
+    // "-" means stderr, since stdout may already carry the JSONL results
+    private static void writeMetrics(String target) throws IOException {
+        if (target.equals("-")) {
+            Writer err = new OutputStreamWriter(System.err, StandardCharsets.UTF_8);
+            MetricsRegistry.shared().writePrometheus(err);
+            return;
+        }
+        try (Writer out = Files.newBufferedWriter(Path.of(target), StandardCharsets.UTF_8)) {
+            MetricsRegistry.shared().writePrometheus(out);
+        }
+    }
+    
+    public void run(Reader input, Writer output) throws IOException, InterruptedException {
+        BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        String line;
+        long lineNumber = 0;
+        
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            
+            String id = String.valueOf(lineNumber);
+            String prompt = line;
+            if (line.trim().startsWith("{")) {
+                // One bad line must not end a long run with requests still in flight
+                try {
+                    JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                    id = firstString(json, id, "id", "request_id");
+                    prompt = firstString(json, null, "prompt", "body", "text");
+                } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+                    writeLine(output, skipped(id, "malformed JSON"));
+                    continue;
+                }
+                if (prompt == null) {
+                    writeLine(output, skipped(id, "no prompt field"));
+                    continue;
+                }
+            }
+            
+            // Blocks reading until a slot frees up: this is the backpressure
+            // that keeps memory flat on very large inputs.
+            inFlight.acquire();
+            prompts.incrementAndGet();
+            dispatch(id, prompt, output);
+        }
+        
+        // Wait for the tail of in-flight prompts
+        inFlight.acquire(options.concurrency());
+        inFlight.release(options.concurrency());
+        output.flush();
+    }
+    
+    public long getPromptCount() {
+        return prompts.get();
+    }
+    
+    public long getFailureCount() {
+        return failures.get();
+    }
+    
+    private void dispatch(String id, String prompt, Writer output) {
+        long dispatched = System.nanoTime();
+        List<CompletableFuture<Outcome>> calls = new ArrayList<>();
+        
+        for (Map.Entry<String, AIClient> entry : clients.entrySet()) {
+            AIClient client = entry.getValue();
+            long[] started = new long[1];
+            CompletableFuture<Outcome> call = limiters.get(entry.getKey())
+                .submit(() -> {
+                    started[0] = System.nanoTime();
+                    CompletableFuture<CompletionResult> result = client.sendPromptDetailed(prompt);
+                    return options.deadline() == null
+                        ? result
+                        : result.orTimeout(options.deadline().toMillis(), TimeUnit.MILLISECONDS);
+                })
+                .handle((result, error) -> {
+                    long end = System.nanoTime();
+                    if (error != null) {
+                        failures.incrementAndGet();
+                    }
+                    return new Outcome(entry.getKey(), client.getModelName(), result, unwrap(error),
+                        (started[0] - dispatched) / 1_000_000, (end - started[0]) / 1_000_000);
+                });
+            calls.add(call);
+        }
+        
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            try {
+                List<Outcome> outcomes = new ArrayList<>();
+                for (CompletableFuture<Outcome> call : calls) {
+                    outcomes.add(call.join());
+                }
+                writeLine(output, result(id, prompt, outcomes, (System.nanoTime() - dispatched) / 1_000_000));
+            } catch (Exception e) {
+                System.err.println("Failed to write result for " + id + ": " + e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+    
+    private String result(String id, String prompt, List<Outcome> outcomes, long totalMillis) throws IOException {
+        StringWriter line = new StringWriter();
+        JsonWriter json = new JsonWriter(line);
+        json.beginObject();
+        json.name("id").value(id);
+        json.name("prompt_chars").value(prompt.length());
+        json.name("total_ms").value(totalMillis);
+        
+        Map<String, String> responses = new LinkedHashMap<>();
+        json.name("results").beginArray();
+        for (Outcome outcome : outcomes) {
+            json.beginObject();
+            json.name("provider").value(outcome.provider());
+            json.name("model").value(outcome.model());
+            json.name("status").value(outcome.error() == null ? "ok"
+                : outcome.error() instanceof TimeoutException ? "timeout" : "error");
+            json.name("queue_ms").value(outcome.queueMillis());
+            json.name("latency_ms").value(outcome.latencyMillis());
+            if (outcome.error() != null) {
+                json.name("error").value(String.valueOf(outcome.error().getMessage()));
+            } else {
+                CompletionResult result = outcome.result();
+                responses.put(outcome.provider(), result.text());
+                json.name("chars").value(result.text().length());
+                json.name("finish_reason").value(result.finishReason());
+                json.name("input_tokens").value(result.usage().inputTokens());
+                json.name("output_tokens").value(result.usage().outputTokens());
+                if (options.includeText()) {
+                    json.name("text").value(result.text());
+                }
+            }
+            json.endObject();
+        }
+        json.endArray();
+        
+        // A fresh engine per prompt: the shared one's dictionary and document
+        // frequencies grow with every word a long run sees, its top terms would
+        // depend on which prompts happened to finish first, and every result
+        // line would queue on its lock
+        DeltaSummary delta = new DeltaEngine().summarize(responses);
+        json.name("delta").beginObject();
+        json.name("lengths").beginObject();
+        for (Map.Entry<String, Integer> entry : delta.lengths().entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        json.endObject();
+        json.name("similarity").beginArray();
+        for (PairSimilarity pair : delta.similarities()) {
+            json.beginObject();
+            json.name("providers").beginArray().value(pair.first()).value(pair.second()).endArray();
+            json.name("jaccard").value(pair.jaccard());
+            json.name("minhash").value(pair.minHash());
+            json.name("simhash").value(pair.simHash());
+            json.endObject();
+        }
+        json.endArray();
+        json.name("shared_terms").beginArray();
+        for (String term : delta.sharedTerms()) {
+            json.value(term);
+        }
+        json.endArray();
+        json.name("unique_terms").beginObject();
+        for (Map.Entry<String, List<String>> entry : delta.uniqueTerms().entrySet()) {
+            json.name(entry.getKey()).beginArray();
+            for (String term : entry.getValue()) {
+                json.value(term);
+            }
+            json.endArray();
+        }
+        json.endObject();
+        json.endObject();
+        
+        json.endObject();
+        json.close();
+        return line.toString();
+    }
+    
+    private static String skipped(String id, String reason) throws IOException {
+        StringWriter line = new StringWriter();
+        JsonWriter json = new JsonWriter(line);
+        json.beginObject().name("id").value(id).name("status").value("skipped").name("error").value(reason).endObject();
+        json.close();
+        return line.toString();
+    }
+    
+    private static void writeLine(Writer output, String line) throws IOException {
+        synchronized (output) {
+            output.write(line);
+            output.write('\n');
+            output.flush();
+        }
+    }
+    
+    private static String firstString(JsonObject json, String fallback, String... names) {
+        for (String name : names) {
+            if (json.has(name) && !json.get(name).isJsonNull()) {
+                return json.get(name).getAsString();
+            }
+        }
+        return fallback;
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.chatdelta.batch;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Runs at most maxConcurrent async tasks at a time; further tasks wait in a
+// queue and start as earlier ones finish. Never blocks the caller.
+public class ConcurrencyLimiter {
+    private final int maxConcurrent;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+    
+    public ConcurrencyLimiter(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+    }
+    
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> call;
+            try {
+                call = task.get();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        
+        boolean runNow;
+        synchronized (this) {
+            runNow = running < maxConcurrent;
+            if (runNow) {
+                running++;
+            } else {
+                waiting.add(start);
+            }
+        }
+        if (runNow) {
+            start.run();
+        }
+        return result;
+    }
+    
+    public synchronized int getRunning() {
+        return running;
+    }
+    
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+    
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                running--;
+                return;
+            }
+        }
+        next.run();
+    }
+}
\ No newline at end of file
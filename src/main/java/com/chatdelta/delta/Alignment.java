@@ -0,0 +1,220 @@
+package com.chatdelta.delta;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Multi-way alignment of the responses by line or sentence, built center-star
+// style: the response closest to all others (fewest diff edits) is the
+// anchor, every other response is diffed against it, and segments the
+// anchor lacks are slotted into the gaps where they occur.
+public final class Alignment {
+    private static final int SNIPPET_CHARS = 120;
+    
+    // One aligned segment and the providers whose response contains it
+    public record Row(String text, List<String> providers) {
+    }
+    
+    private final Granularity granularity;
+    private final String anchor;
+    private final List<String> names;
+    private final List<Row> rows;
+    
+    private Alignment(Granularity granularity, String anchor, List<String> names, List<Row> rows) {
+        this.granularity = granularity;
+        this.anchor = anchor;
+        this.names = names;
+        this.rows = rows;
+    }
+    
+    public static Alignment of(Map<String, String> responses) {
+        return of(responses, Granularity.detect(responses.values()));
+    }
+    
+    public static Alignment of(Map<String, String> responses, Granularity granularity) {
+        List<String> names = new ArrayList<>();
+        List<List<String>> segments = new ArrayList<>();
+        for (Map.Entry<String, String> entry : responses.entrySet()) {
+            names.add(entry.getKey());
+            segments.add(granularity.split(entry.getValue()));
+        }
+        
+        // Equal segments share an ID, so the diffs compare ints
+        Map<String, Integer> ids = new HashMap<>();
+        int[][] sequences = new int[names.size()][];
+        for (int p = 0; p < names.size(); p++) {
+            List<String> list = segments.get(p);
+            sequences[p] = new int[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                sequences[p][i] = ids.computeIfAbsent(granularity.key(list.get(i)), key -> ids.size());
+            }
+        }
+        return align(granularity, names, segments, sequences);
+    }
+    
+    // sequences[p][i] identifies segments.get(p).get(i); equal segments share an ID
+    static Alignment align(Granularity granularity, List<String> names, List<List<String>> segments, int[][] sequences) {
+        int count = names.size();
+        if (count == 0) {
+            return new Alignment(granularity, null, names, List.of());
+        }
+        
+        // Anchor on the response with the smallest total distance to the others
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Diff.Edit>[][] diffs = new List[count][count];
+        int center = 0;
+        int best = Integer.MAX_VALUE;
+        int[] totals = new int[count];
+        for (int p = 0; p < count; p++) {
+            for (int q = p + 1; q < count; q++) {
+                diffs[p][q] = Diff.of(sequences[p], sequences[q]);
+                int distance = Diff.distance(diffs[p][q]);
+                totals[p] += distance;
+                totals[q] += distance;
+            }
+        }
+        for (int p = 0; p < count; p++) {
+            if (totals[p] < best) {
+                best = totals[p];
+                center = p;
+            }
+        }
+        
+        int anchorLength = sequences[center].length;
+        // matched[q][i]: whether provider q has the anchor's i-th segment;
+        // gaps.get(g): segments others have just before anchor segment g
+        boolean[][] matched = new boolean[count][anchorLength];
+        List<Map<Integer, Row>> gaps = new ArrayList<>();
+        for (int g = 0; g <= anchorLength; g++) {
+            gaps.add(new LinkedHashMap<>());
+        }
+        for (int q = 0; q < count; q++) {
+            if (q == center) {
+                continue;
+            }
+            List<Diff.Edit> edits = q > center ? diffs[center][q] : Diff.invert(diffs[q][center]);
+            for (Diff.Edit edit : edits) {
+                if (edit.op() == Diff.Op.EQUAL) {
+                    for (int i = edit.aStart(); i < edit.aEnd(); i++) {
+                        matched[q][i] = true;
+                    }
+                } else if (edit.op() == Diff.Op.INSERT) {
+                    Map<Integer, Row> gap = gaps.get(edit.aStart());
+                    for (int j = edit.bStart(); j < edit.bEnd(); j++) {
+                        // Two non-anchor responses adding the same segment at the same place share a row
+                        Row row = gap.get(sequences[q][j]);
+                        if (row == null) {
+                            row = new Row(segments.get(q).get(j), new ArrayList<>());
+                            gap.put(sequences[q][j], row);
+                        }
+                        if (!row.providers().contains(names.get(q))) {
+                            row.providers().add(names.get(q));
+                        }
+                    }
+                }
+            }
+        }
+        
+        List<Row> rows = new ArrayList<>();
+        for (int g = 0; g <= anchorLength; g++) {
+            rows.addAll(gaps.get(g).values());
+            if (g < anchorLength) {
+                List<String> present = new ArrayList<>();
+                for (int q = 0; q < count; q++) {
+                    if (q == center || matched[q][g]) {
+                        present.add(names.get(q));
+                    }
+                }
+                rows.add(new Row(segments.get(center).get(g), present));
+            }
+        }
+        return new Alignment(granularity, names.get(center), names, rows);
+    }
+    
+    public Granularity granularity() {
+        return granularity;
+    }
+    
+    public String anchor() {
+        return anchor;
+    }
+    
+    public List<Row> rows() {
+        return rows;
+    }
+    
+    // Rows every response shares
+    public int agreedCount() {
+        int agreed = 0;
+        for (Row row : rows) {
+            if (row.providers().size() == names.size()) {
+                agreed++;
+            }
+        }
+        return agreed;
+    }
+    
+    // Rows only this provider has
+    public int uniqueCount(String provider) {
+        int unique = 0;
+        for (Row row : rows) {
+            if (row.providers().size() == 1 && row.providers().get(0).equals(provider)) {
+                unique++;
+            }
+        }
+        return unique;
+    }
+    
+    // Rows every other provider has but this one lacks
+    public int missingCount(String provider) {
+        int missing = 0;
+        for (Row row : rows) {
+            if (row.providers().size() == names.size() - 1 && !row.providers().contains(provider)) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+    
+    // Summary counts, then up to maxRows of the segments the responses disagree on
+    public String render(int maxRows) {
+        if (names.size() < 2) {
+            return "";
+        }
+        
+        StringBuilder text = new StringBuilder();
+        text.append("🧩 Structure (").append(rows.size()).append(' ').append(granularity.plural())
+            .append(", aligned to ").append(anchor).append("):\n");
+        text.append("• In all ").append(names.size()).append(": ").append(agreedCount()).append('\n');
+        for (String name : names) {
+            text.append("• ").append(name).append(": ").append(uniqueCount(name)).append(" only here");
+            if (names.size() > 2) {
+                text.append(", ").append(missingCount(name)).append(" left out");
+            }
+            text.append('\n');
+        }
+        
+        int shown = 0;
+        for (Row row : rows) {
+            if (row.providers().size() == names.size()) {
+                continue;
+            }
+            if (shown == maxRows) {
+                text.append("\n…");
+                break;
+            }
+            text.append(shown == 0 ? "\n" : "").append("\n[")
+                .append(String.join(" + ", row.providers())).append("] ")
+                .append(snippet(row.text()));
+            shown++;
+        }
+        return text.toString();
+    }
+    
+    private static String snippet(String segment) {
+        String line = segment.replaceAll("\\s+", " ");
+        return line.length() <= SNIPPET_CHARS ? line : line.substring(0, SNIPPET_CHARS - 1) + "…";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,206 @@
+package com.chatdelta.delta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Compares provider responses. Each response is tokenized once into interned
+// int IDs; pairwise similarity then works on sorted ID arrays and fixed-size
+// sketches, and shared/unique terms are ranked by TF-IDF, with document
+// frequencies accumulated over every response this engine has seen.
+public final class DeltaEngine {
+    static final int TOP_TERMS = 10;
+    
+    // Interned first, so every ID below stopwordCount is a stopword
+    private static final String[] STOPWORDS = {
+        "a", "about", "above", "after", "again", "all", "also", "am", "an", "and", "any", "are", "as", "at",
+        "be", "because", "been", "before", "being", "both", "but", "by", "can", "could", "did", "do", "does",
+        "doing", "down", "each", "few", "for", "from", "further", "had", "has", "have", "having", "he", "her",
+        "here", "hers", "him", "his", "how", "i", "if", "in", "into", "is", "it", "it's", "its", "just", "may",
+        "me", "more", "most", "my", "no", "nor", "not", "now", "of", "off", "on", "once", "one", "only", "or",
+        "other", "our", "out", "over", "own", "same", "she", "should", "so", "some", "such", "than", "that",
+        "the", "their", "them", "then", "there", "these", "they", "this", "those", "through", "to", "too",
+        "under", "until", "up", "use", "used", "very", "was", "we", "were", "what", "when", "where", "which",
+        "while", "who", "whom", "why", "will", "with", "would", "you", "your",
+    };
+    private static final Set<String> STOPWORD_SET = Set.of(STOPWORDS);
+    private static final DeltaEngine SHARED = new DeltaEngine();
+    
+    private final TokenDictionary dictionary = new TokenDictionary();
+    private final int stopwordCount;
+    private final IntList tokens = new IntList(1024);
+    private int[] documentFrequency = new int[1024];
+    private int documents;
+    
+    public DeltaEngine() {
+        for (String stopword : STOPWORDS) {
+            dictionary.intern(stopword);
+        }
+        stopwordCount = dictionary.size();
+    }
+    
+    // The engine behind DeltaSummary.of; its term statistics span the whole
+    // session, which suits the interactive UIs. Batch runs use one per prompt.
+    public static DeltaEngine shared() {
+        return SHARED;
+    }
+    
+    public DeltaSummary summarize(Map<String, String> responses) {
+        String[] names = new String[responses.size()];
+        String[] texts = new String[responses.size()];
+        int count = 0;
+        for (Map.Entry<String, String> entry : responses.entrySet()) {
+            if (count == names.length) {
+                break;
+            }
+            names[count] = entry.getKey();
+            texts[count++] = entry.getValue();
+        }
+        
+        Map<String, Integer> lengths = new LinkedHashMap<>();
+        for (int p = 0; p < count; p++) {
+            lengths.put(names[p], texts[p].length());
+        }
+        
+        TermVector[] vectors = new TermVector[count];
+        double[][] weights = new double[count][];
+        List<String> sharedTerms;
+        Map<String, List<String>> uniqueTerms = new LinkedHashMap<>();
+        synchronized (this) {
+            for (int p = 0; p < count; p++) {
+                tokens.clear();
+                dictionary.tokenize(texts[p], 0, texts[p].length(), tokens);
+                vectors[p] = TermVector.of(tokens);
+                countDocument(vectors[p]);
+            }
+            for (int p = 0; p < count; p++) {
+                weights[p] = tfIdf(vectors[p]);
+            }
+            
+            TopTerms shared = new TopTerms(TOP_TERMS);
+            TopTerms[] unique = new TopTerms[count];
+            for (int p = 0; p < count; p++) {
+                unique[p] = new TopTerms(TOP_TERMS);
+            }
+            rankTerms(vectors, weights, shared, unique);
+            
+            sharedTerms = shared.terms(dictionary::term);
+            for (int p = 0; p < count; p++) {
+                uniqueTerms.put(names[p], unique[p].terms(dictionary::term));
+            }
+        }
+        
+        return new DeltaSummary(lengths, similarities(names, vectors, weights), sharedTerms, uniqueTerms);
+    }
+    
+    private static List<PairSimilarity> similarities(String[] names, TermVector[] vectors, double[][] weights) {
+        int[][] minHashes = new int[vectors.length][];
+        long[] simHashes = new long[vectors.length];
+        for (int p = 0; p < vectors.length; p++) {
+            minHashes[p] = Sketches.minHash(vectors[p]);
+            simHashes[p] = Sketches.simHash(vectors[p], weights[p]);
+        }
+        List<PairSimilarity> similarities = new ArrayList<>();
+        for (int a = 0; a < vectors.length; a++) {
+            for (int b = a + 1; b < vectors.length; b++) {
+                similarities.add(new PairSimilarity(names[a], names[b],
+                    vectors[a].jaccard(vectors[b]),
+                    Sketches.minHashSimilarity(minHashes[a], minHashes[b]),
+                    Sketches.simHashSimilarity(simHashes[a], simHashes[b])));
+            }
+        }
+        return similarities;
+    }
+    
+    private void countDocument(TermVector vector) {
+        if (dictionary.size() > documentFrequency.length) {
+            documentFrequency = Arrays.copyOf(documentFrequency, Math.max(dictionary.size(), documentFrequency.length * 2));
+        }
+        for (int t = 0; t < vector.distinctCount(); t++) {
+            documentFrequency[vector.id(t)]++;
+        }
+        documents++;
+    }
+    
+    // Sublinear term frequency times smoothed inverse document frequency
+    private double[] tfIdf(TermVector vector) {
+        double[] weights = new double[vector.distinctCount()];
+        for (int t = 0; t < weights.length; t++) {
+            weights[t] = termFrequencyWeight(vector.count(t)) * idf(vector.id(t));
+        }
+        return weights;
+    }
+    
+    // Whether a lower-cased word is too common to tell responses apart
+    public static boolean isStopword(String word) {
+        return STOPWORD_SET.contains(word);
+    }
+    
+    static double termFrequencyWeight(int count) {
+        return count == 0 ? 0 : 1.0 + Math.log(count);
+    }
+    
+    private double idf(int id) {
+        int frequency = id < documentFrequency.length ? documentFrequency[id] : 0;
+        return Math.log((1.0 + documents) / (1.0 + frequency)) + 1.0;
+    }
+    
+    private boolean isRankable(int id) {
+        return id >= stopwordCount && dictionary.term(id).length() >= 2;
+    }
+    
+    // LiveDelta tokenizes under the same lock as summarize
+    synchronized void tokenize(CharSequence text, int start, int end, IntList out) {
+        dictionary.tokenize(text, start, end, out);
+    }
+    
+    // IDF over the responses summarized so far, or 0 for stopwords and single letters
+    synchronized double rankingWeight(int id) {
+        return isRankable(id) ? idf(id) : 0;
+    }
+    
+    synchronized String term(int id) {
+        return dictionary.term(id);
+    }
+    
+    // One k-way merge over the sorted vectors finds, for every term, which
+    // responses contain it: terms in two or more are shared, terms in exactly
+    // one are unique to it
+    private void rankTerms(TermVector[] vectors, double[][] weights, TopTerms shared, TopTerms[] unique) {
+        int[] cursors = new int[vectors.length];
+        while (true) {
+            int id = Integer.MAX_VALUE;
+            for (int p = 0; p < vectors.length; p++) {
+                if (cursors[p] < vectors[p].distinctCount()) {
+                    id = Math.min(id, vectors[p].id(cursors[p]));
+                }
+            }
+            if (id == Integer.MAX_VALUE) {
+                return;
+            }
+            
+            int owners = 0;
+            int owner = -1;
+            double score = 0;
+            for (int p = 0; p < vectors.length; p++) {
+                if (cursors[p] < vectors[p].distinctCount() && vectors[p].id(cursors[p]) == id) {
+                    score += weights[p][cursors[p]];
+                    owners++;
+                    owner = p;
+                    cursors[p]++;
+                }
+            }
+            if (!isRankable(id)) {
+                continue;
+            }
+            if (owners == 1) {
+                unique[owner].offer(id, score);
+            } else {
+                shared.offer(id, score * owners);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.chatdelta.delta;
+
+import java.util.List;
+import java.util.Map;
+
+// Local comparison of the latest response from each provider: lengths,
+// pairwise similarity, and the highest TF-IDF terms they share or that only
+// one of them uses. Shared by the TUI delta column and the headless batch output.
+public record DeltaSummary(
+    Map<String, Integer> lengths,
+    List<PairSimilarity> similarities,
+    List<String> sharedTerms,
+    Map<String, List<String>> uniqueTerms
+) {
+    private static final int RENDERED_TERMS = 5;
+    
+    public static DeltaSummary of(Map<String, String> responses) {
+        return DeltaEngine.shared().summarize(responses);
+    }
+    
+    public String render() {
+        if (lengths.size() < 2) {
+            return "Need at least 2 responses to compare";
+        }
+        
+        StringBuilder delta = new StringBuilder();
+        delta.append("📊 Response Analysis\n\n");
+        
+        // Compare response lengths
+        delta.append("📏 Response Lengths:\n");
+        for (Map.Entry<String, Integer> entry : lengths.entrySet()) {
+            delta.append("• ").append(entry.getKey()).append(": ")
+                .append(entry.getValue()).append(" characters\n");
+        }
+        
+        delta.append("\n🔗 Similarity:\n");
+        for (PairSimilarity pair : similarities) {
+            delta.append("• ").append(pair.first()).append(" ↔ ").append(pair.second()).append(": ")
+                .append(percent(pair.jaccard())).append(" shared words (MinHash ")
+                .append(percent(pair.minHash())).append("), SimHash ")
+                .append(percent(pair.simHash())).append('\n');
+        }
+        
+        if (!sharedTerms.isEmpty()) {
+            delta.append("\n🤝 Common Ground: ")
+                .append(String.join(", ", sharedTerms.subList(0, Math.min(RENDERED_TERMS, sharedTerms.size()))))
+                .append('\n');
+        }
+        
+        delta.append("\n🔍 Key Differences:\n");
+        
+        for (Map.Entry<String, List<String>> entry : uniqueTerms.entrySet()) {
+            List<String> unique = entry.getValue();
+            if (!unique.isEmpty()) {
+                delta.append("\n• Unique to ").append(entry.getKey()).append(": ");
+                delta.append(String.join(", ", unique.subList(0, Math.min(RENDERED_TERMS, unique.size()))));
+            }
+        }
+        
+        return delta.toString();
+    }
+    
+    private static String percent(double value) {
+        return Math.round(value * 100) + "%";
+    }
+}
\ No newline at end of file
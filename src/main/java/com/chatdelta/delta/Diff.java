@@ -0,0 +1,242 @@
+package com.chatdelta.delta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Myers' O(ND) difference algorithm in its linear-space form: each step finds
+// the middle snake of the remaining edit path by searching from both ends,
+// then recurses on the two halves (Hirschberg-style divide and conquer).
+// Memory is O(N + M) for the two frontier arrays plus the edit list, however
+// long the inputs are.
+public final class Diff {
+    public enum Op { EQUAL, DELETE, INSERT }
+    
+    // a[aStart, aEnd) and b[bStart, bEnd); DELETE has an empty b range, INSERT an empty a range
+    public record Edit(Op op, int aStart, int aEnd, int bStart, int bEnd) {
+    }
+    
+    private final int[] a;
+    private final int[] b;
+    private final int[] forward;
+    private final int[] backward;
+    private final List<Edit> edits = new ArrayList<>();
+    
+    private Diff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        int frontier = 2 * ((a.length + b.length + 1) / 2) + 2;
+        this.forward = new int[frontier];
+        this.backward = new int[frontier];
+    }
+    
+    // The shortest edit script turning a into b, with adjacent edits of the same kind merged
+    public static List<Edit> of(int[] a, int[] b) {
+        // Elements the other side never contains can't be part of the LCS;
+        // dropping them first keeps D (and so the O(ND) cost) down to the
+        // edits that actually need searching, as GNU diff does
+        int[] aKept = keptIndices(a, b);
+        int[] bKept = keptIndices(b, a);
+        Diff diff = new Diff(gather(a, aKept), gather(b, bKept));
+        diff.compare(0, aKept.length, 0, bKept.length);
+        if (aKept.length == a.length && bKept.length == b.length) {
+            return diff.edits;
+        }
+        
+        List<Edit> edits = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        for (Edit edit : diff.edits) {
+            if (edit.op() != Op.EQUAL) {
+                continue;
+            }
+            for (int k = 0; k < edit.aEnd() - edit.aStart(); k++) {
+                int matchA = aKept[edit.aStart() + k];
+                int matchB = bKept[edit.bStart() + k];
+                emit(edits, Op.DELETE, i, matchA, j, j);
+                emit(edits, Op.INSERT, matchA, matchA, j, matchB);
+                emit(edits, Op.EQUAL, matchA, matchA + 1, matchB, matchB + 1);
+                i = matchA + 1;
+                j = matchB + 1;
+            }
+        }
+        emit(edits, Op.DELETE, i, a.length, j, j);
+        emit(edits, Op.INSERT, a.length, a.length, j, b.length);
+        return edits;
+    }
+    
+    // The same script seen from b's side
+    public static List<Edit> invert(List<Edit> edits) {
+        List<Edit> inverted = new ArrayList<>(edits.size());
+        for (Edit edit : edits) {
+            Op op = edit.op() == Op.DELETE ? Op.INSERT : edit.op() == Op.INSERT ? Op.DELETE : Op.EQUAL;
+            inverted.add(new Edit(op, edit.bStart(), edit.bEnd(), edit.aStart(), edit.aEnd()));
+        }
+        return inverted;
+    }
+    
+    // Number of elements deleted plus inserted
+    public static int distance(List<Edit> edits) {
+        int distance = 0;
+        for (Edit edit : edits) {
+            if (edit.op() != Op.EQUAL) {
+                distance += (edit.aEnd() - edit.aStart()) + (edit.bEnd() - edit.bStart());
+            }
+        }
+        return distance;
+    }
+    
+    private void compare(int aStart, int aEnd, int bStart, int bEnd) {
+        int prefix = 0;
+        while (aStart + prefix < aEnd && bStart + prefix < bEnd && a[aStart + prefix] == b[bStart + prefix]) {
+            prefix++;
+        }
+        emit(Op.EQUAL, aStart, aStart + prefix, bStart, bStart + prefix);
+        aStart += prefix;
+        bStart += prefix;
+        
+        int suffix = 0;
+        while (aEnd - suffix > aStart && bEnd - suffix > bStart && a[aEnd - suffix - 1] == b[bEnd - suffix - 1]) {
+            suffix++;
+        }
+        aEnd -= suffix;
+        bEnd -= suffix;
+        
+        if (aStart == aEnd) {
+            emit(Op.INSERT, aStart, aStart, bStart, bEnd);
+        } else if (bStart == bEnd) {
+            emit(Op.DELETE, aStart, aEnd, bStart, bStart);
+        } else {
+            long split = middleSnake(aStart, aEnd, bStart, bEnd);
+            if (split < 0) {
+                emit(Op.DELETE, aStart, aEnd, bStart, bStart);
+                emit(Op.INSERT, aEnd, aEnd, bStart, bEnd);
+            } else {
+                int x = aStart + (int) (split >>> 32);
+                int y = bStart + (int) split;
+                compare(aStart, x, bStart, y);
+                compare(x, aEnd, y, bEnd);
+            }
+        }
+        
+        emit(Op.EQUAL, aEnd, aEnd + suffix, bEnd, bEnd + suffix);
+    }
+    
+    // Walks furthest-reaching D-paths forward from the top left and backward
+    // from the bottom right until they overlap; returns the overlap point
+    // (relative x in the high word, y in the low word), or -1 if none
+    private long middleSnake(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        Arrays.fill(forward, 0, length, -1);
+        Arrays.fill(backward, 0, length, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = n - m;
+        // With an odd delta the forward paths meet the backward ones, with an even delta the reverse
+        boolean checkForward = (delta & 1) != 0;
+        int k1Start = 0;
+        int k1End = 0;
+        int k2Start = 0;
+        int k2End = 0;
+        
+        for (int d = 0; d < maxD; d++) {
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1 = k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])
+                    ? forward[k1Offset + 1]
+                    : forward[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aStart + x1] == b[bStart + y1]) {
+                    x1++;
+                    y1++;
+                }
+                forward[k1Offset] = x1;
+                if (x1 > n) {
+                    k1End += 2;
+                } else if (y1 > m) {
+                    k1Start += 2;
+                } else if (checkForward) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < length && backward[k2Offset] != -1 && x1 >= n - backward[k2Offset]) {
+                        return (long) x1 << 32 | y1;
+                    }
+                }
+            }
+            
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2 = k2 == -d || (k2 != d && backward[k2Offset - 1] < backward[k2Offset + 1])
+                    ? backward[k2Offset + 1]
+                    : backward[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a[aEnd - x2 - 1] == b[bEnd - y2 - 1]) {
+                    x2++;
+                    y2++;
+                }
+                backward[k2Offset] = x2;
+                if (x2 > n) {
+                    k2End += 2;
+                } else if (y2 > m) {
+                    k2Start += 2;
+                } else if (!checkForward) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < length && forward[k1Offset] != -1) {
+                        int x1 = forward[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            return (long) x1 << 32 | y1;
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+    
+    private void emit(Op op, int aStart, int aEnd, int bStart, int bEnd) {
+        emit(edits, op, aStart, aEnd, bStart, bEnd);
+    }
+    
+    private static void emit(List<Edit> edits, Op op, int aStart, int aEnd, int bStart, int bEnd) {
+        if (aStart == aEnd && bStart == bEnd) {
+            return;
+        }
+        if (!edits.isEmpty()) {
+            Edit last = edits.get(edits.size() - 1);
+            if (last.op() == op && last.aEnd() == aStart && last.bEnd() == bStart) {
+                edits.set(edits.size() - 1, new Edit(op, last.aStart(), aEnd, last.bStart(), bEnd));
+                return;
+            }
+        }
+        edits.add(new Edit(op, aStart, aEnd, bStart, bEnd));
+    }
+    
+    // Indices of the elements of values that also occur in other
+    private static int[] keptIndices(int[] values, int[] other) {
+        int[] sorted = other.clone();
+        Arrays.sort(sorted);
+        int[] kept = new int[values.length];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (Arrays.binarySearch(sorted, values[i]) >= 0) {
+                kept[count++] = i;
+            }
+        }
+        return count == kept.length ? kept : Arrays.copyOf(kept, count);
+    }
+    
+    private static int[] gather(int[] values, int[] indices) {
+        if (indices.length == values.length) {
+            return values;
+        }
+        int[] gathered = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            gathered[i] = values[indices[i]];
+        }
+        return gathered;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.chatdelta.delta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+// The unit a structural diff compares: whole lines (code, lists) or sentences (prose)
+public enum Granularity {
+    LINE("lines") {
+        @Override
+        public List<String> split(String text) {
+            List<String> lines = new ArrayList<>();
+            int start = 0;
+            for (int i = 0; i <= text.length(); i++) {
+                if (i == text.length() || text.charAt(i) == '\n') {
+                    addTrimmed(lines, text, start, i);
+                    start = i + 1;
+                }
+            }
+            return lines;
+        }
+        
+        @Override
+        String key(String segment) {
+            return segment;
+        }
+    },
+    
+    SENTENCE("sentences") {
+        // Ends a sentence at . ! or ? followed by whitespace, and at every line break
+        @Override
+        public List<String> split(String text) {
+            List<String> sentences = new ArrayList<>();
+            int start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                boolean end = c == '\n'
+                    || ((c == '.' || c == '!' || c == '?') && (i + 1 == text.length() || Character.isWhitespace(text.charAt(i + 1))));
+                if (end) {
+                    addTrimmed(sentences, text, start, c == '\n' ? i : i + 1);
+                    start = i + 1;
+                }
+            }
+            addTrimmed(sentences, text, start, text.length());
+            return sentences;
+        }
+        
+        // Case and spacing differences don't make two sentences different
+        @Override
+        String key(String segment) {
+            return segment.replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        }
+    };
+    
+    private final String plural;
+    
+    Granularity(String plural) {
+        this.plural = plural;
+    }
+    
+    public abstract List<String> split(String text);
+    
+    // What two segments are compared by
+    abstract String key(String segment);
+    
+    // End of the last complete segment in text[from, length): just past its
+    // terminator, or from when none has ended yet. What follows may still grow.
+    int completeUpTo(CharSequence text, int from) {
+        for (int i = text.length() - 1; i >= from; i--) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                return i + 1;
+            }
+            if (this == SENTENCE && (c == '.' || c == '!' || c == '?')
+                    && i + 1 < text.length() && Character.isWhitespace(text.charAt(i + 1))) {
+                return i + 1;
+            }
+        }
+        return from;
+    }
+    
+    public String plural() {
+        return plural;
+    }
+    
+    // Lines once any response carries a code block, sentences otherwise
+    public static Granularity detect(Collection<String> texts) {
+        for (String text : texts) {
+            if (text.contains("```")) {
+                return LINE;
+            }
+        }
+        return SENTENCE;
+    }
+    
+    private static void addTrimmed(List<String> segments, String text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end > start) {
+            segments.add(text.substring(start, end));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.chatdelta.delta;
+
+import java.util.Arrays;
+
+// Growable int array; avoids boxing token IDs into a List<Integer>
+public final class IntList {
+    private int[] values;
+    private int size;
+    
+    public IntList() {
+        this(64);
+    }
+    
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 4)];
+    }
+    
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+    
+    public int get(int index) {
+        return values[index];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,311 @@
+package com.chatdelta.delta;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+// Delta of responses that are still streaming in. Chunks are appended from any
+// thread; refresh() folds in only the text added since the previous refresh.
+// New tokens update term counts, pairwise intersections and the MinHash and
+// SimHash sketches in place, and newly completed sentences or lines extend
+// the alignment input, so the cost of a refresh tracks the new text rather
+// than the whole response. The alignment itself is rebuilt from scratch,
+// but only as the responses grow geometrically (see alignment()). start()
+// runs refreshes at a fixed rate however fast chunks arrive.
+public final class LiveDelta implements AutoCloseable {
+    // The alignment is rebuilt once the segments grew by this fraction (1/n)
+    private static final int ALIGNMENT_GROWTH = 8;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chatdelta-live-delta");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final DeltaEngine engine;
+    private final List<String> names;
+    private final Track[] tracks;
+    private final int[][] intersections;
+    private final IntList tokens = new IntList(256);
+    // Indexed by term ID: which providers used it (bit per provider), and its ranking weight
+    private long[] owners = new long[1024];
+    private double[] weights = new double[1024];
+    private final IntList seen = new IntList(1024);
+    private final Map<String, Integer> segmentIds = new HashMap<>();
+    private Granularity granularity = Granularity.SENTENCE;
+    private Alignment alignment;
+    private int segmentCount;
+    private int alignedSegments;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile ScheduledFuture<?> ticker;
+    private volatile boolean closed;
+    
+    public LiveDelta(DeltaEngine engine, List<String> providers) {
+        if (providers.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " providers can be compared");
+        }
+        this.engine = engine;
+        this.names = List.copyOf(providers);
+        this.tracks = new Track[names.size()];
+        for (int p = 0; p < tracks.length; p++) {
+            tracks[p] = new Track();
+        }
+        this.intersections = new int[names.size()][names.size()];
+    }
+    
+    public void append(String provider, CharSequence chunk) {
+        Track track = track(provider);
+        synchronized (track.text) {
+            track.text.append(chunk);
+        }
+        dirty.set(true);
+    }
+    
+    // The response is complete, so a trailing partial word or sentence counts too
+    public void finish(String provider) {
+        track(provider).finished = true;
+        dirty.set(true);
+    }
+    
+    // Refreshes every period while anything changed and hands the result to onUpdate
+    public void start(Duration period, BiConsumer<DeltaSummary, Alignment> onUpdate) {
+        long nanos = period.toNanos();
+        ticker = SCHEDULER.scheduleAtFixedRate(() -> {
+            if (closed || !dirty.getAndSet(false)) {
+                return;
+            }
+            DeltaSummary summary;
+            Alignment current;
+            synchronized (this) {
+                refresh();
+                summary = summary();
+                current = alignment();
+            }
+            if (!closed) {
+                onUpdate.accept(summary, current);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledFuture<?> running = ticker;
+        if (running != null) {
+            running.cancel(false);
+        }
+    }
+    
+    // Folds in the text appended since the last refresh
+    public synchronized void refresh() {
+        if (granularity == Granularity.SENTENCE && anyCodeBlock()) {
+            // Code is compared line by line; re-split what was already segmented
+            granularity = Granularity.LINE;
+            segmentIds.clear();
+            for (Track track : tracks) {
+                track.segmentedTo = 0;
+                track.segments.clear();
+                track.sequence.clear();
+            }
+            alignment = null;
+            segmentCount = 0;
+        }
+        
+        for (int p = 0; p < tracks.length; p++) {
+            Track track = tracks[p];
+            String tokenText;
+            String segmentText;
+            synchronized (track.text) {
+                boolean finished = track.finished;
+                StringBuilder text = track.text;
+                int tokenEnd = finished ? text.length() : wordBoundary(text, track.tokenizedTo);
+                int segmentEnd = finished ? text.length() : granularity.completeUpTo(text, track.segmentedTo);
+                tokenText = text.substring(track.tokenizedTo, tokenEnd);
+                segmentText = text.substring(track.segmentedTo, segmentEnd);
+                track.tokenizedTo = tokenEnd;
+                track.segmentedTo = segmentEnd;
+                track.length = text.length();
+            }
+            
+            tokens.clear();
+            engine.tokenize(tokenText, 0, tokenText.length(), tokens);
+            for (int i = 0; i < tokens.size(); i++) {
+                addToken(p, track, tokens.get(i));
+            }
+            
+            for (String segment : granularity.split(segmentText)) {
+                track.segments.add(segment);
+                track.sequence.add(segmentIds.computeIfAbsent(granularity.key(segment), key -> segmentIds.size()));
+                segmentCount++;
+            }
+        }
+    }
+    
+    public synchronized DeltaSummary summary() {
+        Map<String, Integer> lengths = new LinkedHashMap<>();
+        for (int p = 0; p < tracks.length; p++) {
+            lengths.put(names.get(p), tracks[p].length);
+        }
+        
+        List<PairSimilarity> similarities = new ArrayList<>();
+        for (int a = 0; a < tracks.length; a++) {
+            for (int b = a + 1; b < tracks.length; b++) {
+                int shared = intersections[a][b];
+                int union = tracks[a].distinct + tracks[b].distinct - shared;
+                similarities.add(new PairSimilarity(names.get(a), names.get(b),
+                    union == 0 ? 1.0 : (double) shared / union,
+                    Sketches.minHashSimilarity(tracks[a].minHash, tracks[b].minHash),
+                    Sketches.simHashSimilarity(Sketches.fingerprint(tracks[a].simHash), Sketches.fingerprint(tracks[b].simHash))));
+            }
+        }
+        
+        // Vocabulary-sized, not text-sized: one pass over the distinct terms seen
+        TopTerms shared = new TopTerms(DeltaEngine.TOP_TERMS);
+        TopTerms[] unique = new TopTerms[tracks.length];
+        for (int p = 0; p < tracks.length; p++) {
+            unique[p] = new TopTerms(DeltaEngine.TOP_TERMS);
+        }
+        for (int i = 0; i < seen.size(); i++) {
+            int id = seen.get(i);
+            double weight = weights[id];
+            if (weight == 0) {
+                continue;
+            }
+            long mask = owners[id];
+            double score = 0;
+            for (long rest = mask; rest != 0; rest &= rest - 1) {
+                int p = Long.numberOfTrailingZeros(rest);
+                score += DeltaEngine.termFrequencyWeight(tracks[p].counts[id]) * weight;
+            }
+            int ownerCount = Long.bitCount(mask);
+            if (ownerCount == 1) {
+                unique[Long.numberOfTrailingZeros(mask)].offer(id, score);
+            } else {
+                shared.offer(id, score * ownerCount);
+            }
+        }
+        
+        Map<String, List<String>> uniqueTerms = new LinkedHashMap<>();
+        for (int p = 0; p < tracks.length; p++) {
+            uniqueTerms.put(names.get(p), unique[p].terms(engine::term));
+        }
+        return new DeltaSummary(lengths, similarities, shared.terms(engine::term), uniqueTerms);
+    }
+    
+    // A rebuild aligns every response in full, so while they stream it waits
+    // until the segments grew by an eighth since the last one. The rebuilt
+    // sizes then grow geometrically, and all rebuilds over a stream cost a
+    // constant factor of one alignment of the final text, not one per
+    // completed sentence. Once every response is finished it is exact.
+    public synchronized Alignment alignment() {
+        boolean grown = (segmentCount - alignedSegments) * ALIGNMENT_GROWTH >= alignedSegments;
+        if (alignment == null || segmentCount != alignedSegments && (grown || allFinished())) {
+            List<List<String>> segments = new ArrayList<>();
+            int[][] sequences = new int[tracks.length][];
+            for (int p = 0; p < tracks.length; p++) {
+                segments.add(tracks[p].segments);
+                sequences[p] = tracks[p].sequence.toArray();
+            }
+            alignment = Alignment.align(granularity, names, segments, sequences);
+            alignedSegments = segmentCount;
+        }
+        return alignment;
+    }
+    
+    private boolean allFinished() {
+        for (Track track : tracks) {
+            if (!track.finished) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void addToken(int p, Track track, int id) {
+        if (id >= owners.length) {
+            int capacity = Math.max(id + 1, owners.length * 2);
+            owners = Arrays.copyOf(owners, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        if (id >= track.counts.length) {
+            track.counts = Arrays.copyOf(track.counts, Math.max(id + 1, track.counts.length * 2));
+        }
+        
+        if (owners[id] == 0) {
+            weights[id] = engine.rankingWeight(id);
+            seen.add(id);
+        }
+        int before = track.counts[id]++;
+        if (before == 0) {
+            track.distinct++;
+            for (long others = owners[id]; others != 0; others &= others - 1) {
+                int q = Long.numberOfTrailingZeros(others);
+                intersections[p][q]++;
+                intersections[q][p]++;
+            }
+            owners[id] |= 1L << p;
+            Sketches.addToMinHash(track.minHash, id);
+        }
+        if (weights[id] > 0) {
+            // Raise the term's SimHash weight from tf-weight(before) to tf-weight(before + 1)
+            double increase = DeltaEngine.termFrequencyWeight(before + 1) - DeltaEngine.termFrequencyWeight(before);
+            Sketches.addToSimHash(track.simHash, id, weights[id] * increase);
+        }
+    }
+    
+    // Picks up where the previous scan stopped rather than at segmentedTo: a
+    // fence that arrives after the scan but before the snapshot is segmented
+    // as prose, and the next scan still finds it and re-splits that text
+    private boolean anyCodeBlock() {
+        for (Track track : tracks) {
+            synchronized (track.text) {
+                if (track.text.indexOf("```", Math.max(0, track.scannedTo - 2)) >= 0) {
+                    return true;
+                }
+                track.scannedTo = track.text.length();
+            }
+        }
+        return false;
+    }
+    
+    private Track track(String provider) {
+        int index = names.indexOf(provider);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown provider: " + provider);
+        }
+        return tracks[index];
+    }
+    
+    // Start of the word still being written at the end of text, so it is not tokenized half-done
+    private static int wordBoundary(CharSequence text, int from) {
+        int end = text.length();
+        while (end > from && (Character.isLetterOrDigit(text.charAt(end - 1)) || text.charAt(end - 1) == '\'')) {
+            end--;
+        }
+        return end;
+    }
+    
+    private static final class Track {
+        final StringBuilder text = new StringBuilder();
+        volatile boolean finished;
+        int tokenizedTo;
+        int segmentedTo;
+        int scannedTo;
+        int length;
+        int[] counts = new int[1024];
+        int distinct;
+        final int[] minHash = Sketches.emptyMinHash();
+        final double[] simHash = new double[64];
+        final List<String> segments = new ArrayList<>();
+        final IntList sequence = new IntList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.chatdelta.delta;
+
+// How alike two providers' answers are: exact Jaccard over distinct words,
+// the MinHash estimate of it, and the TF-IDF weighted SimHash similarity
+public record PairSimilarity(String first, String second, double jaccard, double minHash, double simHash) {
+}
\ No newline at end of file
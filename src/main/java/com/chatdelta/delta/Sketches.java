@@ -0,0 +1,102 @@
+package com.chatdelta.delta;
+
+import java.util.Arrays;
+
+// Fixed-size similarity fingerprints of a TermVector. MinHash estimates
+// Jaccard similarity from k minimum hashes; SimHash folds term weights into
+// 64 bits, so near-duplicate answers differ in few bits regardless of length.
+public final class Sketches {
+    public static final int MIN_HASH_SIZE = 128;
+    
+    private Sketches() {
+    }
+    
+    // k hashes derived from two (Kirsch–Mitzenmacher) and put through a cheap
+    // 32-bit finalizer, so each term's 64-bit mix is computed once, not k times
+    public static int[] minHash(TermVector terms) {
+        int[] signature = emptyMinHash();
+        for (int t = 0; t < terms.distinctCount(); t++) {
+            addToMinHash(signature, terms.id(t));
+        }
+        return signature;
+    }
+    
+    static int[] emptyMinHash() {
+        int[] signature = new int[MIN_HASH_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+    
+    static void addToMinHash(int[] signature, int id) {
+        long mixed = mix(id);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int k = 0; k < MIN_HASH_SIZE; k++) {
+            int hash = mix32(h1 + k * h2) & Integer.MAX_VALUE;
+            if (hash < signature[k]) {
+                signature[k] = hash;
+            }
+        }
+    }
+    
+    public static double minHashSimilarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int k = 0; k < a.length; k++) {
+            if (a[k] == b[k]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+    
+    // weights[t] is the weight of the t-th distinct term (e.g. TF-IDF)
+    public static long simHash(TermVector terms, double[] weights) {
+        double[] bits = new double[64];
+        for (int t = 0; t < terms.distinctCount(); t++) {
+            addToSimHash(bits, terms.id(t), weights[t]);
+        }
+        return fingerprint(bits);
+    }
+    
+    // Per-bit weight sums; a term's weight can be raised later by adding the difference
+    static void addToSimHash(double[] bits, int id, double weight) {
+        long hash = mix(id);
+        for (int bit = 0; bit < 64; bit++) {
+            bits[bit] += weight * ((int) (hash >>> bit & 1) * 2 - 1);
+        }
+    }
+    
+    static long fingerprint(double[] bits) {
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (bits[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+    
+    public static double simHashSimilarity(long a, long b) {
+        return 1.0 - Long.bitCount(a ^ b) / 64.0;
+    }
+    
+    // MurmurHash3 fmix64 finalizer, offset so ID 0 does not hash to 0
+    static long mix(long value) {
+        long h = (value + 1) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    private static int mix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.chatdelta.delta;
+
+import java.util.Arrays;
+
+// Bag of words for one response: distinct token IDs in ascending order with
+// their counts in a parallel array, so set operations are linear merges.
+public final class TermVector {
+    private final int[] ids;
+    private final int[] counts;
+    private final int tokenCount;
+    
+    private TermVector(int[] ids, int[] counts, int tokenCount) {
+        this.ids = ids;
+        this.counts = counts;
+        this.tokenCount = tokenCount;
+    }
+    
+    // Sorts a copy of the tokens and run-length encodes it
+    public static TermVector of(IntList tokens) {
+        int[] sorted = tokens.toArray();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        int[] counts = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct > 0 && sorted[distinct - 1] == sorted[i]) {
+                counts[distinct - 1]++;
+            } else {
+                sorted[distinct] = sorted[i];
+                counts[distinct++] = 1;
+            }
+        }
+        return new TermVector(Arrays.copyOf(sorted, distinct), Arrays.copyOf(counts, distinct), sorted.length);
+    }
+    
+    public int distinctCount() {
+        return ids.length;
+    }
+    
+    public int tokenCount() {
+        return tokenCount;
+    }
+    
+    public int id(int index) {
+        return ids[index];
+    }
+    
+    public int count(int index) {
+        return counts[index];
+    }
+    
+    // Exact |A ∩ B| / |A ∪ B| over distinct terms
+    public double jaccard(TermVector other) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < ids.length && j < other.ids.length) {
+            if (ids[i] == other.ids[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (ids[i] < other.ids[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = ids.length + other.ids.length - shared;
+        return union == 0 ? 1.0 : (double) shared / union;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.chatdelta.delta;
+
+import java.util.Arrays;
+
+// Interns lower-cased words to dense int IDs. Lookups hash the characters in
+// place, so a word seen before costs no allocation; only new words become
+// Strings. Not thread-safe; DeltaEngine guards it.
+public final class TokenDictionary {
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private String[] terms = new String[INITIAL_CAPACITY];
+    private int[] termHashes = new int[INITIAL_CAPACITY];
+    // Open-addressing table of id + 1 (0 = empty), kept at most half full
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private int size;
+    
+    public int size() {
+        return size;
+    }
+    
+    public String term(int id) {
+        return terms[id];
+    }
+    
+    public int intern(CharSequence word) {
+        return intern(word, 0, word.length());
+    }
+    
+    // The ID of text[start, end) after lower-casing
+    public int intern(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return add(text, start, end, hash, slot);
+            }
+            int id = entry - 1;
+            if (termHashes[id] == hash && matches(terms[id], text, start, end)) {
+                return id;
+            }
+        }
+    }
+    
+    // Splits text into words (runs of letters and digits, with inner apostrophes)
+    // and appends their IDs
+    public void tokenize(CharSequence text, int start, int end, IntList out) {
+        int i = start;
+        while (i < end) {
+            while (i < end && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int wordStart = i;
+            while (i < end && (Character.isLetterOrDigit(text.charAt(i))
+                    || (text.charAt(i) == '\'' && i + 1 < end && Character.isLetter(text.charAt(i + 1))))) {
+                i++;
+            }
+            if (i > wordStart) {
+                out.add(intern(text, wordStart, i));
+            }
+        }
+    }
+    
+    private int add(CharSequence text, int start, int end, int hash, int slot) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = Character.toLowerCase(text.charAt(i));
+        }
+        if (size == terms.length) {
+            terms = Arrays.copyOf(terms, size * 2);
+            termHashes = Arrays.copyOf(termHashes, size * 2);
+        }
+        int id = size++;
+        terms[id] = new String(chars);
+        termHashes[id] = hash;
+        table[slot] = id + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+    
+    private void rehash() {
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(termHashes[id]) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        table = grown;
+    }
+    
+    private static boolean matches(String term, CharSequence text, int start, int end) {
+        if (term.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (term.charAt(i - start) != Character.toLowerCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.chatdelta.delta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// The k highest-scoring term IDs, kept sorted by insertion
+final class TopTerms {
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+    
+    TopTerms(int capacity) {
+        ids = new int[capacity];
+        scores = new double[capacity];
+    }
+    
+    void offer(int id, double score) {
+        if (size == ids.length && score <= scores[size - 1]) {
+            return;
+        }
+        int i = size < ids.length ? size++ : size - 1;
+        while (i > 0 && scores[i - 1] < score) {
+            ids[i] = ids[i - 1];
+            scores[i] = scores[i - 1];
+            i--;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+    
+    List<String> terms(IntFunction<String> lookup) {
+        List<String> terms = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            terms.add(lookup.apply(ids[i]));
+        }
+        return terms;
+    }
+}
\ No newline at end of file
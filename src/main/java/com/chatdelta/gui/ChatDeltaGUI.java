@@ -6,14 +6,26 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import com.chatdelta.ComparisonAnalyzer;
 import com.chatdelta.models.ProviderState;
 import com.chatdelta.api.*;
+import com.chatdelta.delta.Alignment;
 
 public class ChatDeltaGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+    
+    private static final int ALIGNED_ROWS_SHOWN = 40;
+    private static final int CLAIMS_SHOWN = 8;
+    private static final int ANALYSES_CACHED = 32;
+    
     // Column components for each AI
     private JTextArea chatGPTColumn;
     private JTextArea geminiColumn;
@@ -28,11 +40,13 @@ public class ChatDeltaGUI extends JFrame {
     private JTextArea analysisPanel;
     private JScrollPane analysisScroll;
     private JButton analyzeButton;
+    private JCheckBox autoAnalyzeBox;
     private JButton clearAnalysisButton;
     
     // Input components
     private JTextArea inputField;
     private JButton sendButton;
+    private JButton stopButton;
     private JButton clearAllButton;
     
     // Provider management
@@ -40,11 +54,30 @@ public class ChatDeltaGUI extends JFrame {
     private Map<String, AIClient> providers;
     private Map<String, JCheckBox> providerCheckboxes;
     private ExecutorService executor;
+    private final ColumnFeeds feeds = new ColumnFeeds();
+    private final ComparisonAnalyzer analyzer = new ComparisonAnalyzer();
     
     // Response tracking for analysis
     private String lastPrompt = "";
     private Map<String, String> lastResponses = new HashMap<>();
+    private String localDiff = "";
+    // The Gemini part of the analysis panel: a status line or the analysis itself
+    private String geminiAnalysis = "";
     private AtomicInteger responseCount = new AtomicInteger(0);
+    private final Set<CompletableFuture<String>> inFlight = ConcurrentHashMap.newKeySet();
+    // Bumped on the EDT for every fan-out so late callbacks from a stopped one are dropped
+    private int generation;
+    
+    // Gemini analyses by analysis prompt, which holds the prompt and every
+    // response, so the same comparison is never paid for twice; EDT only
+    private final Map<String, CompletableFuture<String>> analyses = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<String>> eldest) {
+            return size() > ANALYSES_CACHED;
+        }
+    };
+    // With auto-analysis on, analyze once this many responses are in instead of waiting for all
+    private final int speculateAfter = Integer.getInteger("chatdelta.autoAnalyze.after", 0);
     
     public ChatDeltaGUI(Map<String, ProviderState> providerStates) {
         this.providerStates = providerStates;
@@ -57,14 +90,10 @@ public class ChatDeltaGUI extends JFrame {
     }
     
     private void initializeProviders() {
-        if (providerStates.get("ChatGPT") == ProviderState.ENABLED) {
-            providers.put("ChatGPT", new OpenAIClient(System.getenv("CHATGPT_API_KEY")));
-        }
-        if (providerStates.get("Claude") == ProviderState.ENABLED) {
-            providers.put("Claude", new ClaudeClient(System.getenv("CLAUDE_API_KEY")));
-        }
-        if (providerStates.get("Gemini") == ProviderState.ENABLED) {
-            providers.put("Gemini", new GeminiClient(System.getenv("GEMINI_API_KEY")));
+        for (String name : new String[] {"ChatGPT", "Claude", "Gemini"}) {
+            if (providerStates.get(name) == ProviderState.ENABLED) {
+                providers.put(name, ClientFactory.create(name));
+            }
         }
     }
     
@@ -141,6 +170,13 @@ public class ChatDeltaGUI extends JFrame {
         providerCheckboxes.put(providerKey, checkbox);
         headerPanel.add(checkbox, BorderLayout.EAST);
         
+        // Reflect the provider's circuit breaker next to its enabled state
+        CircuitBreaker breaker = ClientFactory.findCircuitBreaker(providerKey);
+        if (breaker != null) {
+            breaker.addListener(state -> SwingUtilities.invokeLater(() ->
+                titleLabel.setText(state == CircuitState.CLOSED ? title : title + " [" + state + "]")));
+        }
+        
         panel.add(headerPanel, BorderLayout.NORTH);
         
         // Text area setup
@@ -165,7 +201,7 @@ public class ChatDeltaGUI extends JFrame {
     private JPanel createAnalysisPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setPreferredSize(new Dimension(1200, 150));
-        panel.setBorder(BorderFactory.createTitledBorder("Comparison Analysis (Powered by Gemini 2.5)"));
+        panel.setBorder(BorderFactory.createTitledBorder("Comparison Analysis"));
         
         // Analysis text area
         analysisPanel = new JTextArea();
@@ -181,13 +217,25 @@ public class ChatDeltaGUI extends JFrame {
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         
-        analyzeButton = new JButton("Analyze Differences");
+        // The local analysis shows by itself; this asks Gemini for a written one on top
+        analyzeButton = new JButton("Ask Gemini");
         analyzeButton.setEnabled(false);
+        if (!providers.containsKey("Gemini")) {
+            analyzeButton.setToolTipText("Gemini is not available");
+        }
         analyzeButton.addActionListener(e -> analyzeResponses());
         buttonPanel.add(analyzeButton);
         
+        // Opt-in: ask Gemini the moment the last response lands (or the Nth, see speculateAfter)
+        autoAnalyzeBox = new JCheckBox("Auto", Boolean.getBoolean("chatdelta.autoAnalyze"));
+        autoAnalyzeBox.setEnabled(providers.containsKey("Gemini"));
+        autoAnalyzeBox.setToolTipText(speculateAfter > 0
+            ? "Ask Gemini once " + speculateAfter + " responses are in"
+            : "Ask Gemini as soon as every response is in");
+        buttonPanel.add(autoAnalyzeBox);
+        
         clearAnalysisButton = new JButton("Clear Analysis");
-        clearAnalysisButton.addActionListener(e -> analysisPanel.setText(""));
+        clearAnalysisButton.addActionListener(e -> clearAnalysis());
         buttonPanel.add(clearAnalysisButton);
         
         panel.add(buttonPanel, BorderLayout.SOUTH);
@@ -225,6 +273,11 @@ public class ChatDeltaGUI extends JFrame {
         sendButton.addActionListener(e -> sendMessage());
         buttonPanel.add(sendButton);
         
+        stopButton = new JButton("Stop");
+        stopButton.setEnabled(false);
+        stopButton.addActionListener(e -> stopAll());
+        buttonPanel.add(stopButton);
+        
         clearAllButton = new JButton("Clear All");
         clearAllButton.addActionListener(e -> clearAll());
         buttonPanel.add(clearAllButton);
@@ -240,16 +293,22 @@ public class ChatDeltaGUI extends JFrame {
             return;
         }
         
+        // A new prompt supersedes whatever is still running for the previous one
+        stopAll();
+        generation++;
+        
         // Reset for new prompt
         lastPrompt = message;
         lastResponses.clear();
+        localDiff = "";
+        geminiAnalysis = "";
         responseCount.set(0);
         analyzeButton.setEnabled(false);
         
         // Clear previous responses
-        chatGPTColumn.setText("");
-        geminiColumn.setText("");
-        claudeColumn.setText("");
+        feeds.clear(chatGPTColumn);
+        feeds.clear(geminiColumn);
+        feeds.clear(claudeColumn);
         analysisPanel.setText("");
         
         // Add user prompt to each column
@@ -259,21 +318,18 @@ public class ChatDeltaGUI extends JFrame {
         int expectedResponses = 0;
         
         if (providerCheckboxes.get("ChatGPT").isSelected() && providers.containsKey("ChatGPT")) {
-            chatGPTColumn.setText(promptDisplay + "ChatGPT: Thinking...\n");
             expectedResponses++;
-            sendToProvider("ChatGPT", message, chatGPTColumn);
+            sendToProvider("ChatGPT", message, feeds.open(chatGPTColumn, promptDisplay + "ChatGPT: ", "Thinking..."));
         }
         
         if (providerCheckboxes.get("Gemini").isSelected() && providers.containsKey("Gemini")) {
-            geminiColumn.setText(promptDisplay + "Gemini: Thinking...\n");
             expectedResponses++;
-            sendToProvider("Gemini", message, geminiColumn);
+            sendToProvider("Gemini", message, feeds.open(geminiColumn, promptDisplay + "Gemini: ", "Thinking..."));
         }
         
         if (providerCheckboxes.get("Claude").isSelected() && providers.containsKey("Claude")) {
-            claudeColumn.setText(promptDisplay + "Claude: Thinking...\n");
             expectedResponses++;
-            sendToProvider("Claude", message, claudeColumn);
+            sendToProvider("Claude", message, feeds.open(claudeColumn, promptDisplay + "Claude: ", "Thinking..."));
         }
         
         // Store expected response count for analysis button enabling
@@ -285,32 +341,47 @@ public class ChatDeltaGUI extends JFrame {
         inputField.requestFocus();
     }
     
-    private void sendToProvider(String providerName, String message, JTextArea column) {
+    // Chunks go through the column's feed, which appends them once per frame
+    private void sendToProvider(String providerName, String message, ColumnFeeds.Feed column) {
         AIClient client = providers.get(providerName);
+        int current = generation;
         if (client != null) {
-            client.sendPrompt(message).thenAccept(response -> {
+            CompletableFuture<String> call = client.streamPrompt(message, column::append);
+            track(call);
+            call.thenAccept(response -> {
+                column.complete(response);
                 SwingUtilities.invokeLater(() -> {
-                    String promptDisplay = "Prompt: " + message + "\n\n";
-                    column.setText(promptDisplay + providerName + ": " + response + "\n");
+                    if (current != generation) {
+                        return;
+                    }
                     
                     // Store response for analysis
                     lastResponses.put(providerName, response);
+                    if (autoAnalyzeBox.isSelected() && lastResponses.size() == speculateAfter) {
+                        analyzeResponses();
+                    }
                     
                     // Check if all responses are received
                     int responses = responseCount.incrementAndGet();
                     if (responses >= getActiveProviderCount()) {
-                        analyzeButton.setEnabled(true);
+                        allResponsesReceived();
                     }
                 });
             }).exceptionally(e -> {
                 SwingUtilities.invokeLater(() -> {
-                    String promptDisplay = "Prompt: " + message + "\n\n";
-                    column.setText(promptDisplay + providerName + " Error: " + e.getMessage() + "\n");
+                    if (current != generation) {
+                        return;
+                    }
+                    if (Futures.isAbandoned(e)) {
+                        column.append(" [stopped]\n");
+                    } else {
+                        column.append("\n" + providerName + " Error: " + e.getMessage() + "\n");
+                    }
                     
                     // Count error as a response for enabling analysis
                     int responses = responseCount.incrementAndGet();
                     if (responses >= getActiveProviderCount()) {
-                        analyzeButton.setEnabled(true);
+                        allResponsesReceived();
                     }
                 });
                 return null;
@@ -318,6 +389,22 @@ public class ChatDeltaGUI extends JFrame {
         }
     }
     
+    private void track(CompletableFuture<String> call) {
+        inFlight.add(call);
+        stopButton.setEnabled(true);
+        call.whenComplete((result, error) -> {
+            inFlight.remove(call);
+            SwingUtilities.invokeLater(() -> stopButton.setEnabled(!inFlight.isEmpty()));
+        });
+    }
+    
+    // Aborts every request still in flight, down to the HTTP calls
+    private void stopAll() {
+        for (CompletableFuture<String> call : inFlight) {
+            call.cancel(true);
+        }
+    }
+    
     private int getActiveProviderCount() {
         int count = 0;
         for (Map.Entry<String, JCheckBox> entry : providerCheckboxes.entrySet()) {
@@ -328,13 +415,65 @@ public class ChatDeltaGUI extends JFrame {
         return count;
     }
     
+    // Shows the local analysis and structural diff right away; the Gemini
+    // analysis is an optional refinement, run when asked for or, in auto
+    // mode, right away unless a speculative one already covers these responses
+    private void allResponsesReceived() {
+        analyzeButton.setEnabled(providers.containsKey("Gemini") && !lastResponses.isEmpty());
+        if (autoAnalyzeBox.isSelected() && !lastResponses.isEmpty()
+                && (speculateAfter <= 0 || lastResponses.size() < speculateAfter)) {
+            analyzeResponses();
+        }
+        if (lastResponses.size() < 2) {
+            return;
+        }
+        int current = generation;
+        Map<String, String> responses = new LinkedHashMap<>(lastResponses);
+        CompletableFuture<String> structure =
+            CompletableFuture.supplyAsync(() -> Alignment.of(responses).render(ALIGNED_ROWS_SHOWN), executor);
+        analyzer.analyzeAsync(responses)
+            .thenCombine(structure, (report, aligned) -> "LOCAL ANALYSIS:\n\n" + report.render(CLAIMS_SHOWN) + "\n" + aligned)
+            .whenComplete((local, e) -> SwingUtilities.invokeLater(() -> {
+                if (current != generation) {
+                    return;
+                }
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    localDiff = "Local analysis failed: " + cause.getMessage();
+                } else {
+                    localDiff = local;
+                }
+                showAnalysis();
+            }));
+    }
+    
+    // Results still on their way for these responses show up when they land
+    private void clearAnalysis() {
+        localDiff = "";
+        geminiAnalysis = "";
+        analysisPanel.setText("");
+    }
+    
+    private void showAnalysis() {
+        if (geminiAnalysis.isEmpty() || localDiff.isEmpty()) {
+            analysisPanel.setText(geminiAnalysis + localDiff);
+        } else {
+            analysisPanel.setText(geminiAnalysis + "\n\n" + localDiff);
+        }
+        analysisPanel.setCaretPosition(0);
+    }
+    
     private void analyzeResponses() {
         if (lastResponses.isEmpty()) {
             analysisPanel.setText("No responses to analyze.");
             return;
         }
-        
-        analysisPanel.setText("Analyzing differences...\n");
+        AIClient geminiClient = providers.get("Gemini");
+        if (geminiClient == null) {
+            geminiAnalysis = "Gemini is not available for analysis.";
+            showAnalysis();
+            return;
+        }
         
         // Construct analysis prompt
         StringBuilder analysisPrompt = new StringBuilder();
@@ -368,31 +507,61 @@ public class ChatDeltaGUI extends JFrame {
                       .append("5. Any errors or concerns\n\n")
                       .append("Format your response clearly with bullet points or sections.");
         
-        // Send to Gemini for analysis
-        AIClient geminiClient = providers.get("Gemini");
-        if (geminiClient != null) {
-            geminiClient.sendPrompt(analysisPrompt.toString()).thenAccept(analysis -> {
-                SwingUtilities.invokeLater(() -> {
-                    analysisPanel.setText("COMPARISON ANALYSIS:\n\n" + analysis);
-                });
-            }).exceptionally(e -> {
-                SwingUtilities.invokeLater(() -> {
-                    analysisPanel.setText("Analysis failed: " + e.getMessage());
-                });
+        // Send to Gemini for analysis, unless this exact comparison already was
+        String key = analysisPrompt.toString();
+        CompletableFuture<String> analysis = analyses.get(key);
+        if (analysis == null) {
+            CompletableFuture<String> call = geminiClient.sendPrompt(key);
+            analyses.put(key, call);
+            track(call);
+            // A failed or stopped analysis may be asked for again
+            call.exceptionally(e -> {
+                SwingUtilities.invokeLater(() -> analyses.remove(key, call));
                 return null;
             });
-        } else {
-            analysisPanel.setText("Gemini is not available for analysis.");
+            analysis = call;
         }
+        
+        int current = generation;
+        int expected = getActiveProviderCount();
+        String title = lastResponses.size() < expected
+            ? "GEMINI ANALYSIS (" + lastResponses.size() + " of " + expected + " responses):\n\n"
+            : "GEMINI ANALYSIS:\n\n";
+        if (!analysis.isDone()) {
+            geminiAnalysis = "Asking Gemini...";
+            showAnalysis();
+        }
+        analysis.thenAccept(text -> {
+            SwingUtilities.invokeLater(() -> {
+                if (current == generation) {
+                    geminiAnalysis = title + text;
+                    showAnalysis();
+                }
+            });
+        }).exceptionally(e -> {
+            SwingUtilities.invokeLater(() -> {
+                if (current != generation) {
+                    return;
+                }
+                // The local analysis still stands when the refinement fails
+                geminiAnalysis = Futures.isAbandoned(e) ? "Analysis stopped." : "Analysis failed: " + e.getMessage();
+                showAnalysis();
+            });
+            return null;
+        });
     }
     
     private void clearAll() {
-        chatGPTColumn.setText("");
-        geminiColumn.setText("");
-        claudeColumn.setText("");
+        stopAll();
+        generation++;
+        feeds.clear(chatGPTColumn);
+        feeds.clear(geminiColumn);
+        feeds.clear(claudeColumn);
         analysisPanel.setText("");
         inputField.setText("");
         lastResponses.clear();
+        localDiff = "";
+        geminiAnalysis = "";
         lastPrompt = "";
         analyzeButton.setEnabled(false);
     }
@@ -407,6 +576,7 @@ public class ChatDeltaGUI extends JFrame {
     @Override
     public void dispose() {
         executor.shutdown();
+        feeds.stop();
         super.dispose();
     }
 }
\ No newline at end of file
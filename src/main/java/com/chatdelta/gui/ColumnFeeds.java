@@ -0,0 +1,149 @@
+package com.chatdelta.gui;
+
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Streams text into text areas without flooding the EDT. Chunks arriving on
+// any thread are buffered per column and appended to the document at most
+// once per frame, so each frame re-lays-out only the paragraph that grew
+// instead of the whole text, however many columns are streaming.
+final class ColumnFeeds {
+    private static final int FRAME_MILLIS = 33;
+    // A column scrolled to within this many pixels of the end keeps following it
+    private static final int FOLLOW_SLACK = 16;
+    private static final String NO_CONTENT = "(no content)";
+    
+    private final Map<JTextArea, Feed> current = new HashMap<>();
+    private final Set<Feed> dirty = new LinkedHashSet<>();
+    private final Timer timer;
+    private boolean scheduled;
+    
+    ColumnFeeds() {
+        timer = new Timer(FRAME_MILLIS, e -> flush());
+        timer.setRepeats(false);
+    }
+    
+    // Replaces the area's text and returns the feed that appends to it. The
+    // placeholder shows until the first text arrives. Text still pending for
+    // the area's previous feed is dropped, and that feed stops appending.
+    // Must be called on the EDT.
+    Feed open(JTextArea area, String text, String placeholder) {
+        // Appends at the end would otherwise move the caret and scroll to it
+        if (area.getCaret() instanceof DefaultCaret caret) {
+            caret.setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        }
+        Feed feed = new Feed(area, placeholder.length());
+        synchronized (this) {
+            Feed previous = current.put(area, feed);
+            if (previous != null) {
+                previous.closed = true;
+                dirty.remove(previous);
+            }
+        }
+        area.setText(text + placeholder);
+        return feed;
+    }
+    
+    void clear(JTextArea area) {
+        open(area, "", "");
+    }
+    
+    void stop() {
+        timer.stop();
+    }
+    
+    // Appends everything buffered since the last frame; runs on the EDT
+    void flush() {
+        List<Feed> feeds;
+        List<String> texts;
+        synchronized (this) {
+            scheduled = false;
+            feeds = new ArrayList<>(dirty);
+            texts = new ArrayList<>(dirty.size());
+            for (Feed feed : dirty) {
+                texts.add(feed.pending.toString());
+                feed.pending.setLength(0);
+            }
+            dirty.clear();
+        }
+        for (int i = 0; i < feeds.size(); i++) {
+            feeds.get(i).write(texts.get(i));
+        }
+    }
+    
+    final class Feed {
+        private final JTextArea area;
+        private final StringBuilder pending = new StringBuilder();
+        // Guarded by the enclosing ColumnFeeds, like pending
+        private boolean closed;
+        private boolean received;
+        // Only touched on the EDT
+        private int placeholder;
+        
+        private Feed(JTextArea area, int placeholder) {
+            this.area = area;
+            this.placeholder = placeholder;
+        }
+        
+        // Safe to call from any thread, e.g. a stream listener
+        void append(String text) {
+            synchronized (ColumnFeeds.this) {
+                if (closed || text.isEmpty()) {
+                    return;
+                }
+                pending.append(text);
+                received = true;
+                dirty.add(this);
+                if (!scheduled) {
+                    scheduled = true;
+                    timer.restart();
+                }
+            }
+        }
+        
+        // Called once the stream succeeded with its full text. A stream that
+        // delivered no chunks would otherwise leave the placeholder showing,
+        // so the text, or a marker when there is none, replaces it.
+        void complete(String text) {
+            synchronized (ColumnFeeds.this) {
+                if (received) {
+                    return;
+                }
+            }
+            append(text.isEmpty() ? NO_CONTENT : text);
+        }
+        
+        private void write(String text) {
+            Document document = area.getDocument();
+            JScrollPane scroll = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, area);
+            JScrollBar bar = scroll != null ? scroll.getVerticalScrollBar() : null;
+            boolean following = bar != null
+                && bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - FOLLOW_SLACK;
+            try {
+                if (placeholder > 0) {
+                    document.remove(document.getLength() - placeholder, placeholder);
+                    placeholder = 0;
+                }
+                document.insertString(document.getLength(), text, null);
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+            if (following) {
+                // Runs after the revalidation the insert queued, once the bar knows the new height
+                SwingUtilities.invokeLater(() -> bar.setValue(bar.getMaximum()));
+            }
+        }
+    }
+}
\ No newline at end of file
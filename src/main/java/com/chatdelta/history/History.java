@@ -0,0 +1,156 @@
+package com.chatdelta.history;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+
+// A chat history whose heap use doesn't grow with its length. The newest
+// messages, the ones still being streamed into, stay in a small on-heap
+// window; a message leaving the window is written once to a TranscriptLog
+// on disk (created on first use, so short histories never touch disk) and
+// read back from there when scrolled to.
+//
+// Every change takes the next value of a counter as its stamp, and the last
+// few changes are kept in a journal so a viewer can ask which messages
+// changed since the stamp it last saw without comparing every message.
+public class History implements AutoCloseable {
+    public static final int DEFAULT_HOT_ENTRIES = 64;
+    private static final int JOURNAL_ENTRIES = 256;
+    
+    private final Supplier<TranscriptLog> logFactory;
+    private final String[] hot;
+    private final long[] hotStamps;
+    private TranscriptLog log;
+    // Messages [0, coldCount) are in the log, [coldCount, size) are hot
+    private int coldCount;
+    private int size;
+    private long version;
+    
+    // The message index of each of the last JOURNAL_ENTRIES changes, by stamp
+    private final int[] journal = new int[JOURNAL_ENTRIES];
+    
+    public History() {
+        this(DEFAULT_HOT_ENTRIES, TranscriptLog::new);
+    }
+    
+    public History(int hotEntries, Supplier<TranscriptLog> logFactory) {
+        if (hotEntries < 1) {
+            throw new IllegalArgumentException("hotEntries must be at least 1");
+        }
+        this.logFactory = logFactory;
+        this.hot = new String[hotEntries];
+        this.hotStamps = new long[hotEntries];
+    }
+    
+    // Returns the message's index, so a streamed reply can be updated in place
+    public synchronized int add(String message) {
+        if (size - coldCount == hot.length) {
+            spillOldest();
+        }
+        long stamp = ++version;
+        hot[size % hot.length] = message;
+        hotStamps[size % hot.length] = stamp;
+        record(stamp, size);
+        return size++;
+    }
+    
+    public synchronized void set(int index, String message) {
+        checkIndex(index);
+        long stamp = ++version;
+        if (index >= coldCount) {
+            hot[index % hot.length] = message;
+            hotStamps[index % hot.length] = stamp;
+        } else {
+            log.replace(index, message, stamp);
+        }
+        record(stamp, index);
+    }
+    
+    public synchronized String get(int index) {
+        checkIndex(index);
+        return index >= coldCount ? hot[index % hot.length] : log.read(index);
+    }
+    
+    // The stamp of the last change to this message
+    public synchronized long stamp(int index) {
+        checkIndex(index);
+        return index >= coldCount ? hotStamps[index % hot.length] : log.stamp(index);
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    // The stamp of the last change to any message
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    // The lowest index changed or added after the given stamp, or size() if
+    // none was. When the journal no longer reaches back that far, 0: the
+    // caller has to treat every message as changed.
+    public synchronized int firstChangedSince(long stamp) {
+        if (stamp >= version) {
+            return size;
+        }
+        if (version - stamp > JOURNAL_ENTRIES) {
+            return 0;
+        }
+        int first = size;
+        for (long s = stamp + 1; s <= version; s++) {
+            first = Math.min(first, journal[(int) (s % JOURNAL_ENTRIES)]);
+        }
+        return first;
+    }
+    
+    // Messages held on the heap right now
+    public synchronized int getHotCount() {
+        return size - coldCount;
+    }
+    
+    // A read-only view; cold messages are read from disk on every get
+    public List<String> asList() {
+        return new View();
+    }
+    
+    private void spillOldest() {
+        if (log == null) {
+            log = logFactory.get();
+        }
+        int slot = coldCount % hot.length;
+        log.append(hot[slot], hotStamps[slot]);
+        hot[slot] = null;
+        coldCount++;
+    }
+    
+    private void record(long stamp, int index) {
+        journal[(int) (stamp % JOURNAL_ENTRIES)] = index;
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+    
+    private final class View extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return History.this.get(index);
+        }
+        
+        @Override
+        public int size() {
+            return History.this.size();
+        }
+    }
+}
\ No newline at end of file
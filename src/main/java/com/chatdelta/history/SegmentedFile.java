@@ -0,0 +1,109 @@
+package com.chatdelta.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// One growable byte space made of fixed-size memory-mapped segment files.
+// Positions run on across segments, so a value may straddle two of them;
+// longs at multiples of 8 never do. The pages belong to the OS page cache,
+// not the Java heap, and are written back to the files as it sees fit.
+final class SegmentedFile implements AutoCloseable {
+    private final Path directory;
+    private final String name;
+    private final int segmentBytes;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    
+    SegmentedFile(Path directory, String name, int segmentBytes) {
+        if (segmentBytes < 8 || segmentBytes % 8 != 0) {
+            throw new IllegalArgumentException("Segment size must be a positive multiple of 8");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+    }
+    
+    void write(long position, byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            MappedByteBuffer segment = segment(position);
+            int at = (int) (position % segmentBytes);
+            int count = Math.min(length, segmentBytes - at);
+            segment.put(at, bytes, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+    
+    void read(long position, byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            MappedByteBuffer segment = segment(position);
+            int at = (int) (position % segmentBytes);
+            int count = Math.min(length, segmentBytes - at);
+            segment.get(at, bytes, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+    
+    void putInt(long position, int value) {
+        write(position, new byte[] {
+            (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
+        }, 0, 4);
+    }
+    
+    int getInt(long position) {
+        byte[] bytes = new byte[4];
+        read(position, bytes, 0, 4);
+        return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+    
+    // position must be a multiple of 8
+    void putLong(long position, long value) {
+        segment(position).putLong((int) (position % segmentBytes), value);
+    }
+    
+    long getLong(long position) {
+        return segment(position).getLong((int) (position % segmentBytes));
+    }
+    
+    // Maps segments up to the one holding position, creating their files as needed
+    private MappedByteBuffer segment(long position) {
+        long index = position / segmentBytes;
+        while (segments.size() <= index) {
+            Path file = directory.resolve(String.format("%s-%06d.seg", name, segments.size()));
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            file.toFile().deleteOnExit();
+        }
+        return segments.get((int) index);
+    }
+    
+    // Drops the mappings and deletes the files. A mapping is only released
+    // once collected, so where open mappings pin their files (Windows) the
+    // delete is left to deleteOnExit.
+    @Override
+    public void close() {
+        int count = segments.size();
+        segments.clear();
+        for (int i = 0; i < count; i++) {
+            try {
+                Files.deleteIfExists(directory.resolve(String.format("%s-%06d.seg", name, i)));
+            } catch (IOException e) {
+                // deleteOnExit gets another try
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.chatdelta.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Append-only transcript on disk. Each message is a record of a 4-byte
+// length and its UTF-8 text in a memory-mapped segment log; a second mapped
+// file holds 16 bytes per message (record position, change stamp) so any
+// message is found without scanning. Replacing a message appends a new
+// record and repoints its index entry; the old record is left behind.
+public class TranscriptLog implements AutoCloseable {
+    static final int DEFAULT_SEGMENT_BYTES = 8 << 20;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    
+    private final Path directory;
+    private final boolean ownsDirectory;
+    private final SegmentedFile records;
+    private final SegmentedFile index;
+    private long end;
+    private int size;
+    
+    // A fresh temporary directory, deleted on close
+    public TranscriptLog() {
+        this(createTempDirectory(), true, DEFAULT_SEGMENT_BYTES);
+    }
+    
+    public TranscriptLog(Path directory, int segmentBytes) {
+        this(directory, false, segmentBytes);
+    }
+    
+    private TranscriptLog(Path directory, boolean ownsDirectory, int segmentBytes) {
+        this.directory = directory;
+        this.ownsDirectory = ownsDirectory;
+        this.records = new SegmentedFile(directory, "records", segmentBytes);
+        this.index = new SegmentedFile(directory, "index", segmentBytes);
+    }
+    
+    private static Path createTempDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("chatdelta-history");
+            directory.toFile().deleteOnExit();
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // Returns the new message's number
+    public int append(String message, long stamp) {
+        index(size, write(message), stamp);
+        return size++;
+    }
+    
+    public void replace(int entry, String message, long stamp) {
+        checkEntry(entry);
+        index(entry, write(message), stamp);
+    }
+    
+    public String read(int entry) {
+        checkEntry(entry);
+        long position = index.getLong((long) entry * INDEX_ENTRY_BYTES);
+        byte[] bytes = new byte[records.getInt(position)];
+        records.read(position + 4, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    public long stamp(int entry) {
+        checkEntry(entry);
+        return index.getLong((long) entry * INDEX_ENTRY_BYTES + 8);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // Bytes written to the record log, superseded records included
+    public long getLogBytes() {
+        return end;
+    }
+    
+    private long write(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        long position = end;
+        records.putInt(position, bytes.length);
+        records.write(position + 4, bytes, 0, bytes.length);
+        end = position + 4 + bytes.length;
+        return position;
+    }
+    
+    private void index(int entry, long position, long stamp) {
+        index.putLong((long) entry * INDEX_ENTRY_BYTES, position);
+        index.putLong((long) entry * INDEX_ENTRY_BYTES + 8, stamp);
+    }
+    
+    private void checkEntry(int entry) {
+        if (entry < 0 || entry >= size) {
+            throw new IndexOutOfBoundsException("Entry " + entry + " of " + size);
+        }
+    }
+    
+    @Override
+    public void close() {
+        records.close();
+        index.close();
+        if (ownsDirectory) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                // Not empty if a mapped file couldn't be deleted yet; deleteOnExit covers it
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.chatdelta.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram in the style of HdrHistogram: each power of two is split
+// into 32 linear sub-buckets, giving about 3% relative precision from 1us up to
+// an hour in under 900 counters. Recording is a single atomic increment.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int BUCKETS = index(MAX_MICROS) + 1;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+    
+    public void recordNanos(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+        counts.incrementAndGet(index(micros));
+        sumMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+    
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+    
+    public double getSumSeconds() {
+        return sumMicros.sum() / 1_000_000.0;
+    }
+    
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+    
+    // Midpoint of the bucket holding the given percentile (0..100), or 0 when empty
+    public double percentileMillis(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                int shift = shift(i);
+                long lower = lowerBound(i);
+                return Math.min(lower + ((1L << shift) - 1) / 2.0, maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+    
+    // Values below 32 map one-to-one; above that, `shift` drops the low bits so
+    // the remaining mantissa always falls in [32, 64).
+    static int index(long micros) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKETS + (int) (micros >>> shift);
+    }
+    
+    static long lowerBound(int index) {
+        int shift = shift(index);
+        return (long) (index - shift * SUB_BUCKETS) << shift;
+    }
+    
+    private static int shift(int index) {
+        return Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.chatdelta.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per provider/model metrics. The shared registry publishes every entry as an
+// MXBean under com.chatdelta:type=ProviderMetrics (disable with
+// -Dchatdelta.jmx=false) and can dump itself in Prometheus text format.
+public final class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+    private static final MetricsRegistry SHARED =
+        new MetricsRegistry(!"false".equals(System.getProperty("chatdelta.jmx")));
+    
+    private record Key(String provider, String model) {
+    }
+    
+    private final Map<Key, ProviderMetrics> metrics = new ConcurrentHashMap<>();
+    private final boolean publishToJmx;
+    
+    public MetricsRegistry() {
+        this(false);
+    }
+    
+    private MetricsRegistry(boolean publishToJmx) {
+        this.publishToJmx = publishToJmx;
+    }
+    
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+    
+    public ProviderMetrics forProvider(String provider, String model) {
+        return metrics.computeIfAbsent(new Key(provider, model), key -> {
+            ProviderMetrics created = new ProviderMetrics(provider, model);
+            if (publishToJmx) {
+                register(created);
+            }
+            return created;
+        });
+    }
+    
+    public List<ProviderMetrics> all() {
+        List<ProviderMetrics> sorted = new ArrayList<>(metrics.values());
+        sorted.sort(Comparator.comparing(ProviderMetrics::getProvider).thenComparing(ProviderMetrics::getModel));
+        return sorted;
+    }
+    
+    public void writePrometheus(Writer out) throws IOException {
+        List<ProviderMetrics> all = all();
+        
+        header(out, "chatdelta_requests_total", "counter", "Provider calls started");
+        for (ProviderMetrics m : all) {
+            sample(out, "chatdelta_requests_total", labels(m), m.getRequests());
+        }
+        
+        header(out, "chatdelta_errors_total", "counter", "Failed provider calls by error class");
+        for (ProviderMetrics m : all) {
+            for (Map.Entry<String, Long> entry : m.getErrorsByClass().entrySet()) {
+                sample(out, "chatdelta_errors_total", labels(m) + ",class=\"" + escape(entry.getKey()) + "\"",
+                    entry.getValue());
+            }
+        }
+        
+        header(out, "chatdelta_request_bytes_total", "counter", "Request body bytes sent");
+        for (ProviderMetrics m : all) {
+            sample(out, "chatdelta_request_bytes_total", labels(m), m.getRequestBytes());
+        }
+        
+        header(out, "chatdelta_response_bytes_total", "counter", "Response body bytes received");
+        for (ProviderMetrics m : all) {
+            sample(out, "chatdelta_response_bytes_total", labels(m), m.getResponseBytes());
+        }
+        
+        header(out, "chatdelta_tokens_total", "counter", "Tokens reported by the provider");
+        for (ProviderMetrics m : all) {
+            sample(out, "chatdelta_tokens_total", labels(m) + ",type=\"input\"", m.getInputTokens());
+            sample(out, "chatdelta_tokens_total", labels(m) + ",type=\"output\"", m.getOutputTokens());
+            sample(out, "chatdelta_tokens_total", labels(m) + ",type=\"cached_input\"", m.getCachedInputTokens());
+        }
+        
+        header(out, "chatdelta_latency_seconds", "summary", "Call latency by phase");
+        for (ProviderMetrics m : all) {
+            summary(out, labels(m) + ",phase=\"connect\"", m.connect());
+            summary(out, labels(m) + ",phase=\"ttfb\"", m.timeToFirstByte());
+            summary(out, labels(m) + ",phase=\"total\"", m.total());
+            summary(out, labels(m) + ",phase=\"ttft\"", m.timeToFirstToken());
+        }
+        out.flush();
+    }
+    
+    private static void summary(Writer out, String labels, LatencyHistogram histogram) throws IOException {
+        long count = histogram.getCount();
+        if (count == 0) {
+            return;
+        }
+        for (double quantile : QUANTILES) {
+            sample(out, "chatdelta_latency_seconds", labels + ",quantile=\"" + quantile + "\"",
+                histogram.percentileMillis(quantile * 100) / 1000.0);
+        }
+        sample(out, "chatdelta_latency_seconds_sum", labels, histogram.getSumSeconds());
+        sample(out, "chatdelta_latency_seconds_count", labels, count);
+    }
+    
+    private static void header(Writer out, String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+    
+    private static void sample(Writer out, String name, String labels, long value) throws IOException {
+        out.write(name + "{" + labels + "} " + value + "\n");
+    }
+    
+    private static void sample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name + "{" + labels + "} " + String.format(Locale.ROOT, "%.6f", value) + "\n");
+    }
+    
+    private static String labels(ProviderMetrics m) {
+        return "provider=\"" + escape(m.getProvider()) + "\",model=\"" + escape(m.getModel()) + "\"";
+    }
+    
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+    
+    private static void register(ProviderMetrics m) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.chatdelta:type=ProviderMetrics,provider="
+                + ObjectName.quote(m.getProvider()) + ",model=" + ObjectName.quote(m.getModel()));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(m, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not publish metrics over JMX: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
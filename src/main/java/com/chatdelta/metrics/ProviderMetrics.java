@@ -0,0 +1,173 @@
+package com.chatdelta.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Everything recorded about one provider/model pair. All recording paths are
+// lock-free so they can run on OkHttp's threads without adding contention.
+public final class ProviderMetrics implements ProviderMetricsMXBean {
+    private final String provider;
+    private final String model;
+    private final LatencyHistogram connect = new LatencyHistogram();
+    private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram timeToFirstToken = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+    private final LongAdder cachedInputTokens = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    
+    ProviderMetrics(String provider, String model) {
+        this.provider = provider;
+        this.model = model;
+    }
+    
+    public LatencyHistogram connect() {
+        return connect;
+    }
+    
+    public LatencyHistogram timeToFirstByte() {
+        return timeToFirstByte;
+    }
+    
+    public LatencyHistogram total() {
+        return total;
+    }
+    
+    public LatencyHistogram timeToFirstToken() {
+        return timeToFirstToken;
+    }
+    
+    public void recordRequest() {
+        requests.increment();
+    }
+    
+    public void recordError(String errorClass) {
+        errors.computeIfAbsent(errorClass, c -> new LongAdder()).increment();
+    }
+    
+    public void recordRequestBytes(long bytes) {
+        requestBytes.add(bytes);
+    }
+    
+    public void recordResponseBytes(long bytes) {
+        responseBytes.add(bytes);
+    }
+    
+    public void recordTokens(long input, long output) {
+        recordTokens(input, output, 0);
+    }
+    
+    // cached is the part of input served from the provider's prompt cache
+    public void recordTokens(long input, long output, long cached) {
+        inputTokens.add(input);
+        outputTokens.add(output);
+        cachedInputTokens.add(cached);
+    }
+    
+    @Override
+    public String getProvider() {
+        return provider;
+    }
+    
+    @Override
+    public String getModel() {
+        return model;
+    }
+    
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+    
+    @Override
+    public long getErrors() {
+        long sum = 0;
+        for (LongAdder count : errors.values()) {
+            sum += count.sum();
+        }
+        return sum;
+    }
+    
+    @Override
+    public Map<String, Long> getErrorsByClass() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        errors.forEach((errorClass, count) -> snapshot.put(errorClass, count.sum()));
+        return snapshot;
+    }
+    
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+    
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+    
+    @Override
+    public long getInputTokens() {
+        return inputTokens.sum();
+    }
+    
+    @Override
+    public long getOutputTokens() {
+        return outputTokens.sum();
+    }
+    
+    @Override
+    public long getCachedInputTokens() {
+        return cachedInputTokens.sum();
+    }
+    
+    @Override
+    public double getConnectP50Millis() {
+        return connect.percentileMillis(50);
+    }
+    
+    @Override
+    public double getConnectP99Millis() {
+        return connect.percentileMillis(99);
+    }
+    
+    @Override
+    public double getTimeToFirstByteP50Millis() {
+        return timeToFirstByte.percentileMillis(50);
+    }
+    
+    @Override
+    public double getTimeToFirstByteP99Millis() {
+        return timeToFirstByte.percentileMillis(99);
+    }
+    
+    @Override
+    public double getTotalP50Millis() {
+        return total.percentileMillis(50);
+    }
+    
+    @Override
+    public double getTotalP95Millis() {
+        return total.percentileMillis(95);
+    }
+    
+    @Override
+    public double getTotalP99Millis() {
+        return total.percentileMillis(99);
+    }
+    
+    @Override
+    public double getTimeToFirstTokenP50Millis() {
+        return timeToFirstToken.percentileMillis(50);
+    }
+    
+    @Override
+    public double getTimeToFirstTokenP99Millis() {
+        return timeToFirstToken.percentileMillis(99);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.chatdelta.metrics;
+
+import java.util.Map;
+
+public interface ProviderMetricsMXBean {
+    String getProvider();
+    String getModel();
+    
+    long getRequests();
+    long getErrors();
+    Map<String, Long> getErrorsByClass();
+    
+    long getRequestBytes();
+    long getResponseBytes();
+    long getInputTokens();
+    long getOutputTokens();
+    long getCachedInputTokens();
+    
+    double getConnectP50Millis();
+    double getConnectP99Millis();
+    double getTimeToFirstByteP50Millis();
+    double getTimeToFirstByteP99Millis();
+    double getTotalP50Millis();
+    double getTotalP95Millis();
+    double getTotalP99Millis();
+    double getTimeToFirstTokenP50Millis();
+    double getTimeToFirstTokenP99Millis();
+}
\ No newline at end of file
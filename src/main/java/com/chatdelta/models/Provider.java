@@ -1,20 +1,50 @@
 package com.chatdelta.models;
 
 import com.chatdelta.api.AIClient;
-import java.util.ArrayList;
+import com.chatdelta.api.Conversation;
+import com.chatdelta.history.History;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
+// The history keeps only its newest messages on the heap and spills older
+// ones to disk, so a long session doesn't grow the heap; it is safe to read
+// and write from any thread.
 public class Provider {
+    // About 100k tokens of earlier turns; past that the oldest half is dropped
+    private static final long MAX_CONTEXT_CHARACTERS = 400_000;
+    
     private final String name;
     private final ProviderState state;
-    private final List<String> chatHistory;
+    private final History chatHistory;
     private final AIClient client;
+    private volatile Conversation conversation = Conversation.start();
+    // Prompts sent but not yet recorded, oldest first; guarded by this
+    private final Deque<PendingTurn> pendingTurns = new ArrayDeque<>();
+    
+    // A prompt and the conversation it was sent in
+    public static final class PendingTurn {
+        private final Conversation conversation;
+        private final String prompt;
+        private String reply;
+        private boolean done;
+        
+        private PendingTurn(Conversation conversation, String prompt) {
+            this.conversation = conversation;
+            this.prompt = prompt;
+        }
+        
+        // The turns to send ahead of the prompt
+        public Conversation conversation() {
+            return conversation;
+        }
+    }
     
     public Provider(String name, ProviderState state, AIClient client) {
         this.name = name;
         this.state = state;
         this.client = client;
-        this.chatHistory = new ArrayList<>();
+        this.chatHistory = new History();
         this.chatHistory.add(createWelcomeMessage(name));
     }
     
@@ -28,7 +58,7 @@ public class Provider {
                 
                 ✨ Ready to assist with your queries!
                 I excel at general knowledge, coding, writing, and analysis.""";
-                
+            
             case "Gemini" -> """
                 🌟 Welcome to Gemini!
                 
@@ -37,7 +67,7 @@ public class Provider {
                 
                 🎯 Ready for action!
                 I'm great at multimodal tasks, long context understanding, and creative problem-solving.""";
-                
+            
             case "Claude" -> """
                 🎭 Welcome to Claude!
                 
@@ -46,7 +76,7 @@ public class Provider {
                 
                 👋 Hello there!
                 I'm designed to be helpful, harmless, and honest. I excel at analysis, writing, coding, and thoughtful conversation.""";
-                
+            
             default -> """
                 🤖 Welcome to AI Chat!
                 
@@ -63,6 +93,10 @@ public class Provider {
     }
     
     public List<String> getChatHistory() {
+        return chatHistory.asList();
+    }
+    
+    public History getHistory() {
         return chatHistory;
     }
     
@@ -70,7 +104,65 @@ public class Provider {
         return client;
     }
     
-    public void addToHistory(String message) {
-        chatHistory.add(message);
+    // Returns the message's index, so a streamed reply can be updated in place
+    public int addToHistory(String message) {
+        return chatHistory.add(message);
+    }
+    
+    public void updateHistory(int index, String message) {
+        chatHistory.set(index, message);
+    }
+    
+    // The turns sent ahead of the next prompt
+    public Conversation getConversation() {
+        return conversation;
+    }
+    
+    // Captures the conversation the prompt goes out in. Its reply, recorded
+    // or abandoned through the returned turn, joins the conversation after
+    // the replies to earlier prompts, whichever finishes first.
+    public synchronized PendingTurn beginTurn(String prompt) {
+        PendingTurn turn = new PendingTurn(conversation, prompt);
+        pendingTurns.add(turn);
+        return turn;
+    }
+    
+    public synchronized void recordTurn(PendingTurn turn, String reply) {
+        turn.reply = reply;
+        turn.done = true;
+        drainTurns();
+    }
+    
+    // For a prompt that failed or was stopped; later replies stop waiting on it
+    public synchronized void abandonTurn(PendingTurn turn) {
+        turn.done = true;
+        drainTurns();
+    }
+    
+    private void drainTurns() {
+        while (!pendingTurns.isEmpty() && pendingTurns.peek().done) {
+            PendingTurn turn = pendingTurns.poll();
+            // A reply to a conversation that has since been replaced is dropped
+            if (turn.reply != null && turn.conversation.id() == conversation.id()) {
+                Conversation next = conversation.then(turn.prompt, turn.reply);
+                if (next.characterCount() > MAX_CONTEXT_CHARACTERS) {
+                    next = next.withoutOldest(next.turns().size() / 2);
+                }
+                conversation = next;
+            }
+        }
+    }
+    
+    // Returns the conversation being replaced, so its client can release it
+    public synchronized Conversation startNewConversation() {
+        Conversation previous = conversation;
+        conversation = Conversation.start();
+        pendingTurns.clear();
+        return previous;
+    }
+    
+    // Changes whenever the history does, so views can skip unchanged frames
+    public long getHistoryVersion() {
+        return chatHistory.getVersion();
     }
 }
\ No newline at end of file
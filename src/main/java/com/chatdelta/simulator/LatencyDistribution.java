@@ -0,0 +1,54 @@
+package com.chatdelta.simulator;
+
+import java.time.Duration;
+import java.util.Random;
+
+// How long the simulator waits before the first byte of a response
+public interface LatencyDistribution {
+    long sampleNanos(Random random);
+    
+    static LatencyDistribution fixed(Duration latency) {
+        long nanos = latency.toNanos();
+        return random -> nanos;
+    }
+    
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long low = min.toNanos();
+        long span = Math.max(0, max.toNanos() - low);
+        return random -> low + (span == 0 ? 0 : (long) (random.nextDouble() * span));
+    }
+    
+    // Long right tail, like real provider latencies: half of the samples fall
+    // below `median` and one in a hundred above `p99`.
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        double sigma = Math.max(0, (Math.log(p99.toNanos()) - mu) / 2.3263);
+        return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+    
+    // "250ms", "uniform:100ms..400ms" or "lognormal:300ms,3s"
+    static LatencyDistribution parse(String spec) {
+        String value = spec.trim();
+        if (value.startsWith("uniform:")) {
+            String[] bounds = value.substring("uniform:".length()).split("\\.\\.");
+            return uniform(parseDuration(bounds[0]), parseDuration(bounds[1]));
+        }
+        if (value.startsWith("lognormal:")) {
+            String[] points = value.substring("lognormal:".length()).split(",");
+            return logNormal(parseDuration(points[0]), parseDuration(points[1]));
+        }
+        return fixed(parseDuration(value));
+    }
+    
+    // "250ms", "1.5s" or a bare number of milliseconds
+    static Duration parseDuration(String value) {
+        String text = value.trim();
+        if (text.endsWith("ms")) {
+            return Duration.ofNanos((long) (Double.parseDouble(text.substring(0, text.length() - 2)) * 1_000_000));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofNanos((long) (Double.parseDouble(text.substring(0, text.length() - 1)) * 1_000_000_000));
+        }
+        return Duration.ofNanos((long) (Double.parseDouble(text) * 1_000_000));
+    }
+}
\ No newline at end of file
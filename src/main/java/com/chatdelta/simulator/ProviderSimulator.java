@@ -0,0 +1,292 @@
+package com.chatdelta.simulator;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local stand-in for the OpenAI, Anthropic and Gemini HTTP APIs. Speaks each
+// provider's wire format (plain JSON and SSE streaming) with configurable
+// first-byte latency, token pacing, answer length and injected 429/5xx errors,
+// so load and benchmark runs need no network or API keys. Prompt caching is
+// emulated too: a request that starts with messages an earlier request sent
+// reports them as cached input, and Gemini's cachedContents can be created,
+// named and deleted.
+public final class ProviderSimulator implements AutoCloseable {
+    private static final int MAX_CACHED_PREFIXES = 4096;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, SimulatorConfig> configs = new ConcurrentHashMap<>();
+    private final SimulatorConfig defaults;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    // Hashes of message lists earlier requests made cacheable, oldest evicted first
+    private final Set<Integer> cachedPrefixes = Collections.synchronizedSet(
+        Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                return size() > MAX_CACHED_PREFIXES;
+            }
+        }));
+    private final Map<String, Integer> cachedContents = new ConcurrentHashMap<>();
+    private final AtomicLong cachedContentIds = new AtomicLong();
+    
+    private ProviderSimulator(HttpServer server, ExecutorService executor, SimulatorConfig defaults) {
+        this.server = server;
+        this.executor = executor;
+        this.defaults = defaults;
+    }
+    
+    // Binds an ephemeral loopback port; every provider starts with the given config
+    public static ProviderSimulator start(SimulatorConfig defaults) throws IOException {
+        // The JDK server otherwise leaves Nagle on, stalling small SSE writes on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "chatdelta-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ProviderSimulator simulator = new ProviderSimulator(server, executor, defaults);
+        server.createContext("/v1/chat/completions", exchange -> simulator.handle(exchange, WireFormat.OPENAI));
+        server.createContext("/v1/messages", exchange -> simulator.handle(exchange, WireFormat.ANTHROPIC));
+        server.createContext("/v1beta/models/", exchange -> simulator.handle(exchange, WireFormat.GEMINI));
+        server.createContext("/v1beta/cachedContents", simulator::handleCachedContents);
+        server.setExecutor(executor);
+        server.start();
+        return simulator;
+    }
+    
+    // Starts with chatdelta.sim.* settings for each provider
+    public static ProviderSimulator fromSystemProperties() throws IOException {
+        ProviderSimulator simulator = start(SimulatorConfig.DEFAULT);
+        for (WireFormat format : WireFormat.values()) {
+            simulator.configure(format.key, SimulatorConfig.fromSystemProperties(format.key));
+        }
+        return simulator;
+    }
+    
+    // provider is openai, anthropic or gemini
+    public ProviderSimulator configure(String provider, SimulatorConfig config) {
+        configs.put(provider, config);
+        return this;
+    }
+    
+    public String baseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + "/";
+    }
+    
+    // Points clients created from now on at this simulator and lets them run without API keys
+    public void useForClients() {
+        System.setProperty("chatdelta.openai.baseUrl", baseUrl());
+        System.setProperty("chatdelta.anthropic.baseUrl", baseUrl());
+        System.setProperty("chatdelta.gemini.baseUrl", baseUrl());
+        System.setProperty("chatdelta.simulate", "true");
+    }
+    
+    public long getRequestCount() {
+        return requests.get();
+    }
+    
+    public long getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+    
+    // Gemini cachedContents created and not yet deleted
+    public int getCachedContentCount() {
+        return cachedContents.size();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    private void handle(HttpExchange exchange, WireFormat format) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            SimulatorConfig config = configs.getOrDefault(format.key, defaults);
+            Random random = ThreadLocalRandom.current();
+            
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            // Checked before anything is sent, so a bad request still gets its 400
+            boolean stream;
+            List<String> messages;
+            String cachedContent;
+            try {
+                JsonObject request = WireFormat.parse(body);
+                stream = exchange.getRequestURI().getPath().endsWith(":streamGenerateContent")
+                    || (request.has("stream") && request.get("stream").getAsBoolean());
+                messages = format.messages(request);
+                JsonElement cached = request.get("cachedContent");
+                cachedContent = cached != null ? cached.getAsString() : null;
+            } catch (RuntimeException e) {
+                send(exchange, 400, format.error(400, "Malformed request body"));
+                return;
+            }
+            if (messages.isEmpty()) {
+                send(exchange, 400, format.error(400, "No messages"));
+                return;
+            }
+            
+            sleepNanos(config.firstByteLatency().sampleNanos(random));
+            
+            double roll = random.nextDouble();
+            if (roll < config.rateLimitProbability()) {
+                injectedErrors.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After",
+                    Long.toString(Math.max(1, config.retryAfter().toSeconds())));
+                send(exchange, 429, format.error(429, "Rate limit exceeded (simulated)"));
+                return;
+            }
+            if (roll < config.rateLimitProbability() + config.serverErrorProbability()) {
+                injectedErrors.incrementAndGet();
+                send(exchange, format.overloadStatus,
+                    format.error(format.overloadStatus, "Service overloaded (simulated)"));
+                return;
+            }
+            
+            String prompt = messages.get(messages.size() - 1);
+            int chars = config.minResponseChars()
+                + random.nextInt(config.maxResponseChars() - config.minResponseChars() + 1);
+            String text = ResponseText.generate(prompt, format.key, chars);
+            List<String> tokens = ResponseText.tokens(text);
+            int storedTokens = cachedContent != null ? cachedContents.getOrDefault(cachedContent, 0) : 0;
+            
+            // Hash and length of the first k messages, after any named cachedContent
+            int[] prefixHashes = new int[messages.size() + 1];
+            int[] prefixChars = new int[messages.size() + 1];
+            prefixHashes[0] = cachedContent != null ? cachedContent.hashCode() : 1;
+            for (int i = 0; i < messages.size(); i++) {
+                prefixHashes[i + 1] = 31 * prefixHashes[i] + messages.get(i).hashCode();
+                prefixChars[i + 1] = prefixChars[i] + messages.get(i).length();
+            }
+            int cachedChars = 0;
+            for (int k = messages.size() - 1; k > 0; k--) {
+                if (cachedPrefixes.contains(prefixHashes[k])) {
+                    cachedChars = prefixChars[k];
+                    break;
+                }
+            }
+            // Anthropic caches only up to a cache_control breakpoint, which
+            // the client puts on the last reply, just before the new prompt
+            if (format.cachesImplicitly()) {
+                cachedPrefixes.add(prefixHashes[messages.size()]);
+            } else if (body.contains("\"cache_control\"")) {
+                cachedPrefixes.add(prefixHashes[messages.size() - 1]);
+            }
+            int cachedTokens = storedTokens + cachedChars / 4;
+            int inputTokens = Math.max(1, storedTokens + prefixChars[messages.size()] / 4);
+            long tokenNanos = config.tokensPerSecond() > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) / config.tokensPerSecond())
+                : 0;
+            
+            if (!stream) {
+                // A blocking answer arrives once the whole generation would have finished
+                sleepNanos(tokenNanos * tokens.size());
+                send(exchange, 200, format.completion(text, inputTokens, tokens.size(), cachedTokens));
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            write(out, format.streamStart(inputTokens, cachedTokens));
+            for (String token : tokens) {
+                sleepNanos(tokenNanos);
+                write(out, format.streamChunk(token));
+            }
+            write(out, format.streamEnd(inputTokens, tokens.size(), cachedTokens));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // POST v1beta/cachedContents stores contents under a new name; DELETE
+    // v1beta/cachedContents/{id} drops them
+    private void handleCachedContents(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            if (exchange.getRequestMethod().equals("DELETE")) {
+                String name = path.substring(path.indexOf("cachedContents/"));
+                send(exchange, cachedContents.remove(name) != null ? 200 : 404, "{}");
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, WireFormat.GEMINI.error(405, "Method not allowed"));
+                return;
+            }
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            JsonObject request;
+            int characters = 0;
+            try {
+                request = WireFormat.parse(body);
+                for (String message : WireFormat.GEMINI.messages(request)) {
+                    characters += message.length();
+                }
+            } catch (RuntimeException e) {
+                send(exchange, 400, WireFormat.GEMINI.error(400, "Malformed request body"));
+                return;
+            }
+            String name = "cachedContents/sim-" + cachedContentIds.incrementAndGet();
+            int tokens = characters / 4;
+            cachedContents.put(name, tokens);
+            
+            JsonObject usage = new JsonObject();
+            usage.addProperty("totalTokenCount", tokens);
+            JsonObject created = new JsonObject();
+            created.addProperty("name", name);
+            created.add("model", request.get("model"));
+            created.add("usageMetadata", usage);
+            send(exchange, 200, created.toString());
+        }
+    }
+    
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+    
+    private static void write(OutputStream out, String frames) throws IOException {
+        if (!frames.isEmpty()) {
+            out.write(frames.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+    
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.chatdelta.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic answer text. The same prompt gives every provider a shared
+// backbone of sentences plus some of its own, so simulated answers overlap
+// partially the way real ones do.
+final class ResponseText {
+    private static final double SHARED_SENTENCE_RATIO = 0.6;
+    private static final String[] WORDS = {
+        "the", "a", "system", "request", "latency", "model", "provider", "answer", "cache", "token",
+        "stream", "connection", "retry", "budget", "queue", "throughput", "tail", "percentile", "client",
+        "server", "response", "prompt", "context", "window", "cost", "error", "timeout", "backoff",
+        "usually", "often", "rarely", "depends", "on", "with", "without", "because", "when", "while",
+        "faster", "slower", "larger", "smaller", "important", "expensive", "cheap", "reliable", "fair",
+        "measure", "reduce", "increase", "avoid", "prefer", "reuse", "batch", "split", "merge", "compare",
+    };
+    
+    private ResponseText() {
+    }
+    
+    static String generate(String prompt, String provider, int chars) {
+        long promptSeed = prompt.hashCode();
+        Random shared = new Random(promptSeed);
+        Random own = new Random(promptSeed * 31 + provider.hashCode());
+        StringBuilder text = new StringBuilder(chars + 64);
+        int sentences = 0;
+        while (text.length() < chars) {
+            String common = sentence(shared);
+            String specific = sentence(own);
+            text.append(own.nextDouble() < SHARED_SENTENCE_RATIO ? common : specific);
+            text.append(++sentences % 5 == 0 ? "\n\n" : " ");
+        }
+        text.setLength(chars);
+        return text.toString().trim();
+    }
+    
+    // Splits the text into stream chunks of one word (and its trailing space) each
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || (Character.isWhitespace(text.charAt(i - 1)) && !Character.isWhitespace(text.charAt(i)))) {
+                tokens.add(text.substring(start, i));
+                start = i;
+            }
+        }
+        return tokens;
+    }
+    
+    private static String sentence(Random random) {
+        int length = 6 + random.nextInt(12);
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i == 0) {
+                sentence.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                sentence.append(' ').append(word);
+            }
+        }
+        return sentence.append('.').toString();
+    }
+}
\ No newline at end of file
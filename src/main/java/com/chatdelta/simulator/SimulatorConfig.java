@@ -0,0 +1,84 @@
+package com.chatdelta.simulator;
+
+import java.time.Duration;
+
+// Behavior of one simulated provider. tokensPerSecond <= 0 streams as fast as possible.
+public record SimulatorConfig(
+    LatencyDistribution firstByteLatency,
+    double tokensPerSecond,
+    int minResponseChars,
+    int maxResponseChars,
+    double rateLimitProbability,
+    double serverErrorProbability,
+    Duration retryAfter
+) {
+    // The handler draws from these per request, so a bad value would only
+    // surface there as a dropped connection
+    public SimulatorConfig {
+        if (minResponseChars < 0 || maxResponseChars < minResponseChars) {
+            throw new IllegalArgumentException("Response length must be 0 <= min <= max, got "
+                + minResponseChars + "-" + maxResponseChars);
+        }
+        if (!isProbability(rateLimitProbability) || !isProbability(serverErrorProbability)
+                || rateLimitProbability + serverErrorProbability > 1) {
+            throw new IllegalArgumentException("Error probabilities must be in [0, 1] and sum to at most 1, got "
+                + rateLimitProbability + " and " + serverErrorProbability);
+        }
+    }
+    
+    public static final SimulatorConfig DEFAULT = new SimulatorConfig(
+        LatencyDistribution.logNormal(Duration.ofMillis(400), Duration.ofSeconds(3)),
+        80, 400, 1600, 0, 0, Duration.ofSeconds(1));
+    
+    // Answers immediately at full speed; for tests and benchmarks
+    public static final SimulatorConfig INSTANT = new SimulatorConfig(
+        LatencyDistribution.fixed(Duration.ZERO), 0, 400, 1600, 0, 0, Duration.ofSeconds(1));
+    
+    public SimulatorConfig withResponseChars(int min, int max) {
+        return new SimulatorConfig(firstByteLatency, tokensPerSecond, min, max,
+            rateLimitProbability, serverErrorProbability, retryAfter);
+    }
+    
+    public SimulatorConfig withErrors(double rateLimitProbability, double serverErrorProbability) {
+        return new SimulatorConfig(firstByteLatency, tokensPerSecond, minResponseChars, maxResponseChars,
+            rateLimitProbability, serverErrorProbability, retryAfter);
+    }
+    
+    // chatdelta.sim.<provider>.<key> overrides chatdelta.sim.<key>; provider is
+    // openai, anthropic or gemini. Keys: latency, tokensPerSecond, chars
+    // ("400-1600"), rate429, rate5xx, retryAfter.
+    public static SimulatorConfig fromSystemProperties(String provider) {
+        String latency = property(provider, "latency");
+        String tokensPerSecond = property(provider, "tokensPerSecond");
+        String chars = property(provider, "chars");
+        String rate429 = property(provider, "rate429");
+        String rate5xx = property(provider, "rate5xx");
+        String retryAfter = property(provider, "retryAfter");
+        
+        int minChars = DEFAULT.minResponseChars();
+        int maxChars = DEFAULT.maxResponseChars();
+        if (chars != null) {
+            String[] range = chars.split("-");
+            minChars = Integer.parseInt(range[0].trim());
+            maxChars = range.length > 1 ? Integer.parseInt(range[1].trim()) : minChars;
+        }
+        return new SimulatorConfig(
+            latency != null ? LatencyDistribution.parse(latency) : DEFAULT.firstByteLatency(),
+            tokensPerSecond != null ? Double.parseDouble(tokensPerSecond) : DEFAULT.tokensPerSecond(),
+            minChars,
+            Math.max(minChars, maxChars),
+            rate429 != null ? Double.parseDouble(rate429) : DEFAULT.rateLimitProbability(),
+            rate5xx != null ? Double.parseDouble(rate5xx) : DEFAULT.serverErrorProbability(),
+            retryAfter != null ? LatencyDistribution.parseDuration(retryAfter) : DEFAULT.retryAfter()
+        );
+    }
+    
+    private static boolean isProbability(double value) {
+        return value >= 0 && value <= 1;
+    }
+    
+    private static String property(String provider, String key) {
+        String value = System.getProperty("chatdelta.sim." + provider + "." + key);
+        return value != null ? value : System.getProperty("chatdelta.sim." + key);
+    }
+}
\ No newline at end of file
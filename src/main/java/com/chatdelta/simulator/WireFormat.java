@@ -0,0 +1,324 @@
+package com.chatdelta.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Request parsing and response framing for each provider's HTTP API
+enum WireFormat {
+    OPENAI("openai", 503) {
+        @Override
+        List<String> messages(JsonObject request) {
+            List<String> texts = new ArrayList<>();
+            for (JsonElement message : request.getAsJsonArray("messages")) {
+                texts.add(text(message.getAsJsonObject().get("content")));
+            }
+            return texts;
+        }
+        
+        @Override
+        String error(int status, String message) {
+            JsonObject error = new JsonObject();
+            error.addProperty("message", message);
+            error.addProperty("type", switch (status) {
+                case 400 -> "invalid_request_error";
+                case 429 -> "rate_limit_exceeded";
+                default -> "server_error";
+            });
+            JsonObject body = new JsonObject();
+            body.add("error", error);
+            return body.toString();
+        }
+        
+        @Override
+        String completion(String text, int inputTokens, int outputTokens, int cachedTokens) {
+            JsonObject message = new JsonObject();
+            message.addProperty("role", "assistant");
+            message.addProperty("content", text);
+            JsonObject choice = new JsonObject();
+            choice.addProperty("index", 0);
+            choice.add("message", message);
+            choice.addProperty("finish_reason", "stop");
+            JsonObject body = new JsonObject();
+            body.addProperty("id", "chatcmpl-simulated");
+            body.addProperty("object", "chat.completion");
+            body.add("choices", array(choice));
+            body.add("usage", promptUsage(inputTokens, outputTokens, cachedTokens));
+            return body.toString();
+        }
+        
+        @Override
+        String streamStart(int inputTokens, int cachedTokens) {
+            return "";
+        }
+        
+        @Override
+        String streamChunk(String text) {
+            JsonObject delta = new JsonObject();
+            delta.addProperty("content", text);
+            return data(chunk(delta, null));
+        }
+        
+        // Ends with the usage chunk stream_options.include_usage asks for
+        @Override
+        String streamEnd(int inputTokens, int outputTokens, int cachedTokens) {
+            JsonObject usage = new JsonObject();
+            usage.addProperty("id", "chatcmpl-simulated");
+            usage.addProperty("object", "chat.completion.chunk");
+            usage.add("choices", new JsonArray());
+            usage.add("usage", promptUsage(inputTokens, outputTokens, cachedTokens));
+            return data(chunk(new JsonObject(), "stop")) + data(usage) + "data: [DONE]\n\n";
+        }
+        
+        private JsonObject promptUsage(int inputTokens, int outputTokens, int cachedTokens) {
+            JsonObject usage = usage("prompt_tokens", inputTokens, "completion_tokens", outputTokens,
+                "total_tokens", inputTokens + outputTokens);
+            usage.add("prompt_tokens_details", usage("cached_tokens", cachedTokens));
+            return usage;
+        }
+        
+        private JsonObject chunk(JsonObject delta, String finishReason) {
+            JsonObject choice = new JsonObject();
+            choice.addProperty("index", 0);
+            choice.add("delta", delta);
+            choice.addProperty("finish_reason", finishReason);
+            JsonObject body = new JsonObject();
+            body.addProperty("id", "chatcmpl-simulated");
+            body.addProperty("object", "chat.completion.chunk");
+            body.add("choices", array(choice));
+            return body;
+        }
+    },
+    
+    ANTHROPIC("anthropic", 529) {
+        @Override
+        List<String> messages(JsonObject request) {
+            return OPENAI.messages(request);
+        }
+        
+        // Nothing is cached without a cache_control breakpoint
+        @Override
+        boolean cachesImplicitly() {
+            return false;
+        }
+        
+        @Override
+        String error(int status, String message) {
+            JsonObject error = new JsonObject();
+            error.addProperty("type", switch (status) {
+                case 400 -> "invalid_request_error";
+                case 429 -> "rate_limit_error";
+                default -> "overloaded_error";
+            });
+            error.addProperty("message", message);
+            JsonObject body = new JsonObject();
+            body.addProperty("type", "error");
+            body.add("error", error);
+            return body.toString();
+        }
+        
+        @Override
+        String completion(String text, int inputTokens, int outputTokens, int cachedTokens) {
+            JsonObject block = new JsonObject();
+            block.addProperty("type", "text");
+            block.addProperty("text", text);
+            JsonObject body = new JsonObject();
+            body.addProperty("id", "msg_simulated");
+            body.addProperty("type", "message");
+            body.addProperty("role", "assistant");
+            body.add("content", array(block));
+            body.addProperty("stop_reason", "end_turn");
+            body.add("usage", usage("input_tokens", inputTokens - cachedTokens, "output_tokens", outputTokens,
+                "cache_read_input_tokens", cachedTokens));
+            return body.toString();
+        }
+        
+        // input_tokens leaves out what was read from the cache
+        @Override
+        String streamStart(int inputTokens, int cachedTokens) {
+            JsonObject message = new JsonObject();
+            message.addProperty("id", "msg_simulated");
+            message.addProperty("type", "message");
+            message.addProperty("role", "assistant");
+            message.add("content", new JsonArray());
+            message.add("usage", usage("input_tokens", inputTokens - cachedTokens, "output_tokens", 0,
+                "cache_read_input_tokens", cachedTokens));
+            JsonObject start = new JsonObject();
+            start.addProperty("type", "message_start");
+            start.add("message", message);
+            
+            JsonObject block = new JsonObject();
+            block.addProperty("type", "text");
+            block.addProperty("text", "");
+            JsonObject blockStart = new JsonObject();
+            blockStart.addProperty("type", "content_block_start");
+            blockStart.addProperty("index", 0);
+            blockStart.add("content_block", block);
+            return event("message_start", start) + event("content_block_start", blockStart);
+        }
+        
+        @Override
+        String streamChunk(String text) {
+            JsonObject delta = new JsonObject();
+            delta.addProperty("type", "text_delta");
+            delta.addProperty("text", text);
+            JsonObject body = new JsonObject();
+            body.addProperty("type", "content_block_delta");
+            body.addProperty("index", 0);
+            body.add("delta", delta);
+            return event("content_block_delta", body);
+        }
+        
+        @Override
+        String streamEnd(int inputTokens, int outputTokens, int cachedTokens) {
+            JsonObject blockStop = new JsonObject();
+            blockStop.addProperty("type", "content_block_stop");
+            blockStop.addProperty("index", 0);
+            JsonObject delta = new JsonObject();
+            delta.addProperty("stop_reason", "end_turn");
+            JsonObject messageDelta = new JsonObject();
+            messageDelta.addProperty("type", "message_delta");
+            messageDelta.add("delta", delta);
+            messageDelta.add("usage", usage("output_tokens", outputTokens));
+            JsonObject stop = new JsonObject();
+            stop.addProperty("type", "message_stop");
+            return event("content_block_stop", blockStop) + event("message_delta", messageDelta)
+                + event("message_stop", stop);
+        }
+        
+        private String event(String name, JsonObject body) {
+            return "event: " + name + "\n" + data(body);
+        }
+    },
+    
+    GEMINI("gemini", 503) {
+        @Override
+        List<String> messages(JsonObject request) {
+            List<String> texts = new ArrayList<>();
+            for (JsonElement content : request.getAsJsonArray("contents")) {
+                texts.add(text(content.getAsJsonObject().get("parts")));
+            }
+            return texts;
+        }
+        
+        @Override
+        String error(int status, String message) {
+            JsonObject error = new JsonObject();
+            error.addProperty("code", status);
+            error.addProperty("message", message);
+            error.addProperty("status", switch (status) {
+                case 400 -> "INVALID_ARGUMENT";
+                case 429 -> "RESOURCE_EXHAUSTED";
+                default -> "UNAVAILABLE";
+            });
+            JsonObject body = new JsonObject();
+            body.add("error", error);
+            return body.toString();
+        }
+        
+        @Override
+        String completion(String text, int inputTokens, int outputTokens, int cachedTokens) {
+            return candidate(text, "STOP", inputTokens, outputTokens, cachedTokens).toString();
+        }
+        
+        @Override
+        String streamStart(int inputTokens, int cachedTokens) {
+            return "";
+        }
+        
+        @Override
+        String streamChunk(String text) {
+            return data(candidate(text, null, 0, 0, 0));
+        }
+        
+        @Override
+        String streamEnd(int inputTokens, int outputTokens, int cachedTokens) {
+            return data(candidate("", "STOP", inputTokens, outputTokens, cachedTokens));
+        }
+        
+        private JsonObject candidate(String text, String finishReason, int inputTokens, int outputTokens,
+                                     int cachedTokens) {
+            JsonObject part = new JsonObject();
+            part.addProperty("text", text);
+            JsonObject content = new JsonObject();
+            content.add("parts", array(part));
+            content.addProperty("role", "model");
+            JsonObject candidate = new JsonObject();
+            candidate.add("content", content);
+            if (finishReason != null) {
+                candidate.addProperty("finishReason", finishReason);
+            }
+            candidate.addProperty("index", 0);
+            JsonObject body = new JsonObject();
+            body.add("candidates", array(candidate));
+            if (finishReason != null) {
+                body.add("usageMetadata", usage("promptTokenCount", inputTokens,
+                    "candidatesTokenCount", outputTokens, "totalTokenCount", inputTokens + outputTokens,
+                    "cachedContentTokenCount", cachedTokens));
+            }
+            return body;
+        }
+    };
+    
+    final String key;
+    final int overloadStatus;
+    
+    WireFormat(String key, int overloadStatus) {
+        this.key = key;
+        this.overloadStatus = overloadStatus;
+    }
+    
+    // The text of every message in the request, the new prompt last
+    abstract List<String> messages(JsonObject request);
+    abstract String error(int status, String message);
+    abstract String completion(String text, int inputTokens, int outputTokens, int cachedTokens);
+    abstract String streamStart(int inputTokens, int cachedTokens);
+    abstract String streamChunk(String text);
+    abstract String streamEnd(int inputTokens, int outputTokens, int cachedTokens);
+    
+    // Whether a prefix seen in an earlier request is cached without being marked
+    boolean cachesImplicitly() {
+        return true;
+    }
+    
+    static JsonObject parse(String body) {
+        return JsonParser.parseString(body).getAsJsonObject();
+    }
+    
+    private static String text(JsonElement content) {
+        if (content.isJsonPrimitive()) {
+            return content.getAsString();
+        }
+        // Content given as a list of blocks or parts: [{"type":"text","text":"..."}]
+        StringBuilder text = new StringBuilder();
+        for (JsonElement block : content.getAsJsonArray()) {
+            JsonElement value = block.getAsJsonObject().get("text");
+            if (value != null) {
+                text.append(value.getAsString());
+            }
+        }
+        return text.toString();
+    }
+    
+    private static JsonArray array(JsonObject element) {
+        JsonArray array = new JsonArray();
+        array.add(element);
+        return array;
+    }
+    
+    private static JsonObject usage(Object... namesAndCounts) {
+        JsonObject usage = new JsonObject();
+        for (int i = 0; i < namesAndCounts.length; i += 2) {
+            usage.addProperty((String) namesAndCounts[i], (Integer) namesAndCounts[i + 1]);
+        }
+        return usage;
+    }
+    
+    private static String data(JsonObject body) {
+        return "data: " + body + "\n\n";
+    }
+}
\ No newline at end of file
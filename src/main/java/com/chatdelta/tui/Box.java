@@ -0,0 +1,24 @@
+package com.chatdelta.tui;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.graphics.TextGraphics;
+
+// Single-line box borders. Each edge is one putString or drawLine call rather
+// than one call per character.
+final class Box {
+    private Box() {
+    }
+    
+    static void draw(TextGraphics graphics, int x, int y, int width, int height) {
+        if (width < 2 || height < 2) {
+            return;
+        }
+        String rule = "─".repeat(width - 2);
+        graphics.putString(x, y, "┌" + rule + "┐");
+        graphics.putString(x, y + height - 1, "└" + rule + "┘");
+        if (height > 2) {
+            graphics.drawLine(new TerminalPosition(x, y + 1), new TerminalPosition(x, y + height - 2), '│');
+            graphics.drawLine(new TerminalPosition(x + width - 1, y + 1), new TerminalPosition(x + width - 1, y + height - 2), '│');
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.chatdelta.tui;
 
 import com.chatdelta.api.*;
+import com.chatdelta.delta.Alignment;
+import com.chatdelta.delta.DeltaEngine;
+import com.chatdelta.delta.DeltaSummary;
+import com.chatdelta.delta.LiveDelta;
+import com.chatdelta.history.History;
 import com.chatdelta.models.*;
 import com.googlecode.lanterna.*;
 import com.googlecode.lanterna.graphics.TextGraphics;
@@ -12,23 +17,42 @@ import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import com.googlecode.lanterna.terminal.Terminal;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 public class ChatDeltaTUI {
+    private static final int ALIGNED_ROWS_SHOWN = 12;
+    private static final Duration DELTA_REFRESH = Duration.ofMillis(100);
+    // At most ~30 frames a second, however fast chunks or keys arrive
+    private static final Duration FRAME_INTERVAL = Duration.ofMillis(33);
+    
     private final List<Provider> providers;
     private final Screen screen;
-    private final Map<Integer, Integer> scrollPositions;
+    // 3 providers + 1 delta column
+    private final ColumnView[] columns = {
+        new ColumnView(true), new ColumnView(true), new ColumnView(true), new ColumnView(false)
+    };
+    private String drawnInput;
     private String inputBuffer = "";
     private int selectedColumn = 0;
-    private String deltaText = "🔍 Differences between AI responses will appear here after you send a query to multiple providers";
+    // A single message, replaced as the delta is refreshed
+    private final History delta = new History();
     private boolean running = true;
-    private final Map<String, String> latestResponses = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<String>> inFlight = ConcurrentHashMap.newKeySet();
+    private LiveDelta liveDelta;
+    // Provider callbacks and the live delta post here from their own threads.
+    // Only the UI thread drains it, so everything that is drawn is also only
+    // changed on the UI thread.
+    private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+    // Streamed replies with chunks not yet copied into their history entry
+    private final Set<StreamedReply> pendingReplies = new LinkedHashSet<>();
     
     public ChatDeltaTUI(Map<String, ProviderState> providerStates) throws IOException {
         this.providers = new ArrayList<>();
-        this.scrollPositions = new HashMap<>();
         
         // Initialize providers
         for (String name : Arrays.asList("ChatGPT", "Gemini", "Claude")) {
@@ -36,16 +60,13 @@ public class ChatDeltaTUI {
             AIClient client = null;
             
             if (state == ProviderState.ENABLED) {
-                client = createClient(name);
+                client = ClientFactory.create(name);
             }
             
             providers.add(new Provider(name, state, client));
         }
         
-        // Initialize scroll positions (3 providers + 1 delta column)
-        for (int i = 0; i < 4; i++) {
-            scrollPositions.put(i, 0);
-        }
+        delta.add("🔍 Differences between AI responses will appear here after you send a query to multiple providers");
         
         // Initialize terminal
         Terminal terminal = new DefaultTerminalFactory().createTerminal();
@@ -54,26 +75,41 @@ public class ChatDeltaTUI {
         screen.setCursorPosition(null);
     }
     
-    private AIClient createClient(String name) {
-        return switch (name) {
-            case "ChatGPT" -> new OpenAIClient(System.getenv("CHATGPT_API_KEY"));
-            case "Gemini" -> new GeminiClient(System.getenv("GEMINI_API_KEY"));
-            case "Claude" -> new ClaudeClient(System.getenv("CLAUDE_API_KEY"));
-            default -> null;
-        };
-    }
-    
+    // Each frame takes whatever input and provider events are waiting, then
+    // draws; nothing blocks, so replies show up without waiting for a key
     public void run() throws IOException {
+        long frame = FRAME_INTERVAL.toNanos();
+        long nextFrame = System.nanoTime();
         while (running) {
-            draw();
             handleInput();
+            drainEvents();
+            draw();
+            
+            nextFrame += frame;
+            long wait = nextFrame - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                // Fell behind; start counting again rather than rushing frames
+                nextFrame = System.nanoTime();
+            }
         }
         
         screen.stopScreen();
+        for (Provider provider : providers) {
+            provider.getHistory().close();
+        }
     }
     
+    // Repaints only the columns whose content, scroll position or focus changed
     private void draw() throws IOException {
-        screen.clear();
+        if (screen.doResizeIfNecessary() != null) {
+            screen.clear();
+            for (ColumnView column : columns) {
+                column.invalidate();
+            }
+            drawnInput = null;
+        }
         TextGraphics graphics = screen.newTextGraphics();
         
         TerminalSize size = screen.getTerminalSize();
@@ -82,23 +118,27 @@ public class ChatDeltaTUI {
         
         // Calculate column widths (4 equal columns)
         int columnWidth = width / 4;
+        boolean changed = false;
         
         // Draw provider columns
         for (int i = 0; i < 3; i++) {
-            drawProviderColumn(graphics, i, i * columnWidth, columnWidth, height - 3);
+            changed |= drawProviderColumn(graphics, i, i * columnWidth, columnWidth, height - 3);
         }
         
         // Draw delta column
-        drawDeltaColumn(graphics, 3 * columnWidth, columnWidth, height - 3);
+        changed |= drawDeltaColumn(graphics, 3 * columnWidth, columnWidth, height - 3);
         
         // Draw input area
-        drawInputArea(graphics, 0, height - 3, width, 3);
+        changed |= drawInputArea(graphics, 0, height - 3, width, 3);
         
-        screen.refresh();
+        if (changed) {
+            screen.refresh();
+        }
     }
     
-    private void drawProviderColumn(TextGraphics graphics, int index, int x, int width, int height) {
+    private boolean drawProviderColumn(TextGraphics graphics, int index, int x, int width, int height) {
         Provider provider = providers.get(index);
+        ColumnView column = columns[index];
         boolean isSelected = selectedColumn == index;
         
         // Set colors based on state
@@ -107,150 +147,74 @@ public class ChatDeltaTUI {
         TextColor fgColor = provider.getState() == ProviderState.ENABLED ? 
             TextColor.ANSI.WHITE : TextColor.ANSI.WHITE_BRIGHT;
         TextColor borderColor = isSelected ? TextColor.ANSI.CYAN : TextColor.ANSI.WHITE;
+        column.setColors(borderColor, fgColor, bgColor);
         
-        graphics.setBackgroundColor(bgColor);
-        graphics.setForegroundColor(borderColor);
-        
-        // Draw border
-        drawBorder(graphics, x, 0, width, height);
-        
-        // Draw title
         String title = " " + provider.getName() + " ";
         if (provider.getState() == ProviderState.DISABLED) {
             title += "[No API Key] ";
         }
-        graphics.putString(x + 2, 0, title);
-        
-        // Draw chat history
-        graphics.setForegroundColor(fgColor);
-        List<String> history = provider.getChatHistory();
-        int scrollPos = scrollPositions.get(index);
-        int y = 2;
-        
-        for (int i = scrollPos; i < history.size() && y < height - 1; i++) {
-            String message = history.get(i);
-            List<String> wrapped = wrapText(message, width - 4);
-            for (String line : wrapped) {
-                if (y >= height - 1) break;
-                graphics.putString(x + 2, y, line);
-                y++;
-            }
-            if (y < height - 1) {
-                y++; // Add spacing between messages
-            }
+        CircuitBreaker breaker = ClientFactory.findCircuitBreaker(provider.getName());
+        if (breaker != null && breaker.getState() != CircuitState.CLOSED) {
+            title += "[" + breaker.getState() + "] ";
         }
+        column.setTitle(title);
+        column.setContent(provider.getHistory());
+        
+        return column.draw(graphics, x, width, height);
     }
     
-    private void drawDeltaColumn(TextGraphics graphics, int x, int width, int height) {
+    private boolean drawDeltaColumn(TextGraphics graphics, int x, int width, int height) {
+        ColumnView column = columns[3];
         boolean isSelected = selectedColumn == 3;
         
         TextColor borderColor = isSelected ? TextColor.ANSI.CYAN : TextColor.ANSI.WHITE;
-        graphics.setBackgroundColor(TextColor.ANSI.BLACK);
-        graphics.setForegroundColor(borderColor);
-        
-        // Draw border
-        drawBorder(graphics, x, 0, width, height);
-        
-        // Draw title
-        graphics.putString(x + 2, 0, " Delta Analysis ");
+        column.setColors(borderColor, TextColor.ANSI.YELLOW, TextColor.ANSI.BLACK);
+        column.setTitle(" Delta Analysis ");
         
-        // Draw delta content
-        graphics.setForegroundColor(TextColor.ANSI.YELLOW);
-        List<String> wrapped = wrapText(deltaText, width - 4);
-        int scrollPos = scrollPositions.get(3);
-        int y = 2;
+        column.setContent(delta);
         
-        for (int i = scrollPos; i < wrapped.size() && y < height - 1; i++) {
-            graphics.putString(x + 2, y, wrapped.get(i));
-            y++;
-        }
+        return column.draw(graphics, x, width, height);
     }
     
-    private void drawInputArea(TextGraphics graphics, int x, int y, int width, int height) {
+    private boolean drawInputArea(TextGraphics graphics, int x, int y, int width, int height) {
+        String displayInput = "> " + inputBuffer;
+        if (displayInput.length() > width - 4) {
+            displayInput = displayInput.substring(displayInput.length() - width + 4);
+        }
+        String frame = width + "x" + y + ":" + displayInput;
+        if (frame.equals(drawnInput)) {
+            return false;
+        }
+        drawnInput = frame;
+        
         graphics.setBackgroundColor(TextColor.ANSI.BLACK);
+        graphics.fillRectangle(new TerminalPosition(x, y), new TerminalSize(width, height), ' ');
         graphics.setForegroundColor(TextColor.ANSI.WHITE);
         
         // Draw border
-        drawBorder(graphics, x, y, width, height);
+        Box.draw(graphics, x, y, width, height);
         
         // Draw prompt
-        graphics.putString(x + 2, y, " Enter prompt (Tab: switch column, Enter: send, Ctrl+C: quit) ");
+        graphics.putString(x + 2, y, " Enter prompt (Tab: switch column, PgUp/PgDn/End: scroll, Enter: send, Esc: stop, Ctrl+C: quit) ");
         
         // Draw input
         graphics.setForegroundColor(TextColor.ANSI.GREEN);
-        String displayInput = "> " + inputBuffer;
-        if (displayInput.length() > width - 4) {
-            displayInput = displayInput.substring(displayInput.length() - width + 4);
-        }
         graphics.putString(x + 2, y + 1, displayInput);
+        return true;
     }
     
-    private void drawBorder(TextGraphics graphics, int x, int y, int width, int height) {
-        // Top border
-        graphics.putString(x, y, "┌");
-        for (int i = 1; i < width - 1; i++) {
-            graphics.putString(x + i, y, "─");
-        }
-        graphics.putString(x + width - 1, y, "┐");
-        
-        // Side borders
-        for (int i = 1; i < height - 1; i++) {
-            graphics.putString(x, y + i, "│");
-            graphics.putString(x + width - 1, y + i, "│");
-        }
-        
-        // Bottom border
-        graphics.putString(x, y + height - 1, "└");
-        for (int i = 1; i < width - 1; i++) {
-            graphics.putString(x + i, y + height - 1, "─");
-        }
-        graphics.putString(x + width - 1, y + height - 1, "┘");
-    }
-    
-    private List<String> wrapText(String text, int maxWidth) {
-        List<String> lines = new ArrayList<>();
-        String[] paragraphs = text.split("\n");
-        
-        for (String paragraph : paragraphs) {
-            if (paragraph.isEmpty()) {
-                lines.add("");
-                continue;
-            }
-            
-            String[] words = paragraph.split(" ");
-            StringBuilder currentLine = new StringBuilder();
-            
-            for (String word : words) {
-                if (currentLine.length() + word.length() + 1 > maxWidth) {
-                    if (currentLine.length() > 0) {
-                        lines.add(currentLine.toString());
-                        currentLine = new StringBuilder();
-                    }
-                    // Handle very long words
-                    while (word.length() > maxWidth) {
-                        lines.add(word.substring(0, maxWidth));
-                        word = word.substring(maxWidth);
-                    }
-                    currentLine.append(word);
-                } else {
-                    if (currentLine.length() > 0) {
-                        currentLine.append(" ");
-                    }
-                    currentLine.append(word);
-                }
-            }
-            
-            if (currentLine.length() > 0) {
-                lines.add(currentLine.toString());
-            }
+    // Handles every keystroke queued since the last frame, so a burst of
+    // input (a paste, key repeat) costs one frame instead of one per key
+    private void handleInput() throws IOException {
+        KeyStroke keyStroke = screen.pollInput();
+        while (keyStroke != null && running) {
+            handleKey(keyStroke);
+            keyStroke = screen.pollInput();
         }
-        
-        return lines;
     }
     
-    private void handleInput() throws IOException {
-        KeyStroke keyStroke = screen.readInput();
-        
+    private void handleKey(KeyStroke keyStroke) {
+        ColumnView column = columns[selectedColumn];
         if (keyStroke.getKeyType() == KeyType.Character) {
             inputBuffer += keyStroke.getCharacter();
         } else if (keyStroke.getKeyType() == KeyType.Backspace) {
@@ -260,14 +224,24 @@ public class ChatDeltaTUI {
         } else if (keyStroke.getKeyType() == KeyType.Tab) {
             selectedColumn = (selectedColumn + 1) % 4;
         } else if (keyStroke.getKeyType() == KeyType.ArrowUp) {
-            int pos = scrollPositions.get(selectedColumn);
-            if (pos > 0) {
-                scrollPositions.put(selectedColumn, pos - 1);
-            }
+            column.scrollBy(-1);
         } else if (keyStroke.getKeyType() == KeyType.ArrowDown) {
-            scrollPositions.put(selectedColumn, scrollPositions.get(selectedColumn) + 1);
+            column.scrollBy(1);
+        } else if (keyStroke.getKeyType() == KeyType.PageUp) {
+            column.pageUp();
+        } else if (keyStroke.getKeyType() == KeyType.PageDown) {
+            column.pageDown();
+        } else if (keyStroke.getKeyType() == KeyType.Home) {
+            column.scrollToTop();
+        } else if (keyStroke.getKeyType() == KeyType.End) {
+            column.scrollToBottom();
+        } else if (keyStroke.getKeyType() == KeyType.Escape) {
+            stopAll();
         } else if (keyStroke.getKeyType() == KeyType.Enter) {
-            if (!inputBuffer.trim().isEmpty()) {
+            if (inputBuffer.trim().equals("/new")) {
+                startNewConversation();
+                inputBuffer = "";
+            } else if (!inputBuffer.trim().isEmpty()) {
                 sendPromptToAll(inputBuffer.trim());
                 inputBuffer = "";
             }
@@ -285,79 +259,162 @@ public class ChatDeltaTUI {
             }
         }
         
-        // Clear latest responses for delta calculation
-        latestResponses.clear();
+        List<String> names = new ArrayList<>();
+        for (Provider provider : providers) {
+            if (provider.getState() == ProviderState.ENABLED && provider.getClient() != null) {
+                names.add(provider.getName());
+            }
+        }
+        // The delta follows the streams as they grow, at a fixed refresh rate
+        if (liveDelta != null) {
+            liveDelta.close();
+        }
+        LiveDelta live = new LiveDelta(DeltaEngine.shared(), names);
+        liveDelta = live;
+        if (names.size() > 1) {
+            live.start(DELTA_REFRESH, (summary, alignment) -> showDelta(live, render(summary, alignment)));
+        }
         
         // Send to all enabled providers
+        Map<String, String> responses = new ConcurrentHashMap<>();
         List<CompletableFuture<Void>> futures = new ArrayList<>();
         
         for (Provider provider : providers) {
             if (provider.getState() == ProviderState.ENABLED && provider.getClient() != null) {
-                CompletableFuture<Void> future = provider.getClient()
-                    .sendPrompt(prompt)
+                String label = provider.getName() + ": ";
+                StreamedReply reply = new StreamedReply(provider, provider.addToHistory(label), label);
+                StreamStats[] stats = {null};
+                Provider.PendingTurn turn = provider.beginTurn(prompt);
+                // Earlier turns go ahead of the prompt, laid out so the provider can serve them from its cache
+                CompletableFuture<String> call = provider.getClient().streamPrompt(turn.conversation(), prompt,
+                    new StreamListener() {
+                        @Override
+                        public void onChunk(String chunk) {
+                            live.append(provider.getName(), chunk);
+                            post(() -> {
+                                reply.text.append(chunk);
+                                pendingReplies.add(reply);
+                            });
+                        }
+                        
+                        @Override
+                        public void onComplete(StreamStats result) {
+                            stats[0] = result;
+                        }
+                    });
+                inFlight.add(call);
+                CompletableFuture<Void> future = call
+                    .whenComplete((response, error) -> {
+                        inFlight.remove(call);
+                        live.finish(provider.getName());
+                    })
                     .thenAccept(response -> {
-                        provider.addToHistory(provider.getName() + ": " + response);
-                        latestResponses.put(provider.getName(), response);
-                        updateDelta();
+                        responses.put(provider.getName(), response);
+                        provider.recordTurn(turn, response);
+                        String cached = stats[0] != null ? cacheNote(stats[0].usage()) : "";
+                        post(() -> replaceReply(reply, label + response + cached));
                     })
                     .exceptionally(e -> {
-                        provider.addToHistory(provider.getName() + ": Error - " + e.getMessage());
+                        provider.abandonTurn(turn);
+                        if (Futures.isAbandoned(e)) {
+                            post(() -> replaceReply(reply, label + reply.text + " [stopped]"));
+                        } else {
+                            post(() -> replaceReply(reply, provider.getName() + ": Error - " + e.getMessage()));
+                        }
                         return null;
                     });
                 futures.add(future);
             }
         }
         
-        // Update delta when all responses are received
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-            .thenRun(this::updateDelta);
+        // Replace the live delta with the full one when all responses are received
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .thenRun(() -> {
+                live.close();
+                Map<String, String> ordered = new LinkedHashMap<>();
+                for (String name : names) {
+                    if (responses.containsKey(name)) {
+                        ordered.put(name, responses.get(name));
+                    }
+                }
+                showDelta(live, render(DeltaSummary.of(ordered), Alignment.of(ordered)));
+            });
     }
     
-    private void updateDelta() {
-        if (latestResponses.size() < 2) {
-            deltaText = "Need at least 2 responses to compare";
-            return;
+    private void startNewConversation() {
+        for (Provider provider : providers) {
+            if (provider.getState() == ProviderState.ENABLED) {
+                Conversation previous = provider.startNewConversation();
+                if (provider.getClient() != null) {
+                    provider.getClient().endConversation(previous);
+                }
+                provider.addToHistory("── New conversation ──");
+            }
         }
-        
-        StringBuilder delta = new StringBuilder();
-        delta.append("📊 Response Analysis\n\n");
-        
-        // Compare response lengths
-        delta.append("📏 Response Lengths:\n");
-        for (Map.Entry<String, String> entry : latestResponses.entrySet()) {
-            delta.append("• ").append(entry.getKey()).append(": ")
-                .append(entry.getValue().length()).append(" characters\n");
+    }
+    
+    // How much of the prompt the provider served from its prompt cache
+    private static String cacheNote(TokenUsage usage) {
+        if (usage.cachedInputTokens() == 0) {
+            return "";
         }
-        
-        delta.append("\n🔍 Key Differences:\n");
-        
-        // Simple difference detection (can be enhanced)
-        Set<String> allWords = new HashSet<>();
-        Map<String, Set<String>> providerWords = new HashMap<>();
-        
-        for (Map.Entry<String, String> entry : latestResponses.entrySet()) {
-            Set<String> words = new HashSet<>(Arrays.asList(
-                entry.getValue().toLowerCase().split("\\s+")
-            ));
-            providerWords.put(entry.getKey(), words);
-            allWords.addAll(words);
+        return "\n[" + usage.cachedInputTokens() + " of " + usage.inputTokens() + " input tokens cached]";
+    }
+    
+    // Safe from any thread; the event runs on the UI thread before the next draw
+    private void post(Runnable event) {
+        events.add(event);
+    }
+    
+    private void drainEvents() {
+        Runnable event;
+        while ((event = events.poll()) != null) {
+            event.run();
         }
-        
-        // Find unique words per provider
-        for (Map.Entry<String, Set<String>> entry : providerWords.entrySet()) {
-            Set<String> unique = new HashSet<>(entry.getValue());
-            for (Map.Entry<String, Set<String>> other : providerWords.entrySet()) {
-                if (!other.getKey().equals(entry.getKey())) {
-                    unique.removeAll(other.getValue());
-                }
-            }
-            if (!unique.isEmpty() && unique.size() < 10) {
-                delta.append("\n• Unique to ").append(entry.getKey()).append(": ");
-                delta.append(String.join(", ", 
-                    unique.stream().limit(5).toArray(String[]::new)));
+        // However many chunks arrived, each reply's history entry changes once a frame
+        for (StreamedReply reply : pendingReplies) {
+            reply.provider.updateHistory(reply.entry, reply.label + reply.text);
+        }
+        pendingReplies.clear();
+    }
+    
+    private void replaceReply(StreamedReply reply, String message) {
+        pendingReplies.remove(reply);
+        reply.provider.updateHistory(reply.entry, message);
+    }
+    
+    // Rendered off the UI thread; dropped if a newer prompt has been sent since
+    private void showDelta(LiveDelta live, String text) {
+        post(() -> {
+            if (liveDelta == live) {
+                delta.set(0, text);
             }
+        });
+    }
+    
+    // Aborts every request still in flight, down to the HTTP calls
+    private void stopAll() {
+        for (CompletableFuture<String> call : inFlight) {
+            call.cancel(true);
+        }
+    }
+    
+    private static String render(DeltaSummary summary, Alignment alignment) {
+        String structure = alignment.render(ALIGNED_ROWS_SHOWN);
+        return summary.render() + (structure.isEmpty() ? "" : "\n\n" + structure);
+    }
+    
+    // A reply streaming into its provider's history entry; touched only on the UI thread
+    private static final class StreamedReply {
+        private final Provider provider;
+        private final int entry;
+        private final String label;
+        private final StringBuilder text = new StringBuilder();
+        
+        StreamedReply(Provider provider, int entry, String label) {
+            this.provider = provider;
+            this.entry = entry;
+            this.label = label;
         }
-        
-        deltaText = delta.toString();
     }
-}
\ No newline at end of file
+}
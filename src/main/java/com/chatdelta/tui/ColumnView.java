@@ -0,0 +1,237 @@
+package com.chatdelta.tui;
+
+import com.chatdelta.history.History;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.TextGraphics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One bordered TUI column, scrolled by visual (wrapped) line. A line index
+// holds the running total of wrapped lines through each message, so finding
+// the message under any line is a binary search. The index is extended or
+// recounted from the first changed message, and from scratch on resize;
+// counting doesn't build the lines, and only messages that come into view
+// are actually wrapped, and only those on screen keep their lines. The
+// column repaints only when its content, scroll position, title, colors or
+// size changed since the last frame.
+final class ColumnView {
+    private final boolean spaceBetweenMessages;
+    private History content;
+    private int count;
+    // Wrapped lines at the current width of the messages on screen
+    private final Map<Integer, List<String>> wrapped = new HashMap<>();
+    // lineEnds[i] is the number of visual lines in messages 0..i, spacing included
+    private int[] lineEnds = new int[16];
+    private int indexedCount;
+    private long contentVersion = -1;
+    private int wrapWidth = -1;
+    private int x = -1;
+    private int width;
+    private int height;
+    private String title = "";
+    private TextColor borderColor = TextColor.ANSI.WHITE;
+    private TextColor textColor = TextColor.ANSI.WHITE;
+    private TextColor background = TextColor.ANSI.BLACK;
+    // First visual line shown
+    private int scroll;
+    // Set by scrolling down onto the last line: stays there as content grows
+    private boolean following;
+    private boolean dirty = true;
+    
+    ColumnView(boolean spaceBetweenMessages) {
+        this.spaceBetweenMessages = spaceBetweenMessages;
+    }
+    
+    // Only messages changed since the last call are recounted; an unchanged
+    // history costs nothing
+    void setContent(History history) {
+        long version = history.getVersion();
+        if (history == content && version == contentVersion) {
+            return;
+        }
+        int changed = history == content ? history.firstChangedSince(contentVersion) : 0;
+        content = history;
+        contentVersion = version;
+        count = history.size();
+        indexedCount = Math.min(indexedCount, Math.min(changed, count));
+        wrapped.keySet().removeIf(i -> i >= changed);
+        dirty = true;
+    }
+    
+    void setTitle(String title) {
+        if (!title.equals(this.title)) {
+            this.title = title;
+            dirty = true;
+        }
+    }
+    
+    void setColors(TextColor border, TextColor text, TextColor background) {
+        if (!border.equals(borderColor) || !text.equals(textColor) || !background.equals(this.background)) {
+            this.borderColor = border;
+            this.textColor = text;
+            this.background = background;
+            dirty = true;
+        }
+    }
+    
+    int getScroll() {
+        return scroll;
+    }
+    
+    // Scrolls to a visual line, kept between the top and the last full page
+    void setScroll(int line) {
+        int last = maxScroll();
+        int clamped = Math.max(0, Math.min(line, last));
+        following = clamped >= last && line > scroll;
+        if (clamped != scroll) {
+            scroll = clamped;
+            dirty = true;
+        }
+    }
+    
+    void scrollBy(int lines) {
+        setScroll(scroll + lines);
+    }
+    
+    // Pages keep one line of overlap for context
+    void pageUp() {
+        scrollBy(-Math.max(1, visibleRows() - 1));
+    }
+    
+    void pageDown() {
+        scrollBy(Math.max(1, visibleRows() - 1));
+    }
+    
+    void scrollToTop() {
+        setScroll(0);
+    }
+    
+    void scrollToBottom() {
+        setScroll(Integer.MAX_VALUE);
+    }
+    
+    void invalidate() {
+        dirty = true;
+    }
+    
+    // Repaints the column if anything about it changed; returns whether it did
+    boolean draw(TextGraphics graphics, int x, int width, int height) {
+        if (width != this.width || height != this.height || x != this.x) {
+            this.x = x;
+            this.width = width;
+            this.height = height;
+            dirty = true;
+        }
+        if (width - 4 != wrapWidth) {
+            wrapWidth = width - 4;
+            indexedCount = 0;
+            wrapped.clear();
+        }
+        if (!dirty) {
+            return false;
+        }
+        dirty = false;
+        int last = maxScroll();
+        scroll = following ? last : Math.min(scroll, last);
+        
+        graphics.setBackgroundColor(background);
+        graphics.fillRectangle(new TerminalPosition(x, 0), new TerminalSize(width, height), ' ');
+        graphics.setForegroundColor(borderColor);
+        Box.draw(graphics, x, 0, width, height);
+        graphics.putString(x + 2, 0, title);
+        
+        // Only the messages under the visible rows are visited
+        graphics.setForegroundColor(textColor);
+        int y = 2;
+        int message = messageAt(scroll);
+        int skip = scroll - (message > 0 ? lineEnds[message - 1] : 0);
+        int i = message;
+        for (; i < count && y < height - 1; i++) {
+            List<String> lines = wrappedAt(i);
+            for (int line = skip; line < lines.size() && y < height - 1; line++) {
+                graphics.putString(x + 2, y, lines.get(line));
+                y++;
+            }
+            if (spaceBetweenMessages) {
+                y++; // Add spacing between messages
+            }
+            skip = 0;
+        }
+        int end = i;
+        wrapped.keySet().removeIf(shown -> shown < message || shown >= end);
+        return true;
+    }
+    
+    private int visibleRows() {
+        return Math.max(0, height - 3);
+    }
+    
+    // Nothing is known about the content until the first draw sets a width
+    private int maxScroll() {
+        if (wrapWidth < 0) {
+            return 0;
+        }
+        return Math.max(0, totalLines() - visibleRows());
+    }
+    
+    private int totalLines() {
+        updateIndex();
+        if (count == 0) {
+            return 0;
+        }
+        // The space after the last message isn't worth scrolling to
+        return lineEnds[count - 1] - (spaceBetweenMessages ? 1 : 0);
+    }
+    
+    // Recounts the lines of every message from the first one that changed
+    private void updateIndex() {
+        if (indexedCount >= count) {
+            return;
+        }
+        if (lineEnds.length < count) {
+            lineEnds = Arrays.copyOf(lineEnds, Math.max(count, lineEnds.length * 2));
+        }
+        int total = indexedCount > 0 ? lineEnds[indexedCount - 1] : 0;
+        for (int i = indexedCount; i < count; i++) {
+            List<String> lines = wrapped.get(i);
+            total += lines != null ? lines.size() : lineCount(content.get(i));
+            total += spaceBetweenMessages ? 1 : 0;
+            lineEnds[i] = total;
+        }
+        indexedCount = count;
+    }
+    
+    // The message that visual line falls in: the first whose running total passes it
+    private int messageAt(int line) {
+        updateIndex();
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lineEnds[mid] > line) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+    
+    private List<String> wrappedAt(int index) {
+        List<String> lines = wrapped.get(index);
+        if (lines == null) {
+            lines = wrapWidth > 0 ? TextWrapper.wrap(content.get(index), wrapWidth) : List.of();
+            wrapped.put(index, lines);
+        }
+        return lines;
+    }
+    
+    private int lineCount(String message) {
+        return wrapWidth > 0 ? TextWrapper.countLines(message, wrapWidth) : 0;
+    }
+}
\ No newline at end of file
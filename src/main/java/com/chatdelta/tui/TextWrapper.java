@@ -0,0 +1,112 @@
+package com.chatdelta.tui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Word wrapping for the fixed-width TUI columns. Words longer than a line are
+// split hard at the column width. Paragraphs and words are found by scanning
+// indices, so countLines allocates nothing and wrap allocates only the lines.
+public final class TextWrapper {
+    private TextWrapper() {
+    }
+    
+    public static List<String> wrap(String text, int maxWidth) {
+        List<String> lines = new ArrayList<>();
+        layout(text, maxWidth, lines);
+        return lines;
+    }
+    
+    // The number of lines wrap would return
+    public static int countLines(String text, int maxWidth) {
+        return layout(text, maxWidth, null);
+    }
+    
+    // Adds the lines to out when it is non-null; returns how many there are
+    private static int layout(String text, int maxWidth, List<String> out) {
+        int width = Math.max(1, maxWidth);
+        if (text.isEmpty()) {
+            return emit(out, "");
+        }
+        // Trailing line breaks add no empty lines
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == '\n') {
+            end--;
+        }
+        
+        int lines = 0;
+        int start = 0;
+        while (start < end) {
+            int paragraphEnd = text.indexOf('\n', start);
+            if (paragraphEnd < 0 || paragraphEnd > end) {
+                paragraphEnd = end;
+            }
+            lines += paragraphEnd == start
+                ? emit(out, "")
+                : layoutParagraph(text, start, paragraphEnd, width, out);
+            start = paragraphEnd + 1;
+        }
+        return lines;
+    }
+    
+    private static int layoutParagraph(String text, int start, int end, int width, List<String> out) {
+        // Trailing spaces are dropped; a run of inner spaces is kept as written
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int lines = 0;
+        int lineStart = 0;
+        int lineEnd = 0;
+        int lineLength = 0;
+        
+        int wordStart = start;
+        while (wordStart <= end && start < end) {
+            int wordEnd = text.indexOf(' ', wordStart);
+            if (wordEnd < 0 || wordEnd > end) {
+                wordEnd = end;
+            }
+            int length = wordEnd - wordStart;
+            
+            if (lineLength + length + 1 > width) {
+                if (lineLength > 0) {
+                    lines += emit(out, text, lineStart, lineEnd);
+                    lineLength = 0;
+                }
+                // Handle very long words
+                while (length > width) {
+                    lines += emit(out, text, wordStart, wordStart + width);
+                    wordStart += width;
+                    length -= width;
+                }
+                if (length > 0) {
+                    lineStart = wordStart;
+                    lineEnd = wordEnd;
+                    lineLength = length;
+                }
+            } else if (lineLength > 0) {
+                lineEnd = wordEnd;
+                lineLength += 1 + length;
+            } else if (length > 0) {
+                lineStart = wordStart;
+                lineEnd = wordEnd;
+                lineLength = length;
+            }
+            wordStart = wordEnd + 1;
+        }
+        
+        if (lineLength > 0) {
+            lines += emit(out, text, lineStart, lineEnd);
+        }
+        return lines;
+    }
+    
+    private static int emit(List<String> out, String text, int start, int end) {
+        return emit(out, out != null ? text.substring(start, end) : null);
+    }
+    
+    private static int emit(List<String> out, String line) {
+        if (out != null) {
+            out.add(line);
+        }
+        return 1;
+    }
+}
\ No newline at end of file
@@ -2,6 +2,16 @@ package com.chatdelta;
 
 import com.chatdelta.api.*;
 import com.chatdelta.models.*;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -34,6 +44,79 @@ public class BasicTest {
         assertTrue(provider.getChatHistory().contains("Test message"));
     }
     
+    @Test
+    public void testProviderHistoryIsSafeAcrossThreads() throws Exception {
+        Provider provider = new Provider("TestProvider", ProviderState.DISABLED, null);
+        int initialSize = provider.getChatHistory().size();
+        long initialVersion = provider.getHistoryVersion();
+        
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 250; i++) {
+                    int index = provider.addToHistory("t" + thread + " m" + i);
+                    provider.updateHistory(index, "t" + thread + " m" + i + " done");
+                }
+            }));
+        }
+        // Reading while the writers run never sees a torn list
+        while (!CompletableFuture.allOf(writers.toArray(new CompletableFuture<?>[0])).isDone()) {
+            for (String message : provider.getChatHistory()) {
+                assertNotNull(message);
+            }
+        }
+        
+        // Every writer got its own entry back, and every change moved the version
+        assertEquals(initialSize + 1000, provider.getChatHistory().size());
+        assertEquals(1000, provider.getChatHistory().stream().filter(m -> m.endsWith(" done")).count());
+        assertEquals(initialVersion + 2000, provider.getHistoryVersion());
+    }
+    
+    @Test
+    public void testTurnsAreRecordedInSendOrder() {
+        Provider provider = new Provider("TestProvider", ProviderState.DISABLED, null);
+        Provider.PendingTurn first = provider.beginTurn("one");
+        Provider.PendingTurn second = provider.beginTurn("two");
+        
+        provider.recordTurn(second, "reply two");
+        assertTrue(provider.getConversation().isEmpty());
+        provider.recordTurn(first, "reply one");
+        
+        List<Conversation.Turn> turns = provider.getConversation().turns();
+        assertEquals(2, turns.size());
+        assertEquals("one", turns.get(0).prompt());
+        assertEquals("two", turns.get(1).prompt());
+    }
+    
+    @Test
+    public void testAbandonedTurnDoesNotHoldBackLaterReplies() {
+        Provider provider = new Provider("TestProvider", ProviderState.DISABLED, null);
+        Provider.PendingTurn failed = provider.beginTurn("one");
+        Provider.PendingTurn second = provider.beginTurn("two");
+        
+        provider.recordTurn(second, "reply two");
+        provider.abandonTurn(failed);
+        
+        assertEquals(1, provider.getConversation().turns().size());
+        assertEquals("two", provider.getConversation().turns().get(0).prompt());
+    }
+    
+    @Test
+    public void testReplyAfterNewConversationIsDropped() {
+        Provider provider = new Provider("TestProvider", ProviderState.DISABLED, null);
+        Provider.PendingTurn old = provider.beginTurn("one");
+        Conversation previous = provider.startNewConversation();
+        Provider.PendingTurn current = provider.beginTurn("two");
+        
+        provider.recordTurn(old, "late reply");
+        provider.recordTurn(current, "reply two");
+        
+        assertNotEquals(previous.id(), provider.getConversation().id());
+        assertEquals(1, provider.getConversation().turns().size());
+        assertEquals("two", provider.getConversation().turns().get(0).prompt());
+    }
+    
     @Test
     public void testAIClientImplementations() {
         // Test that the client classes can be instantiated
@@ -50,4 +133,100 @@ public class BasicTest {
         assertNotNull(claude);
         assertEquals("Claude", claude.getProviderName());
     }
+    
+    @Test
+    public void testSharedTransportReusesClients() {
+        HttpTransport transport = HttpTransport.builder()
+            .maxRequestsPerHost(4)
+            .build();
+        try {
+            assertSame(transport.clientFor(TimeoutProfile.OPENAI), transport.clientFor(TimeoutProfile.OPENAI));
+            assertSame(
+                transport.clientFor(TimeoutProfile.OPENAI).connectionPool(),
+                transport.clientFor(TimeoutProfile.GEMINI).connectionPool()
+            );
+            assertEquals(4, transport.clientFor(TimeoutProfile.ANTHROPIC).dispatcher().getMaxRequestsPerHost());
+        } finally {
+            transport.shutdown();
+        }
+    }
+    
+    @Test
+    public void testRequestTemplateEscapesOnlyThePrompt() {
+        RequestTemplate template = RequestTemplate.of(
+            "{\"model\":" + RequestTemplate.quote("m\"1") + ",\"content\":", "}");
+        JsonRequestBody body = template.encode("line1\nsays \"hi\" ü");
+        
+        assertEquals("{\"model\":\"m\\\"1\",\"content\":\"line1\\nsays \\\"hi\\\" ü\"}", body.utf8());
+        assertEquals(body.utf8().getBytes(StandardCharsets.UTF_8).length, body.contentLength());
+        assertEquals(JsonRequestBody.JSON, body.contentType());
+        
+        JsonObject parsed = JsonParser.parseString(body.utf8()).getAsJsonObject();
+        assertEquals("line1\nsays \"hi\" ü", parsed.get("content").getAsString());
+    }
+    
+    @Test
+    public void testIdenticalInFlightPromptsShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        AIClient slow = new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                calls.incrementAndGet();
+                return pending;
+            }
+            
+            @Override
+            public String getProviderName() {
+                return "Slow";
+            }
+        };
+        CoalescingAIClient client = new CoalescingAIClient(slow);
+        
+        CompletableFuture<String> first = client.sendPrompt("same");
+        CompletableFuture<String> second = client.sendPrompt("same");
+        assertEquals(1, calls.get());
+        
+        // Cancelling one caller must not cancel the shared request
+        first.cancel(true);
+        pending.complete("done");
+        assertEquals("done", second.get(1, TimeUnit.SECONDS));
+        assertFalse(pending.isCancelled());
+        assertEquals(0, client.getInFlightCount());
+        
+        client.sendPrompt("same");
+        assertEquals(2, calls.get());
+    }
+    
+    @Test
+    public void testSharedCallIsCancelledOnceEveryCallerGivesUp() throws Exception {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        AIClient slow = new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                return pending;
+            }
+            
+            @Override
+            public String getProviderName() {
+                return "Slow";
+            }
+        };
+        CoalescingAIClient client = new CoalescingAIClient(slow);
+        
+        CompletableFuture<String> first = client.sendPrompt("same");
+        CompletableFuture<String> second = client.sendPrompt("same").orTimeout(10, TimeUnit.MILLISECONDS);
+        first.cancel(true);
+        assertFalse(pending.isDone());
+        
+        // The second caller's deadline passing counts as giving up too
+        try {
+            second.get(1, TimeUnit.SECONDS);
+            fail("expected the deadline to expire");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(pending.isCancelled());
+        assertEquals(0, client.getInFlightCount());
+    }
 }
\ No newline at end of file
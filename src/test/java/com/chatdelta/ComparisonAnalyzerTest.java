@@ -0,0 +1,99 @@
+package com.chatdelta;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ComparisonAnalyzerTest {
+    
+    @Test
+    public void testFindsConsensusAndOutliers() throws Exception {
+        Map<String, String> responses = new LinkedHashMap<>();
+        responses.put("A", "Caching stores repeated prompt prefixes on the provider. "
+            + "Cached input tokens are billed at a steep discount. "
+            + "Quantum entanglement explains the pricing model of large datacenters.");
+        responses.put("B", "Providers cache repeated prompt prefixes. "
+            + "Cached input tokens are billed at a steep discount compared to normal input.");
+        responses.put("C", "Cached input tokens are billed at a steep discount. "
+            + "The cache usually expires after five minutes of inactivity.");
+        
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ComparisonAnalyzer.Report report = new ComparisonAnalyzer(pool).analyzeAsync(responses).get(5, TimeUnit.SECONDS);
+        pool.shutdown();
+        
+        assertEquals(3, report.agreements().size());
+        assertEquals(3, report.consensus().get(0).support());
+        assertTrue(report.consensus().get(0).text().contains("steep discount"));
+        assertTrue(report.outliers().stream().anyMatch(claim ->
+            claim.provider().equals("A") && claim.text().startsWith("Quantum")));
+        assertTrue(report.render(5).contains("[3/3]"));
+    }
+    
+    @Test
+    public void testIdenticalResponsesAgreeFully() {
+        String text = "Hedged requests send a second copy after a delay. The first answer wins.";
+        Map<String, String> responses = new LinkedHashMap<>();
+        responses.put("A", text);
+        responses.put("B", text);
+        ComparisonAnalyzer.Report report = new ComparisonAnalyzer().analyze(responses);
+        assertEquals(1.0, report.overallAgreement(), 1e-9);
+        assertTrue(report.outliers().isEmpty());
+    }
+    
+    // Keywords repeat on every line, as they do in real code
+    private static String code(int lines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder code = new StringBuilder("```java\n");
+        for (int i = 0; i < lines; i++) {
+            switch (i % 4) {
+                case 0 -> code.append("    int value").append(i).append(" = buffer.read(offset + ")
+                    .append(random.nextInt(100)).append(");\n");
+                case 1 -> code.append("    total += compute(value").append(i - 1).append(", ")
+                    .append(random.nextInt(50)).append(");\n");
+                case 2 -> code.append("    if (total > limit").append(random.nextInt(30)).append(") return total;\n");
+                default -> code.append("    log.debug(\"step ").append(i).append("\");\n");
+            }
+        }
+        return code.append("```\n").toString();
+    }
+    
+    @Test
+    public void testLongCodeResponsesAreComparedQuickly() {
+        Map<String, String> responses = new LinkedHashMap<>();
+        for (int p = 0; p < 3; p++) {
+            responses.put("P" + p, code(8_000, p));
+        }
+        long start = System.nanoTime();
+        ComparisonAnalyzer.Report report = new ComparisonAnalyzer().analyze(responses);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        // Comparing every pair of lines took tens of seconds here
+        assertTrue("took " + millis + " ms", millis < 5_000);
+        assertTrue(report.overallAgreement() > 0.5);
+    }
+    
+    @Test
+    public void testStructureCountsListsCodeAndHeadings() {
+        ComparisonAnalyzer.Structure structure = ComparisonAnalyzer.structure(
+            "# Title\n\nIntro text.\n\n- one\n- two\n1. three\n\n```java\nint x = 1;\n```\n");
+        assertEquals(1, structure.headings());
+        assertEquals(3, structure.listItems());
+        assertEquals(1, structure.codeBlocks());
+        assertEquals(4, structure.paragraphs());
+    }
+    
+    @Test
+    public void testCodeInsideFencesIsNotHeadingsOrLists() {
+        ComparisonAnalyzer.Structure structure = ComparisonAnalyzer.structure(
+            "## Build\n\n```c\n#include <stdio.h>\n- x;\n1. y\n```\n\n```python\n# comment\n```\n\n- done\n");
+        assertEquals(1, structure.headings());
+        assertEquals(1, structure.listItems());
+        assertEquals(2, structure.codeBlocks());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.chatdelta.api;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AdmissionControllerTest {
+    
+    @Test
+    public void testTokenBucketRefillsOverTime() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(60, now::get);
+        
+        assertTrue(bucket.tryAcquire(60));
+        assertFalse(bucket.tryAcquire(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.nanosUntilAvailable(1), 1_000);
+        
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(bucket.tryAcquire(1));
+    }
+    
+    @Test
+    public void testConcurrencyLimitIsAdditiveIncreaseMultiplicativeDecrease() {
+        AtomicLong now = new AtomicLong();
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 16, 1_000, now::get);
+        
+        for (int i = 0; i < 40; i++) {
+            limit.onSuccess(100);
+        }
+        assertTrue(limit.getLimit() > 4);
+        
+        int before = limit.getLimit();
+        now.addAndGet(10_000);
+        limit.onOverload();
+        limit.onOverload(); // within cooldown, ignored
+        assertEquals(Math.max(1, before / 2), limit.getLimit(), 1);
+    }
+    
+    @Test
+    public void testThrottledCallsAreQueuedAndRetried() throws Exception {
+        AdmissionController controller = new AdmissionController(new RateLimits(1000, 1_000_000, 2, 2, 5));
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int id = i;
+            results.add(controller.submit(10, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                CompletableFuture<String> call = new CompletableFuture<>();
+                CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS).execute(() -> {
+                    running.decrementAndGet();
+                    if (attempts.incrementAndGet() == 1) {
+                        call.completeExceptionally(new ApiException("API request failed: 429", 429, Duration.ofMillis(50)));
+                    } else {
+                        call.complete("ok " + id);
+                    }
+                });
+                return call;
+            }));
+        }
+        
+        for (int i = 0; i < 6; i++) {
+            assertEquals("ok " + i, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, controller.getThrottledCount());
+        assertEquals(7, attempts.get());
+        assertTrue(maxRunning.get() <= 2);
+    }
+    
+    @Test
+    public void testStreamedUsageReplacesTheEstimate() throws Exception {
+        List<long[]> recorded = new ArrayList<>();
+        AdmissionController controller = new AdmissionController(new RateLimits(1000, 1_000_000, 2, 2, 5)) {
+            @Override
+            public void recordUsage(long estimatedTokens, long actualTokens) {
+                recorded.add(new long[] {estimatedTokens, actualTokens});
+                super.recordUsage(estimatedTokens, actualTokens);
+            }
+        };
+        AIClient streaming = new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                return CompletableFuture.completedFuture(prompt);
+            }
+            
+            @Override
+            public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+                listener.onChunk("reply");
+                listener.onComplete(new StreamStats(Duration.ZERO, Duration.ZERO, 1, 5, new TokenUsage(40, 2, 42)));
+                return CompletableFuture.completedFuture("reply");
+            }
+            
+            @Override
+            public String getProviderName() {
+                return "Test";
+            }
+        };
+        
+        new RateLimitedAIClient(streaming, controller).streamPrompt("prompt", text -> { }).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(1, recorded.size());
+        assertTrue(recorded.get(0)[0] > 42);
+        assertEquals(42, recorded.get(0)[1]);
+    }
+    
+    @Test
+    public void testRetryAfterParsing() {
+        assertEquals(Duration.ofSeconds(3), ApiException.parseRetryAfter("3"));
+        assertEquals(Duration.ofMillis(1500), ApiException.parseRetryAfter("1.5"));
+        assertNull(ApiException.parseRetryAfter("soon"));
+        assertNull(ApiException.parseRetryAfter(null));
+    }
+}
\ No newline at end of file
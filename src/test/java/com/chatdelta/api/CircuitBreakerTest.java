@@ -0,0 +1,170 @@
+package com.chatdelta.api;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    private static final CircuitBreakerConfig CONFIG = new CircuitBreakerConfig(
+        10, 4, 0.5, Duration.ofSeconds(1), 0.8, Duration.ofSeconds(30), 2);
+    
+    @Test
+    public void testOpensAfterFailureRateAndFailsFast() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker("Test", CONFIG, now::get);
+        List<CircuitState> transitions = new ArrayList<>();
+        breaker.addListener(transitions::add);
+        
+        breaker.onSuccess(0);
+        breaker.onFailure();
+        breaker.onSuccess(0);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        breaker.onFailure();
+        
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(List.of(CircuitState.OPEN), transitions);
+    }
+    
+    @Test
+    public void testSlowCallsOpenTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker("Test", CONFIG, () -> 0L);
+        long slow = Duration.ofSeconds(2).toNanos();
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(slow);
+        }
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+    
+    @Test
+    public void testHalfOpenAdmitsLimitedProbesThenCloses() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker("Test", CONFIG, now::get);
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    public void testFailedProbeReopens() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker("Test", CONFIG, now::get);
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+    
+    @Test
+    public void testStreamsAreJudgedByTimeToFirstToken() throws Exception {
+        CircuitBreakerConfig config = new CircuitBreakerConfig(
+            10, 4, 0.5, Duration.ofMillis(50), 0.8, Duration.ofSeconds(30), 2);
+        Duration[] firstToken = {Duration.ofMillis(5)};
+        AIClient streaming = new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                return CompletableFuture.completedFuture(prompt);
+            }
+            
+            @Override
+            public CompletableFuture<String> streamPrompt(String prompt, StreamListener listener) {
+                // The whole stream outlasts the threshold; its first token doesn't
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(80);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    listener.onChunk(prompt);
+                    listener.onComplete(new StreamStats(firstToken[0], Duration.ofMillis(80), 1, prompt.length()));
+                    return prompt;
+                });
+            }
+            
+            @Override
+            public String getProviderName() {
+                return "Test";
+            }
+        };
+        StreamListener ignore = text -> { };
+        
+        CircuitBreaker longAnswers = new CircuitBreaker("Test", config, () -> 0L);
+        CircuitBreakingAIClient client = new CircuitBreakingAIClient(streaming, longAnswers);
+        for (int i = 0; i < 4; i++) {
+            client.streamPrompt("long answer", ignore).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(CircuitState.CLOSED, longAnswers.getState());
+        
+        firstToken[0] = Duration.ofMillis(200);
+        CircuitBreaker slowStarts = new CircuitBreaker("Test", config, () -> 0L);
+        client = new CircuitBreakingAIClient(streaming, slowStarts);
+        for (int i = 0; i < 4; i++) {
+            client.streamPrompt("slow start", ignore).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(CircuitState.OPEN, slowStarts.getState());
+    }
+    
+    @Test
+    public void testClientErrorsDoNotTripAndOpenCircuitIsNotRetried() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AIClient failing = new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                calls.incrementAndGet();
+                int status = prompt.equals("bad") ? 400 : 503;
+                return CompletableFuture.failedFuture(new ApiException("API request failed: " + status, status, null));
+            }
+            
+            @Override
+            public String getProviderName() {
+                return "Test";
+            }
+        };
+        CircuitBreaker breaker = new CircuitBreaker("Test", CONFIG, () -> 0L);
+        CircuitBreakingAIClient client = new CircuitBreakingAIClient(failing, breaker);
+        
+        for (int i = 0; i < 6; i++) {
+            client.sendPrompt("bad").handle((r, e) -> null).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        
+        for (int i = 0; i < 4; i++) {
+            client.sendPrompt("down").handle((r, e) -> null).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        
+        int before = calls.get();
+        try {
+            client.sendPrompt("down").get(5, TimeUnit.SECONDS);
+            fail("expected fast failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CircuitOpenException);
+            assertFalse(RetryingAIClient.isRetryable(e.getCause()));
+        }
+        assertEquals(before, calls.get());
+    }
+}
\ No newline at end of file
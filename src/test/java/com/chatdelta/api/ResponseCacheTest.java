@@ -0,0 +1,123 @@
+package com.chatdelta.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static class CountingClient implements AIClient {
+        final AtomicInteger calls = new AtomicInteger();
+        
+        @Override
+        public CompletableFuture<String> sendPrompt(String prompt) {
+            return CompletableFuture.completedFuture("answer " + calls.incrementAndGet() + " to " + prompt);
+        }
+        
+        @Override
+        public String getProviderName() {
+            return "Counting";
+        }
+    }
+    
+    private static class MutableClock extends Clock {
+        long millis;
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+    
+    @Test
+    public void testRepeatedPromptIsServedFromMemory() throws Exception {
+        CountingClient delegate = new CountingClient();
+        ResponseCache cache = new ResponseCache(10, Duration.ofHours(1), null);
+        AIClient client = new CachingAIClient(delegate, cache);
+        
+        assertEquals("answer 1 to hi", client.sendPrompt("hi").get());
+        assertEquals("answer 1 to hi", client.sendPrompt("hi").get());
+        assertEquals("answer 2 to bye", client.sendPrompt("bye").get());
+        
+        assertEquals(2, delegate.calls.get());
+        assertEquals(1, cache.getMemoryHits());
+        assertEquals(2, cache.getMisses());
+    }
+    
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        ResponseCache cache = new ResponseCache(2, Duration.ZERO, null);
+        cache.put("a", CompletionResult.ofText("A"));
+        cache.put("b", CompletionResult.ofText("B"));
+        assertNotNull(cache.get("a"));
+        cache.put("c", CompletionResult.ofText("C"));
+        
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+    }
+    
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        MutableClock clock = new MutableClock();
+        ResponseCache cache = new ResponseCache(10, Duration.ofMinutes(5), null, clock);
+        cache.put("k", CompletionResult.ofText("v"));
+        
+        clock.millis = Duration.ofMinutes(4).toMillis();
+        assertNotNull(cache.get("k"));
+        clock.millis = Duration.ofMinutes(6).toMillis();
+        assertNull(cache.get("k"));
+        assertEquals(1, cache.getExpirations());
+    }
+    
+    @Test
+    public void testDiskTierSurvivesRestart() throws Exception {
+        Path dir = folder.newFolder("cache").toPath();
+        String key = ResponseCache.key("Claude", "model", "max_tokens=1000", "prompt");
+        
+        new ResponseCache(10, Duration.ofDays(1), dir)
+            .put(key, new CompletionResult("cached", "end_turn", new TokenUsage(1, 2, 3)));
+        
+        ResponseCache restarted = new ResponseCache(10, Duration.ofDays(1), dir);
+        CompletionResult result = restarted.get(key);
+        assertNotNull(result);
+        assertEquals("cached", result.text());
+        assertEquals(new TokenUsage(1, 2, 3), result.usage());
+        assertEquals(1, restarted.getDiskHits());
+    }
+    
+    @Test
+    public void testKeyDependsOnModelAndParameters() {
+        assertNotEquals(
+            ResponseCache.key("ChatGPT", "gpt-4o", "temperature=0.7", "p"),
+            ResponseCache.key("ChatGPT", "gpt-4o", "temperature=0.2", "p")
+        );
+        assertNotEquals(
+            ResponseCache.key("ChatGPT", "gpt-4o", "", "p"),
+            ResponseCache.key("ChatGPT", "gpt-4o-mini", "", "p")
+        );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.chatdelta.api;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class ResponseDecoderTest {
+    
+    private static CompletionResult decode(ResponseDecoder decoder, String json) throws IOException {
+        return decoder.decode(new JsonReader(new StringReader(json)));
+    }
+    
+    @Test
+    public void testOpenAIDecoderSkipsUnneededFields() throws Exception {
+        String json = "{\"id\":\"x\",\"object\":\"chat.completion\",\"choices\":[{\"index\":0,"
+            + "\"message\":{\"role\":\"assistant\",\"content\":\"Hi\",\"refusal\":null},\"logprobs\":null,"
+            + "\"finish_reason\":\"stop\"},{\"index\":1,\"message\":{\"content\":\"ignored\"}}],"
+            + "\"usage\":{\"prompt_tokens\":3,\"completion_tokens\":1,\"total_tokens\":4,"
+            + "\"prompt_tokens_details\":{\"cached_tokens\":0}}}";
+        CompletionResult result = decode(new OpenAIResponseDecoder(), json);
+        assertEquals("Hi", result.text());
+        assertEquals("stop", result.finishReason());
+        assertEquals(new TokenUsage(3, 1, 4), result.usage());
+    }
+    
+    @Test
+    public void testClaudeDecoderJoinsTextBlocks() throws Exception {
+        String json = "{\"type\":\"message\",\"content\":[{\"type\":\"text\",\"text\":\"Hello\"},"
+            + "{\"type\":\"text\",\"text\":\" there\"}],\"stop_reason\":\"end_turn\","
+            + "\"usage\":{\"input_tokens\":5,\"output_tokens\":2,\"cache_read_input_tokens\":40,"
+            + "\"cache_creation_input_tokens\":null}}";
+        CompletionResult result = decode(new ClaudeResponseDecoder(), json);
+        assertEquals("Hello there", result.text());
+        assertEquals("end_turn", result.finishReason());
+        // Input counts what was read from the cache as well
+        assertEquals(new TokenUsage(45, 2, 47, 40), result.usage());
+    }
+    
+    @Test
+    public void testGeminiDecoderHandlesLargeResponses() throws Exception {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 150_000) {
+            text.append("The quick brown fox jumps over the lazy dog. \\n");
+        }
+        String json = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}],\"role\":\"model\"},"
+            + "\"finishReason\":\"STOP\",\"safetyRatings\":[]}],"
+            + "\"usageMetadata\":{\"promptTokenCount\":10,\"candidatesTokenCount\":20,\"totalTokenCount\":30}}";
+        CompletionResult result = decode(new GeminiResponseDecoder(), json);
+        assertTrue(result.text().length() > 100_000);
+        assertTrue(result.text().startsWith("The quick brown fox jumps over the lazy dog. \n"));
+        assertEquals("STOP", result.finishReason());
+        assertEquals(new TokenUsage(10, 20, 30), result.usage());
+    }
+    
+    @Test
+    public void testGeminiDecoderReportsApiErrors() {
+        try {
+            decode(new GeminiResponseDecoder(), "{\"error\":{\"code\":429,\"message\":\"quota exceeded\"}}");
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Gemini API error: quota exceeded", e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.chatdelta.api;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.*;
+
+public class RetryingAIClientTest {
+    private static final RetryPolicy FAST = new RetryPolicy(
+        3, Duration.ofMillis(1), Duration.ofMillis(5), false, 0.95, 0.1, 10);
+    
+    private static AIClient scripted(IntFunction<CompletableFuture<String>> script, AtomicInteger calls) {
+        return new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                return script.apply(calls.incrementAndGet());
+            }
+            
+            @Override
+            public String getProviderName() {
+                return "Scripted";
+            }
+        };
+    }
+    
+    @Test
+    public void testConnectionFailuresAreRetried() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingAIClient client = new RetryingAIClient(scripted(n -> n < 3
+            ? CompletableFuture.failedFuture(new ConnectException("refused"))
+            : CompletableFuture.completedFuture("finally"), calls), FAST);
+        
+        assertEquals("finally", client.sendPrompt("p").get(5, TimeUnit.SECONDS));
+        assertEquals(3, calls.get());
+        assertEquals(2, client.getRetryCount());
+    }
+    
+    @Test
+    public void testClientErrorsAndBadBodiesAreNotRetried() {
+        assertFalse(RetryingAIClient.isRetryable(new ApiException("API request failed: 400", 400, null)));
+        assertFalse(RetryingAIClient.isRetryable(new ResponseFormatException("No content in response")));
+        assertTrue(RetryingAIClient.isRetryable(new ApiException("API request failed: 503", 503, null)));
+        assertTrue(RetryingAIClient.isRetryable(new IOException("unexpected end of stream")));
+    }
+    
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RetryingAIClient client = new RetryingAIClient(scripted(n ->
+            CompletableFuture.failedFuture(new ApiException("API request failed: 500", 500, null)), calls), FAST);
+        
+        try {
+            client.sendPrompt("p").get(5, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ApiException);
+        }
+        assertEquals(3, calls.get());
+    }
+    
+    @Test
+    public void testRetryBudgetLimitsRetries() {
+        RetryBudget budget = new RetryBudget(0.1, 2);
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+        for (int i = 0; i < 20; i++) {
+            budget.onRequest();
+        }
+        assertTrue(budget.tryAcquireRetry());
+    }
+    
+    @Test
+    public void testSlowCallIsHedged() throws Exception {
+        RetryPolicy hedging = new RetryPolicy(1, Duration.ofMillis(1), Duration.ofMillis(5), true, 0.95, 0.1, 10);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> stuck = new CompletableFuture<>();
+        int[] stuckAt = {-1};
+        RetryingAIClient client = new RetryingAIClient(scripted(n -> n == stuckAt[0]
+            ? stuck
+            : CompletableFuture.supplyAsync(() -> "fast " + n,
+                CompletableFuture.delayedExecutor(2, TimeUnit.MILLISECONDS)), calls), hedging);
+        
+        for (int i = 0; i < 20; i++) {
+            client.sendPrompt("warm-up").get(5, TimeUnit.SECONDS);
+        }
+        // A warm-up call delayed by a busy scheduler may have been hedged too
+        long hedges = client.getHedgeCount();
+        long wins = client.getHedgeWinCount();
+        stuckAt[0] = calls.get() + 1;
+        assertEquals("fast " + (stuckAt[0] + 1), client.sendPrompt("p").get(5, TimeUnit.SECONDS));
+        // The win is counted just after the caller's future completes
+        for (int i = 0; i < 100 && client.getHedgeWinCount() == wins; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(hedges + 1, client.getHedgeCount());
+        assertEquals(wins + 1, client.getHedgeWinCount());
+        // The losing hedge is cancelled all the way down
+        assertTrue(stuck.isCancelled());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.chatdelta.api;
+
+import com.chatdelta.metrics.MetricsRegistry;
+import com.chatdelta.metrics.ProviderMetrics;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class StreamingTest {
+    
+    @Test
+    public void testFailedCallCountsTowardTotalLatency() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        ProviderMetrics metrics = new MetricsRegistry().forProvider("Stub", "stub-model");
+        Request request = new Request.Builder()
+            .url("http://127.0.0.1:" + port + "/")
+            .tag(ProviderMetrics.class, metrics)
+            .build();
+        
+        try {
+            HttpTransport.shared().clientFor(TimeoutProfile.DEFAULT).newCall(request).execute().close();
+            fail("Expected the connection to be refused");
+        } catch (IOException expected) {
+        }
+        assertEquals(1, metrics.total().getCount());
+    }
+    
+    @Test
+    public void testOpenAIStreamAgainstStubServer() throws Exception {
+        List<String> frames = Arrays.asList(
+            ": keep-alive\n\n",
+            "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n",
+            "data: {\"choices\":[{\"delta\":{\"content\":\"Hello\"}}]}\n\n",
+            "data: {\"choices\":[{\"delta\":{\"content\":\", world\"}}]}\n\n",
+            "data: [DONE]\n\n"
+        );
+        
+        try (SseStubServer server = new SseStubServer(frames, 20)) {
+            List<String> chunks = new ArrayList<>();
+            AtomicReference<StreamStats> stats = new AtomicReference<>();
+            ProviderMetrics metrics = new MetricsRegistry().forProvider("Stub", "stub-model");
+            
+            Request request = new Request.Builder()
+                .url(server.url())
+                .post(RequestBody.create("{}", MediaType.parse("application/json")))
+                .tag(ProviderMetrics.class, metrics)
+                .build();
+            
+            String text = StreamingCall.enqueue(
+                HttpTransport.shared().clientFor(TimeoutProfile.DEFAULT),
+                request,
+                OpenAIClient::extractStreamChunk,
+                new StreamListener() {
+                    @Override
+                    public void onChunk(String chunk) {
+                        chunks.add(chunk);
+                    }
+                    
+                    @Override
+                    public void onComplete(StreamStats result) {
+                        stats.set(result);
+                    }
+                }
+            ).get(10, TimeUnit.SECONDS);
+            
+            assertEquals("Hello, world", text);
+            assertEquals(Arrays.asList("Hello", ", world"), chunks);
+            assertEquals(2, stats.get().chunkCount());
+            assertTrue(stats.get().timeToFirstToken().compareTo(stats.get().totalTime()) < 0);
+            
+            assertEquals(1, metrics.timeToFirstToken().getCount());
+            assertEquals(1, metrics.timeToFirstByte().getCount());
+            assertEquals(2, metrics.getRequestBytes());
+            assertTrue(metrics.getResponseBytes() > 0);
+            // callEnd fires once the body is closed, just after the future completes
+            for (int i = 0; i < 100 && metrics.total().getCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, metrics.total().getCount());
+        }
+    }
+    
+    @Test
+    public void testCancellingTheFutureCancelsTheHttpCall() throws Exception {
+        List<String> frames = Arrays.asList(
+            "data: {\"choices\":[{\"delta\":{\"content\":\"Hello\"}}]}\n\n",
+            "data: {\"choices\":[{\"delta\":{\"content\":\" never\"}}]}\n\n"
+        );
+        HttpTransport transport = HttpTransport.builder().build();
+        OkHttpClient client = transport.clientFor(TimeoutProfile.DEFAULT);
+        
+        try (SseStubServer server = new SseStubServer(frames, 2000)) {
+            Request request = new Request.Builder()
+                .url(server.url())
+                .post(RequestBody.create("{}", MediaType.parse("application/json")))
+                .build();
+            AtomicReference<Throwable> reported = new AtomicReference<>();
+            
+            CompletableFuture<String> call = StreamingCall.enqueue(client, request, OpenAIClient::extractStreamChunk,
+                new StreamListener() {
+                    @Override
+                    public void onChunk(String chunk) {
+                    }
+                    
+                    @Override
+                    public void onError(Throwable error) {
+                        reported.set(error);
+                    }
+                });
+            for (int i = 0; i < 100 && client.dispatcher().runningCallsCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, client.dispatcher().runningCallsCount());
+            
+            call.cancel(true);
+            for (int i = 0; i < 100 && client.dispatcher().runningCallsCount() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, client.dispatcher().runningCallsCount());
+            assertNull(reported.get());
+        } finally {
+            transport.shutdown();
+        }
+    }
+    
+    @Test
+    public void testClaudeChunkExtraction() throws Exception {
+        assertNull(ClaudeClient.extractStreamChunk("message_start", "{\"type\":\"message_start\"}"));
+        assertEquals("Hi", ClaudeClient.extractStreamChunk("content_block_delta",
+            "{\"type\":\"content_block_delta\",\"index\":0,\"delta\":{\"type\":\"text_delta\",\"text\":\"Hi\"}}"));
+    }
+    
+    @Test
+    public void testGeminiChunkExtraction() throws Exception {
+        assertEquals("Hi there", GeminiClient.extractStreamChunk("message",
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"Hi\"},{\"text\":\" there\"}]}}]}"));
+    }
+    
+    @Test(expected = java.io.IOException.class)
+    public void testGeminiStreamErrorIsRaised() throws Exception {
+        GeminiClient.extractStreamChunk("message", "{\"error\":{\"message\":\"quota\"}}");
+    }
+}
\ No newline at end of file
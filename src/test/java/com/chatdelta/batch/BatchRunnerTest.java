@@ -0,0 +1,155 @@
+package com.chatdelta.batch;
+
+import com.chatdelta.api.AIClient;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+    
+    private static AIClient delayedClient(String name, ScheduledExecutorService scheduler,
+                                          AtomicInteger running, AtomicInteger maxRunning) {
+        return new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                if (prompt.equals("fail")) {
+                    return CompletableFuture.failedFuture(new IOException("API request failed: 500"));
+                }
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                CompletableFuture<String> future = new CompletableFuture<>();
+                scheduler.schedule(() -> {
+                    running.decrementAndGet();
+                    future.complete(name + " says " + prompt);
+                }, 5, TimeUnit.MILLISECONDS);
+                return future;
+            }
+            
+            @Override
+            public String getProviderName() {
+                return name;
+            }
+        };
+    }
+    
+    private static AIClient fixedClient(String name, String preamble) {
+        return new AIClient() {
+            @Override
+            public CompletableFuture<String> sendPrompt(String prompt) {
+                return CompletableFuture.completedFuture(preamble + " " + prompt);
+            }
+            
+            @Override
+            public String getProviderName() {
+                return name;
+            }
+        };
+    }
+    
+    private static JsonObject lastDelta(Map<String, AIClient> clients, String input) throws Exception {
+        BatchOptions options = BatchOptions.parse(new String[] {"--batch", "-", "--concurrency", "1"});
+        StringWriter output = new StringWriter();
+        new BatchRunner(clients, options).run(new StringReader(input), output);
+        List<String> lines = output.toString().lines().toList();
+        return JsonParser.parseString(lines.get(lines.size() - 1)).getAsJsonObject().getAsJsonObject("delta");
+    }
+    
+    @Test
+    public void testDeltaDoesNotDependOnEarlierPrompts() throws Exception {
+        Map<String, AIClient> clients = new LinkedHashMap<>();
+        clients.put("A", fixedClient("A", "alpha gamma"));
+        clients.put("B", fixedClient("B", "delta epsilon"));
+        
+        JsonObject alone = lastDelta(clients, "banana apple cherry\n");
+        JsonObject afterOthers = lastDelta(clients, "apple\napple cherry\napple\nbanana apple cherry\n");
+        assertEquals(alone, afterOthers);
+    }
+    
+    @Test
+    public void testBadOptionsExitWithUsage() {
+        assertEquals(2, BatchRunner.runFromArgs(new String[] {"--batch", "-", "--concurrency", "abc"}));
+        assertEquals(2, BatchRunner.runFromArgs(new String[] {"--batch", "-", "--verbose"}));
+        assertEquals(2, BatchRunner.runFromArgs(new String[] {"--batch", "-", "--out"}));
+    }
+    
+    @Test
+    public void testMalformedLinesAreSkipped() throws Exception {
+        Map<String, AIClient> clients = Map.of("A", fixedClient("A", "answer"));
+        BatchOptions options = BatchOptions.parse(new String[] {"--batch", "-"});
+        StringWriter output = new StringWriter();
+        BatchRunner runner = new BatchRunner(clients, options);
+        runner.run(new StringReader("{\"prompt\": \"unterminated\n"
+            + "{\"id\": \"x\", \"prompt\": {\"nested\": true}}\n"
+            + "{\"prompt\": \"fine\"}\n"), output);
+        
+        List<String> lines = output.toString().lines().toList();
+        assertEquals(3, lines.size());
+        assertEquals(1, runner.getPromptCount());
+        JsonObject first = JsonParser.parseString(lines.get(0)).getAsJsonObject();
+        assertEquals("skipped", first.get("status").getAsString());
+        assertEquals("malformed JSON", first.get("error").getAsString());
+        assertEquals("skipped", JsonParser.parseString(lines.get(1)).getAsJsonObject().get("status").getAsString());
+    }
+    
+    @Test
+    public void testFansOutEveryPromptAndRespectsLimits() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            Map<String, AIClient> clients = new LinkedHashMap<>();
+            clients.put("A", delayedClient("A", scheduler, running, maxRunning));
+            
+            StringBuilder input = new StringBuilder();
+            for (int i = 0; i < 50; i++) {
+                input.append("{\"id\":\"p").append(i).append("\",\"prompt\":\"question ").append(i).append("\"}\n");
+            }
+            input.append("{\"request_id\":\"r1\",\"title\":\"t\",\"body\":\"fail\"}\n");
+            input.append("plain text prompt\n");
+            
+            BatchOptions options = BatchOptions.parse(new String[] {
+                "--batch", "-", "--concurrency", "8", "--provider-concurrency", "3"
+            });
+            StringWriter output = new StringWriter();
+            BatchRunner runner = new BatchRunner(clients, options);
+            runner.run(new StringReader(input.toString()), output);
+            
+            List<String> lines = output.toString().lines().toList();
+            assertEquals(52, lines.size());
+            assertEquals(52, runner.getPromptCount());
+            assertEquals(1, runner.getFailureCount());
+            assertTrue(maxRunning.get() <= 3);
+            
+            Map<String, JsonObject> byId = new HashMap<>();
+            for (String line : lines) {
+                JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                byId.put(json.get("id").getAsString(), json);
+            }
+            JsonObject ok = byId.get("p7").getAsJsonArray("results").get(0).getAsJsonObject();
+            assertEquals("ok", ok.get("status").getAsString());
+            assertEquals("A says question 7", ok.get("text").getAsString());
+            assertTrue(ok.has("latency_ms"));
+            assertTrue(byId.get("p7").has("delta"));
+            
+            JsonObject failed = byId.get("r1").getAsJsonArray("results").get(0).getAsJsonObject();
+            assertEquals("error", failed.get("status").getAsString());
+            assertTrue(byId.containsKey("52"));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
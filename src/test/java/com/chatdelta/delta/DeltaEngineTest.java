@@ -0,0 +1,102 @@
+package com.chatdelta.delta;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DeltaEngineTest {
+    
+    @Test
+    public void testDictionaryInternsCaseInsensitivelyWithoutPunctuation() {
+        TokenDictionary dictionary = new TokenDictionary();
+        IntList tokens = new IntList();
+        String text = "Cache, cache... CACHE! Don't";
+        dictionary.tokenize(text, 0, text.length(), tokens);
+        
+        assertEquals(4, tokens.size());
+        assertEquals(tokens.get(0), tokens.get(1));
+        assertEquals(tokens.get(0), tokens.get(2));
+        assertEquals("don't", dictionary.term(tokens.get(3)));
+        assertEquals(2, dictionary.size());
+    }
+    
+    @Test
+    public void testDictionarySurvivesRehashing() {
+        TokenDictionary dictionary = new TokenDictionary();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, dictionary.intern("word" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, dictionary.intern("WORD" + i));
+        }
+    }
+    
+    @Test
+    public void testExactJaccardAndSketchEstimates() {
+        TokenDictionary dictionary = new TokenDictionary();
+        IntList a = new IntList();
+        IntList b = new IntList();
+        // 600 shared words, 200 only in a, 200 only in b: Jaccard = 600 / 1000
+        for (int i = 0; i < 800; i++) {
+            a.add(dictionary.intern("w" + i));
+        }
+        for (int i = 200; i < 1000; i++) {
+            b.add(dictionary.intern("w" + i));
+        }
+        TermVector first = TermVector.of(a);
+        TermVector second = TermVector.of(b);
+        
+        assertEquals(0.6, first.jaccard(second), 1e-9);
+        assertEquals(0.6, Sketches.minHashSimilarity(Sketches.minHash(first), Sketches.minHash(second)), 0.15);
+        assertEquals(1.0, first.jaccard(first), 1e-9);
+        
+        double[] ones = new double[first.distinctCount()];
+        Arrays.fill(ones, 1.0);
+        long fingerprint = Sketches.simHash(first, ones);
+        assertEquals(1.0, Sketches.simHashSimilarity(fingerprint, fingerprint), 1e-9);
+    }
+    
+    @Test
+    public void testTermsAreRankedAndStopwordsSkipped() {
+        Map<String, String> responses = new LinkedHashMap<>();
+        responses.put("A", "The cache is warm. The cache serves reads from memory, and the cache is fast.");
+        responses.put("B", "The cache is cold, so reads go to disk and the disk is slow.");
+        responses.put("C", "A cache in memory makes reads fast.");
+        
+        DeltaSummary summary = new DeltaEngine().summarize(responses);
+        
+        assertEquals(3, summary.similarities().size());
+        assertEquals("cache", summary.sharedTerms().get(0));
+        assertFalse(summary.sharedTerms().contains("the"));
+        assertEquals("disk", summary.uniqueTerms().get("B").get(0));
+        assertTrue(summary.uniqueTerms().get("A").contains("warm"));
+        assertTrue(summary.render().contains("Unique to B: disk"));
+    }
+    
+    @Test
+    public void testLongResponsesSummarizeQuickly() {
+        Random random = new Random(7);
+        Map<String, String> responses = new LinkedHashMap<>();
+        for (int p = 0; p < 8; p++) {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 200_000) {
+                text.append("term").append(random.nextInt(20_000)).append(' ');
+            }
+            responses.put("P" + p, text.toString());
+        }
+        DeltaEngine engine = new DeltaEngine();
+        engine.summarize(responses);
+        
+        long start = System.nanoTime();
+        DeltaSummary summary = engine.summarize(responses);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        
+        assertEquals(28, summary.similarities().size());
+        assertTrue("took " + millis + " ms", millis < 2000);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.chatdelta.delta;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DiffTest {
+    
+    // Edit distance (deletes + inserts) from the quadratic LCS table
+    private static int lcsDistance(int[] a, int[] b) {
+        int[][] lcs = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                lcs[i][j] = a[i - 1] == b[j - 1] ? lcs[i - 1][j - 1] + 1 : Math.max(lcs[i - 1][j], lcs[i][j - 1]);
+            }
+        }
+        return a.length + b.length - 2 * lcs[a.length][b.length];
+    }
+    
+    private static void assertScriptIsValid(int[] a, int[] b, List<Diff.Edit> edits) {
+        int i = 0;
+        int j = 0;
+        for (Diff.Edit edit : edits) {
+            assertEquals(i, edit.aStart());
+            assertEquals(j, edit.bStart());
+            if (edit.op() == Diff.Op.EQUAL) {
+                for (int k = 0; k < edit.aEnd() - edit.aStart(); k++) {
+                    assertEquals(a[edit.aStart() + k], b[edit.bStart() + k]);
+                }
+            }
+            i = edit.aEnd();
+            j = edit.bEnd();
+        }
+        assertEquals(a.length, i);
+        assertEquals(b.length, j);
+    }
+    
+    @Test
+    public void testShortestEditScriptOnRandomInputs() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int[] a = random.ints(random.nextInt(40), 0, 6).toArray();
+            int[] b = random.ints(random.nextInt(40), 0, 6).toArray();
+            List<Diff.Edit> edits = Diff.of(a, b);
+            assertScriptIsValid(a, b, edits);
+            assertEquals(lcsDistance(a, b), Diff.distance(edits));
+        }
+    }
+    
+    @Test
+    public void testLongInputsWithFewChanges() {
+        int[] a = new int[200_000];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i;
+        }
+        int[] b = a.clone();
+        b[1000] = -1;
+        b[150_000] = -2;
+        
+        List<Diff.Edit> edits = Diff.of(a, b);
+        assertScriptIsValid(a, b, edits);
+        assertEquals(4, Diff.distance(edits));
+    }
+    
+    @Test
+    public void testSentenceAlignmentAcrossThreeResponses() {
+        Map<String, String> responses = new LinkedHashMap<>();
+        responses.put("ChatGPT", "Use a cache. Measure first. Retries need budgets.");
+        responses.put("Gemini", "Use a cache. Measure first! Prefer hedging.");
+        responses.put("Claude", "Use a cache.  Measure   first. Retries need budgets. Prefer hedging.");
+        
+        Alignment alignment = Alignment.of(responses);
+        
+        assertEquals(Granularity.SENTENCE, alignment.granularity());
+        assertEquals("Claude", alignment.anchor());
+        // "Measure first!" differs from "Measure first." only in punctuation, which counts
+        assertEquals(1, alignment.agreedCount());
+        assertEquals(1, alignment.uniqueCount("Gemini"));
+        assertEquals(2, alignment.missingCount("Gemini"));
+        assertEquals(1, alignment.missingCount("ChatGPT"));
+        assertTrue(alignment.render(10).contains("[ChatGPT + Claude] Retries need budgets."));
+    }
+    
+    @Test
+    public void testCodeIsAlignedByLine() {
+        Map<String, String> responses = new LinkedHashMap<>();
+        responses.put("A", "```\nint x = 1;\nreturn x;\n```");
+        responses.put("B", "```\nint x = 2;\nreturn x;\n```");
+        
+        Alignment alignment = Alignment.of(responses);
+        
+        assertEquals(Granularity.LINE, alignment.granularity());
+        assertEquals(3, alignment.agreedCount());
+        assertEquals(1, alignment.uniqueCount("A"));
+        assertEquals(1, alignment.uniqueCount("B"));
+    }
+}
\ No newline at end of file
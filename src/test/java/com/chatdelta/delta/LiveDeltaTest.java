@@ -0,0 +1,121 @@
+package com.chatdelta.delta;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class LiveDeltaTest {
+    private static final String FIRST = "Caching helps reads. Measure the tail latency first. Hedged requests cut the p99.";
+    private static final String SECOND = "Measure the tail latency first. Caching helps reads, but invalidation is hard.";
+    
+    // Feeds text in small uneven chunks, refreshing in between like the ticker would
+    private static void stream(LiveDelta live, String provider, String text) {
+        for (int i = 0; i < text.length(); i += 7) {
+            live.append(provider, text.substring(i, Math.min(text.length(), i + 7)));
+            live.refresh();
+        }
+        live.finish(provider);
+    }
+    
+    @Test
+    public void testStreamedDeltaMatchesTheFullOne() {
+        DeltaEngine engine = new DeltaEngine();
+        LiveDelta live = new LiveDelta(engine, List.of("A", "B"));
+        stream(live, "A", FIRST);
+        stream(live, "B", SECOND);
+        live.refresh();
+        
+        Map<String, String> responses = new LinkedHashMap<>();
+        responses.put("A", FIRST);
+        responses.put("B", SECOND);
+        DeltaSummary full = engine.summarize(responses);
+        DeltaSummary streamed = live.summary();
+        
+        assertEquals(full.lengths(), streamed.lengths());
+        PairSimilarity expected = full.similarities().get(0);
+        PairSimilarity actual = streamed.similarities().get(0);
+        assertEquals(expected.jaccard(), actual.jaccard(), 1e-9);
+        assertEquals(expected.minHash(), actual.minHash(), 1e-9);
+        assertTrue(streamed.uniqueTerms().get("B").contains("invalidation"));
+        assertTrue(streamed.sharedTerms().contains("caching"));
+        
+        Alignment alignment = live.alignment();
+        assertEquals(1, alignment.agreedCount());
+        assertEquals(Alignment.of(responses).rows(), alignment.rows());
+    }
+    
+    @Test
+    public void testUnfinishedWordsAndSentencesWait() {
+        LiveDelta live = new LiveDelta(new DeltaEngine(), List.of("A", "B"));
+        live.append("A", "Caching helps. Measu");
+        live.append("B", "Caching helps. Measu");
+        live.refresh();
+        // "measu" is not a term yet and only the first sentence is aligned
+        assertFalse(live.summary().sharedTerms().contains("measu"));
+        assertEquals(1, live.alignment().rows().size());
+        
+        live.append("A", "re twice.");
+        live.finish("A");
+        live.refresh();
+        assertTrue(live.summary().uniqueTerms().get("A").contains("measure"));
+        assertEquals(2, live.alignment().rows().size());
+    }
+    
+    @Test
+    public void testAlignmentIsRebuiltAsTheStreamsGrowAndWhenTheyFinish() {
+        LiveDelta live = new LiveDelta(new DeltaEngine(), List.of("A", "B"));
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 8; i++) {
+            text.append("Point ").append(i).append(" holds. ");
+        }
+        live.append("A", text);
+        live.append("B", text);
+        live.refresh();
+        assertEquals(8, live.alignment().rows().size());
+        
+        // One more sentence is less than an eighth of the sixteen aligned
+        live.append("A", "Another point. ");
+        live.refresh();
+        assertEquals(8, live.alignment().rows().size());
+        
+        live.finish("A");
+        live.finish("B");
+        live.refresh();
+        assertEquals(9, live.alignment().rows().size());
+    }
+    
+    @Test
+    public void testLateCodeFenceSwitchesToLines() {
+        LiveDelta live = new LiveDelta(new DeltaEngine(), List.of("A", "B"));
+        stream(live, "A", "Use a loop. It is short.\n```\nint x = 1;\nreturn x;\n```\n");
+        stream(live, "B", "Use a loop. It is short.\n```\nint x = 2;\nreturn x;\n```\n");
+        live.refresh();
+        
+        assertEquals(Granularity.LINE, live.alignment().granularity());
+    }
+    
+    @Test
+    public void testStartDeliversThrottledUpdates() throws Exception {
+        try (LiveDelta live = new LiveDelta(new DeltaEngine(), List.of("A", "B"))) {
+            CountDownLatch updated = new CountDownLatch(1);
+            AtomicReference<DeltaSummary> latest = new AtomicReference<>();
+            live.start(Duration.ofMillis(20), (summary, alignment) -> {
+                latest.set(summary);
+                updated.countDown();
+            });
+            live.append("A", FIRST);
+            live.append("B", SECOND);
+            
+            assertTrue(updated.await(5, TimeUnit.SECONDS));
+            assertEquals(2, latest.get().lengths().size());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.chatdelta.gui;
+
+import org.junit.Test;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ColumnFeedsTest {
+    
+    @Test
+    public void testChunksFromManyThreadsAreAppendedInOneFlush() throws Exception {
+        ColumnFeeds feeds = new ColumnFeeds();
+        JTextArea area = new JTextArea();
+        ColumnFeeds.Feed[] feed = new ColumnFeeds.Feed[1];
+        SwingUtilities.invokeAndWait(() -> feed[0] = feeds.open(area, "Prompt: p\n\nA: ", "Thinking..."));
+        assertEquals("Prompt: p\n\nA: Thinking...", area.getText());
+        
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    feed[0].append("x");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        SwingUtilities.invokeAndWait(feeds::flush);
+        
+        // The placeholder gave way to the first text
+        assertEquals("Prompt: p\n\nA: " + "x".repeat(400), area.getText());
+        feeds.stop();
+    }
+    
+    @Test
+    public void testStreamWithoutChunksReplacesThePlaceholder() throws Exception {
+        ColumnFeeds feeds = new ColumnFeeds();
+        JTextArea empty = new JTextArea();
+        JTextArea unstreamed = new JTextArea();
+        JTextArea streamed = new JTextArea();
+        ColumnFeeds.Feed[] feed = new ColumnFeeds.Feed[3];
+        SwingUtilities.invokeAndWait(() -> {
+            feed[0] = feeds.open(empty, "A: ", "Thinking...");
+            feed[1] = feeds.open(unstreamed, "B: ", "Thinking...");
+            feed[2] = feeds.open(streamed, "C: ", "Thinking...");
+        });
+        feed[0].complete("");
+        feed[1].complete("whole answer");
+        feed[2].append("chunk");
+        feed[2].complete("chunk");
+        SwingUtilities.invokeAndWait(feeds::flush);
+        
+        assertEquals("A: (no content)", empty.getText());
+        assertEquals("B: whole answer", unstreamed.getText());
+        assertEquals("C: chunk", streamed.getText());
+        feeds.stop();
+    }
+    
+    @Test
+    public void testReopenedColumnDropsTheOldFeed() throws Exception {
+        ColumnFeeds feeds = new ColumnFeeds();
+        JTextArea area = new JTextArea();
+        ColumnFeeds.Feed[] feed = new ColumnFeeds.Feed[2];
+        SwingUtilities.invokeAndWait(() -> feed[0] = feeds.open(area, "first: ", ""));
+        feed[0].append("late chunk");
+        SwingUtilities.invokeAndWait(() -> feed[1] = feeds.open(area, "second: ", ""));
+        feed[0].append("later chunk");
+        feed[1].append("answer");
+        SwingUtilities.invokeAndWait(feeds::flush);
+        
+        assertEquals("second: answer", area.getText());
+        feeds.stop();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.chatdelta.history;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HistoryTest {
+    
+    @Test
+    public void testOlderMessagesSpillToTheLogAndReadBack() throws Exception {
+        Path directory = Files.createTempDirectory("history-test");
+        // Tiny segments, so records and index entries straddle segment files
+        List<TranscriptLog> logs = new ArrayList<>();
+        try (History history = new History(4, () -> {
+            TranscriptLog log = new TranscriptLog(directory, 64);
+            logs.add(log);
+            return log;
+        })) {
+            for (int i = 0; i < 50; i++) {
+                assertEquals(i, history.add("message " + i + " ü".repeat(i % 7)));
+            }
+            assertEquals(50, history.size());
+            assertEquals(4, history.getHotCount());
+            assertEquals(1, logs.size());
+            assertEquals(46, logs.get(0).size());
+            assertTrue(Files.list(directory).count() > 2);
+            
+            for (int i = 0; i < 50; i++) {
+                assertEquals("message " + i + " ü".repeat(i % 7), history.get(i));
+            }
+            
+            // A cold message is rewritten in the log; its neighbours are untouched
+            history.set(3, "rewritten");
+            assertEquals("rewritten", history.get(3));
+            assertEquals("message 4 ü ü ü ü", history.get(4));
+            assertEquals(history.getVersion(), history.stamp(3));
+            assertEquals(List.of("message 0", "message 1 ü"), history.asList().subList(0, 2));
+        }
+        assertEquals(0, Files.list(directory).count());
+    }
+    
+    @Test
+    public void testFirstChangedSinceFindsTheLowestChange() {
+        History history = new History(4, TranscriptLog::new);
+        try {
+            for (int i = 0; i < 10; i++) {
+                history.add("m" + i);
+            }
+            long seen = history.getVersion();
+            assertEquals(10, history.firstChangedSince(seen));
+            
+            history.set(8, "m8'");
+            history.add("m10");
+            assertEquals(8, history.firstChangedSince(seen));
+            history.set(2, "m2'");
+            assertEquals(2, history.firstChangedSince(seen));
+            assertEquals(11, history.firstChangedSince(history.getVersion()));
+            
+            // Too far behind the journal: everything counts as changed
+            for (int i = 0; i < 300; i++) {
+                history.set(9, "m9 " + i);
+            }
+            assertEquals(9, history.firstChangedSince(history.getVersion() - 10));
+            assertEquals(0, history.firstChangedSince(seen));
+        } finally {
+            history.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.chatdelta.metrics;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+    
+    @Test
+    public void testBucketsAreContiguousAndPrecise() {
+        for (long micros = 1; micros < 1_000_000; micros += 7) {
+            int index = LatencyHistogram.index(micros);
+            long lower = LatencyHistogram.lowerBound(index);
+            assertTrue(lower <= micros);
+            assertTrue(micros - lower <= Math.max(1, micros / 32));
+        }
+        assertEquals(LatencyHistogram.index(63) + 1, LatencyHistogram.index(64));
+    }
+    
+    @Test
+    public void testPercentilesTrackRecordedLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.percentileMillis(50), 500 * 0.04);
+        assertEquals(990, histogram.percentileMillis(99), 990 * 0.04);
+        assertEquals(1000, histogram.getMaxMillis(), 0.001);
+        assertEquals(0, new LatencyHistogram().percentileMillis(99), 0);
+    }
+    
+    @Test
+    public void testPrometheusDump() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        ProviderMetrics metrics = registry.forProvider("Claude", "claude-3-5-sonnet-20241022");
+        assertSame(metrics, registry.forProvider("Claude", "claude-3-5-sonnet-20241022"));
+        
+        metrics.recordRequest();
+        metrics.recordRequest();
+        metrics.recordError("http_429");
+        metrics.recordTokens(12, 34);
+        metrics.total().recordNanos(TimeUnit.MILLISECONDS.toNanos(250));
+        
+        StringWriter out = new StringWriter();
+        registry.writePrometheus(out);
+        String text = out.toString();
+        
+        String labels = "provider=\"Claude\",model=\"claude-3-5-sonnet-20241022\"";
+        assertTrue(text.contains("# TYPE chatdelta_requests_total counter\n"));
+        assertTrue(text.contains("chatdelta_requests_total{" + labels + "} 2\n"));
+        assertTrue(text.contains("chatdelta_errors_total{" + labels + ",class=\"http_429\"} 1\n"));
+        assertTrue(text.contains("chatdelta_tokens_total{" + labels + ",type=\"output\"} 34\n"));
+        assertTrue(text.contains("chatdelta_latency_seconds_count{" + labels + ",phase=\"total\"} 1\n"));
+        // Phases with no samples are left out rather than reported as zero
+        assertFalse(text.contains("phase=\"ttft\""));
+        assertEquals(Map.of("http_429", 1L), metrics.getErrorsByClass());
+    }
+}
\ No newline at end of file
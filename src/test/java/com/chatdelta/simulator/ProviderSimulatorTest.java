@@ -0,0 +1,201 @@
+package com.chatdelta.simulator;
+
+import com.chatdelta.api.AIClient;
+import com.chatdelta.api.ApiException;
+import com.chatdelta.api.ClaudeClient;
+import com.chatdelta.api.CompletionResult;
+import com.chatdelta.api.Conversation;
+import com.chatdelta.api.GeminiClient;
+import com.chatdelta.api.HttpTransport;
+import com.chatdelta.api.OpenAIClient;
+import com.chatdelta.api.StreamListener;
+import com.chatdelta.api.StreamStats;
+import com.chatdelta.api.TimeoutProfile;
+import com.chatdelta.api.TokenUsage;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ProviderSimulatorTest {
+    
+    private static AIClient[] clients(String baseUrl) {
+        HttpTransport transport = HttpTransport.shared();
+        return new AIClient[] {
+            new OpenAIClient("test-key", transport, TimeoutProfile.DEFAULT, baseUrl),
+            new ClaudeClient("test-key", transport, TimeoutProfile.DEFAULT, baseUrl),
+            new GeminiClient("test-key", null, transport, TimeoutProfile.DEFAULT, baseUrl),
+        };
+    }
+    
+    @Test
+    public void testEveryClientDecodesItsSimulatedAnswer() throws Exception {
+        try (ProviderSimulator simulator = ProviderSimulator.start(SimulatorConfig.INSTANT.withResponseChars(300, 300))) {
+            for (AIClient client : clients(simulator.baseUrl())) {
+                CompletionResult result = client.sendPromptDetailed("What is tail latency?").get(10, TimeUnit.SECONDS);
+                int length = result.text().length();
+                assertTrue(client.getProviderName() + " answered " + length + " chars", length > 290 && length <= 300);
+                assertTrue(result.usage().outputTokens() > 0);
+            }
+            assertEquals(3, simulator.getRequestCount());
+        }
+    }
+    
+    @Test
+    public void testEveryClientStreamsItsSimulatedAnswer() throws Exception {
+        try (ProviderSimulator simulator = ProviderSimulator.start(SimulatorConfig.INSTANT.withResponseChars(200, 200))) {
+            for (AIClient client : clients(simulator.baseUrl())) {
+                List<String> chunks = new ArrayList<>();
+                String text = client.streamPrompt("Explain hedged requests", new StreamListener() {
+                    @Override
+                    public void onChunk(String chunk) {
+                        chunks.add(chunk);
+                    }
+                }).get(10, TimeUnit.SECONDS);
+                
+                assertTrue(client.getProviderName(), chunks.size() > 10);
+                assertEquals(text, String.join("", chunks));
+            }
+        }
+    }
+    
+    @Test
+    public void testAnswersOverlapAcrossProvidersButAreNotIdentical() throws Exception {
+        try (ProviderSimulator simulator = ProviderSimulator.start(SimulatorConfig.INSTANT)) {
+            AIClient[] clients = clients(simulator.baseUrl());
+            String first = clients[0].sendPrompt("same prompt").get(10, TimeUnit.SECONDS);
+            String second = clients[1].sendPrompt("same prompt").get(10, TimeUnit.SECONDS);
+            assertNotEquals(first, second);
+            
+            List<String> sentences = List.of(first.split("(?<=\\.)\\s+"));
+            boolean shared = false;
+            for (String sentence : second.split("(?<=\\.)\\s+")) {
+                shared |= sentences.contains(sentence);
+            }
+            assertTrue(shared);
+        }
+    }
+    
+    // Sends the prompt as the conversation's next turn and returns the conversation including it
+    private static Conversation turn(AIClient client, Conversation conversation, String prompt,
+                                     TokenUsage[] usage) throws Exception {
+        String reply = client.streamPrompt(conversation, prompt, new StreamListener() {
+            @Override
+            public void onChunk(String chunk) {
+            }
+            
+            @Override
+            public void onComplete(StreamStats stats) {
+                usage[0] = stats.usage();
+            }
+        }).get(10, TimeUnit.SECONDS);
+        return conversation.then(prompt, reply);
+    }
+    
+    @Test
+    public void testConversationPrefixIsReportedAsCached() throws Exception {
+        try (ProviderSimulator simulator = ProviderSimulator.start(SimulatorConfig.INSTANT.withResponseChars(400, 400))) {
+            for (AIClient client : clients(simulator.baseUrl())) {
+                TokenUsage[] usage = new TokenUsage[1];
+                Conversation conversation = turn(client, Conversation.start(), "What is a prompt cache?", usage);
+                assertEquals(client.getProviderName(), 0, usage[0].cachedInputTokens());
+                conversation = turn(client, conversation, "How long does it last?", usage);
+                conversation = turn(client, conversation, "And what does it cost?", usage);
+                
+                // The third turn repeats the first two, which the second one cached
+                assertTrue(client.getProviderName() + " cached " + usage[0],
+                    usage[0].cachedInputTokens() >= 100 && usage[0].cachedInputTokens() < usage[0].inputTokens());
+            }
+        }
+    }
+    
+    @Test
+    public void testGeminiNamesCachedContentsOnceTheContextIsLarge() throws Exception {
+        try (ProviderSimulator simulator = ProviderSimulator.start(SimulatorConfig.INSTANT.withResponseChars(5000, 5000))) {
+            AIClient gemini = clients(simulator.baseUrl())[2];
+            TokenUsage[] usage = new TokenUsage[1];
+            Conversation conversation = Conversation.start();
+            for (int i = 0; i < 3; i++) {
+                conversation = turn(gemini, conversation, "Question " + i, usage);
+            }
+            // The third turn stored the first two as cached contents in the background
+            for (int i = 0; i < 100 && simulator.getCachedContentCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, simulator.getCachedContentCount());
+            
+            turn(gemini, conversation, "Question 3", usage);
+            assertTrue("cached " + usage[0], usage[0].cachedInputTokens() >= 2500);
+        }
+    }
+    
+    @Test
+    public void testInjectedRateLimitCarriesRetryAfter() throws Exception {
+        SimulatorConfig throttled = new SimulatorConfig(
+            LatencyDistribution.fixed(Duration.ZERO), 0, 100, 100, 1.0, 0, Duration.ofSeconds(2));
+        try (ProviderSimulator simulator = ProviderSimulator.start(SimulatorConfig.INSTANT)
+                .configure("anthropic", throttled)) {
+            AIClient claude = clients(simulator.baseUrl())[1];
+            try {
+                claude.sendPrompt("p").get(10, TimeUnit.SECONDS);
+                fail("Expected a 429");
+            } catch (ExecutionException e) {
+                ApiException error = (ApiException) e.getCause();
+                assertTrue(error.isRateLimited());
+                assertEquals(Duration.ofSeconds(2), error.getRetryAfter());
+            }
+            assertEquals(1, simulator.getInjectedErrorCount());
+        }
+    }
+    
+    @Test
+    public void testMalformedRequestsGetA400() throws Exception {
+        try (ProviderSimulator simulator = ProviderSimulator.start(SimulatorConfig.INSTANT)) {
+            HttpClient http = HttpClient.newHttpClient();
+            String[][] requests = {
+                {"v1/chat/completions", "{\"messages\":[]}"},
+                {"v1/messages", "{\"messages\":"},
+                {"v1beta/models/gemini-2.5-flash:generateContent", "{\"contents\":{}}"},
+                {"v1beta/cachedContents", "[]"},
+            };
+            for (String[] request : requests) {
+                HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(simulator.baseUrl() + request[0]))
+                    .POST(HttpRequest.BodyPublishers.ofString(request[1]))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+                assertEquals(request[0], 400, response.statusCode());
+                assertTrue(response.body().contains("error"));
+            }
+        }
+    }
+    
+    @Test
+    public void testInvalidConfigsAreRejected() {
+        SimulatorConfig config = SimulatorConfig.INSTANT;
+        assertThrows(IllegalArgumentException.class, () -> config.withResponseChars(500, 100));
+        assertThrows(IllegalArgumentException.class, () -> config.withResponseChars(-1, 100));
+        assertThrows(IllegalArgumentException.class, () -> config.withErrors(1.5, 0));
+        assertThrows(IllegalArgumentException.class, () -> config.withErrors(0.6, 0.6));
+        assertThrows(IllegalArgumentException.class, () -> config.withErrors(Double.NaN, 0));
+        assertEquals(0.5, config.withErrors(0.5, 0.5).serverErrorProbability(), 0);
+    }
+    
+    @Test
+    public void testLatencySpecsParse() {
+        assertEquals(Duration.ofMillis(250), LatencyDistribution.parseDuration("250ms"));
+        LatencyDistribution uniform = LatencyDistribution.parse("uniform:100ms..200ms");
+        for (int i = 0; i < 100; i++) {
+            long nanos = uniform.sampleNanos(new Random(i));
+            assertTrue(nanos >= Duration.ofMillis(100).toNanos() && nanos <= Duration.ofMillis(200).toNanos());
+        }
+    }
+}
\ No newline at end of file
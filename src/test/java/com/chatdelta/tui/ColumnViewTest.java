@@ -0,0 +1,114 @@
+package com.chatdelta.tui;
+
+import com.chatdelta.history.History;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ColumnViewTest {
+    
+    private static String row(BasicTextImage image, int y, int width) {
+        StringBuilder row = new StringBuilder();
+        for (int x = 0; x < width; x++) {
+            row.append(image.getCharacterAt(new TerminalPosition(x, y)).getCharacterString());
+        }
+        return row.toString();
+    }
+    
+    @Test
+    public void testRepaintsOnlyWhenSomethingChanged() {
+        BasicTextImage image = new BasicTextImage(new TerminalSize(20, 10));
+        TextGraphics graphics = image.newTextGraphics();
+        ColumnView column = new ColumnView(true);
+        History messages = new History();
+        messages.add("first message");
+        messages.add("second");
+        column.setTitle(" Test ");
+        column.setContent(messages);
+        
+        assertTrue(column.draw(graphics, 0, 20, 10));
+        assertEquals("┌─ Test ───────────┐", row(image, 0, 20));
+        assertEquals("│ first message    │", row(image, 2, 20));
+        assertEquals("│ second           │", row(image, 4, 20));
+        
+        // Same version, same size, same focus: nothing to do
+        column.setContent(messages);
+        assertFalse(column.draw(graphics, 0, 20, 10));
+        
+        messages.set(1, "second, now longer than a line");
+        column.setContent(messages);
+        assertTrue(column.draw(graphics, 0, 20, 10));
+        assertEquals("│ second, now      │", row(image, 4, 20));
+        assertEquals("│ longer than a    │", row(image, 5, 20));
+        
+        // Everything fits, so there is nowhere to scroll to
+        column.scrollBy(1);
+        assertFalse(column.draw(graphics, 0, 20, 10));
+    }
+    
+    @Test
+    public void testScrollsByVisualLineWithinBounds() {
+        BasicTextImage image = new BasicTextImage(new TerminalSize(20, 8));
+        TextGraphics graphics = image.newTextGraphics();
+        ColumnView column = new ColumnView(true);
+        History messages = new History();
+        for (int i = 0; i < 20; i++) {
+            messages.add("message " + i);
+        }
+        column.setContent(messages);
+        column.draw(graphics, 0, 20, 8);
+        
+        // Each message is a line plus a spacer; line 2 starts the second message
+        column.setScroll(2);
+        column.draw(graphics, 0, 20, 8);
+        assertEquals("│ message 1        │", row(image, 2, 20));
+        assertEquals("│ message 3        │", row(image, 6, 20));
+        
+        // A page is the 5 visible rows less one of overlap
+        column.pageDown();
+        assertEquals(6, column.getScroll());
+        column.draw(graphics, 0, 20, 8);
+        assertEquals("│ message 3        │", row(image, 2, 20));
+        
+        // 39 lines (no spacer after the last message) less 5 rows
+        column.scrollToBottom();
+        assertEquals(34, column.getScroll());
+        column.scrollBy(100);
+        assertEquals(34, column.getScroll());
+        column.draw(graphics, 0, 20, 8);
+        assertEquals("│ message 19       │", row(image, 6, 20));
+        
+        // The bottom stays pinned as messages arrive, even part way into one
+        messages.add("message 20 is long enough to wrap onto more lines than the column shows at once");
+        column.setContent(messages);
+        assertTrue(column.draw(graphics, 0, 20, 8));
+        assertEquals(41, column.getScroll());
+        assertEquals("│ long enough to   │", row(image, 2, 20));
+        assertEquals("│ once             │", row(image, 6, 20));
+        
+        column.scrollToTop();
+        column.pageUp();
+        assertEquals(0, column.getScroll());
+        column.draw(graphics, 0, 20, 8);
+        assertEquals("│ message 0        │", row(image, 2, 20));
+    }
+    
+    @Test
+    public void testResizeRewraps() {
+        BasicTextImage image = new BasicTextImage(new TerminalSize(30, 6));
+        ColumnView column = new ColumnView(false);
+        History messages = new History();
+        messages.add("one two three four five");
+        column.setContent(messages);
+        
+        column.draw(image.newTextGraphics(), 0, 14, 6);
+        assertEquals("│ one two    │", row(image, 2, 14));
+        
+        assertTrue(column.draw(image.newTextGraphics(), 0, 30, 6));
+        assertEquals("│ one two three four five    │", row(image, 2, 30));
+    }
+}
\ No newline at end of file